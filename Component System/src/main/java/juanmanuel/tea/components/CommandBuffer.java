@@ -0,0 +1,255 @@
+package juanmanuel.tea.components;
+
+import juanmanuel.tea.graph.Graph;
+import juanmanuel.tea.graph.GraphBatch;
+import juanmanuel.tea.graph.GraphOperationException;
+import juanmanuel.tea.utils.Result;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/// Records structural changes of the graph of an [Updater] during a frame, to apply them all at once between frames.
+///
+/// Computations can be added, removed, connected and disconnected from any thread while a frame is running, without
+/// modifying the graph. The changes are coalesced as they are recorded: only the last change recorded for a computation,
+/// or for a pair of computations, is kept. When the buffer is applied, the changes that would not modify the graph, like
+/// connecting computations that are already connected, are discarded, and the rest are applied in a single
+/// [GraphBatch]. A rejected change does not discard the others, see [#apply()].
+///
+/// Implementations of [Updater] should create the buffer once, together with the graph. The buffer is applied by
+/// [Updater#runFrame()] before the frame starts.
+/// @param <Upr> The updater class
+/// @param <Upd> The updated class
+/// @param <SC> The structured computation class
+@NullMarked
+public final class CommandBuffer<
+        Upr extends Updater<Upr, Upd, SC>,
+        Upd extends Updated,
+        SC extends StructuredComputation<Upr, Upd, SC>> {
+    private final Upr updater;
+    // Computations created for updated objects that are not in the graph yet
+    private final Map<Upd, SC> created = new IdentityHashMap<>();
+    private final Map<SC, Boolean> vertices = new IdentityHashMap<>();
+    private final Map<Edge<SC>, Boolean> edges = new LinkedHashMap<>();
+    // Computations whose only parent, or only child, must be the given one
+    private final Map<SC, SC> onlyParents = new IdentityHashMap<>();
+    private final Map<SC, SC> onlyChildren = new IdentityHashMap<>();
+
+    /// Compares the computations by identity, as computations with the same updated object are equal.
+    private record Edge<SC>(SC parent, SC child) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Edge<?> other && parent == other.parent && child == other.child;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(parent) + System.identityHashCode(child);
+        }
+    }
+
+    /// Creates an empty buffer for the graph of the updater.
+    /// @param updater The updater that owns the graph
+    public CommandBuffer(Upr updater) {
+        this.updater = Objects.requireNonNull(updater);
+    }
+
+    /// Gets the computation of the updated object, which is the one in the graph, or the one created for it by a
+    /// previous change of this buffer, or a new one.
+    /// @param updated The updated object
+    /// @return The computation of the updated object
+    public synchronized SC computationOf(Upd updated) {
+        Objects.requireNonNull(updated);
+        var computation = updater.computationIndex().get(updated);
+        if (computation != null)
+            return computation;
+
+        return created.computeIfAbsent(updated, updater::createComputation);
+    }
+
+    /// Adds the computation to the graph. Cancels a previous removal of the computation.
+    /// @param computation The computation
+    public synchronized void add(SC computation) {
+        vertices.put(Objects.requireNonNull(computation), true);
+    }
+
+    /// Removes the computation, and therefore its connections, from the graph. Cancels a previous addition of the
+    /// computation.
+    /// @param computation The computation
+    public synchronized void remove(SC computation) {
+        vertices.put(Objects.requireNonNull(computation), false);
+    }
+
+    /// Connects the child after the parent, adding them to the graph if needed. Cancels a previous disconnection.
+    /// @param parent The parent computation
+    /// @param child The child computation
+    public synchronized void connect(SC parent, SC child) {
+        add(parent);
+        add(child);
+        edges.put(new Edge<>(parent, child), true);
+    }
+
+    /// Disconnects the child from the parent. Cancels a previous connection.
+    /// @param parent The parent computation
+    /// @param child The child computation
+    public synchronized void disconnect(SC parent, SC child) {
+        edges.put(new Edge<>(Objects.requireNonNull(parent), Objects.requireNonNull(child)), false);
+    }
+
+    /// Connects the child after the parent, and disconnects it from every other parent.
+    /// @param child The child computation
+    /// @param parent The only parent computation of the child
+    public synchronized void setParent(SC child, SC parent) {
+        connect(parent, child);
+        edges.keySet().removeIf(edge -> edge.child == child && edge.parent != parent);
+        onlyParents.put(child, parent);
+    }
+
+    /// Connects the child after the parent, and disconnects the parent from every other child.
+    /// @param parent The parent computation
+    /// @param child The only child computation of the parent
+    public synchronized void setChild(SC parent, SC child) {
+        connect(parent, child);
+        edges.keySet().removeIf(edge -> edge.parent == parent && edge.child != child);
+        onlyChildren.put(parent, child);
+    }
+
+    /// @return True if there are no recorded changes
+    public synchronized boolean isEmpty() {
+        return vertices.isEmpty() && edges.isEmpty() && onlyParents.isEmpty() && onlyChildren.isEmpty();
+    }
+
+    /// Applies the recorded changes to the graph and clears the buffer.
+    ///
+    /// The changes are applied in a single batch. If the batch is rejected, for example because one of the changes would
+    /// create a cycle, every change is applied on its own instead, so the valid ones are kept and only the rejected ones
+    /// are discarded.
+    ///
+    /// The buffer is cleared before the changes are committed, so new changes can be recorded from other threads while
+    /// they are applied. They will be applied by the next call.
+    ///
+    /// Must not be called while a frame is running.
+    /// @return The failures of the rejected changes, in the order they were applied, empty if every change was applied
+    /// @throws GraphOperationException If the graph could not apply a change that had been validated. The other changes
+    /// are still applied
+    public List<Graph.BatchFailure> apply() throws GraphOperationException {
+        Map<Upd, SC> applying;
+        List<Consumer<GraphBatch<SC, ?>>> changes;
+        synchronized (this) {
+            if (isEmpty())
+                return List.of();
+
+            // The created computations stay known until they are in the graph, so they are not created twice
+            applying = new IdentityHashMap<>(created);
+            changes = drain();
+        }
+
+        try {
+            return commit(changes);
+        } finally {
+            synchronized (this) {
+                created.entrySet().removeIf(entry -> applying.get(entry.getKey()) == entry.getValue());
+            }
+        }
+    }
+
+    /// Turns the recorded changes into the operations that modify the graph, and clears them.
+    private List<Consumer<GraphBatch<SC, ?>>> drain() {
+        var graph = updater.graph();
+        List<Consumer<GraphBatch<SC, ?>>> changes = new ArrayList<>();
+
+        vertices.forEach((computation, add) -> {
+            boolean present = graph.containsVertex(computation);
+            if (add && !present)
+                changes.add(batch -> batch.addVertex(computation));
+            else if (!add && present)
+                changes.add(batch -> batch.removeVertex(computation));
+        });
+
+        // The other parents and children are disconnected first, the recorded edges take precedence over them
+        Map<Edge<SC>, Boolean> edgeChanges = new LinkedHashMap<>();
+        onlyParents.forEach((child, parent) -> graph.forEachParent(child, p -> {
+            if (p != parent)
+                edgeChanges.put(new Edge<>(p, child), false);
+        }));
+        onlyChildren.forEach((parent, child) -> graph.forEachChild(parent, c -> {
+            if (c != child)
+                edgeChanges.put(new Edge<>(parent, c), false);
+        }));
+        edgeChanges.putAll(edges);
+
+        edgeChanges.forEach((edge, connect) -> {
+            // The connections of removed computations are removed with them
+            if (vertices.get(edge.parent) == Boolean.FALSE || vertices.get(edge.child) == Boolean.FALSE)
+                return;
+
+            boolean present = graph.containsVertex(edge.parent) && graph.containsVertex(edge.child)
+                    && graph.containsEdge(edge.parent, edge.child);
+            if (connect && !present)
+                changes.add(batch -> batch.addEdge(edge.parent, edge.child));
+            else if (!connect && present)
+                changes.add(batch -> batch.removeEdge(edge.parent, edge.child));
+        });
+
+        vertices.clear();
+        edges.clear();
+        onlyParents.clear();
+        onlyChildren.clear();
+        return changes;
+    }
+
+    private List<Graph.BatchFailure> commit(List<Consumer<GraphBatch<SC, ?>>> changes) throws GraphOperationException {
+        if (changes.isEmpty())
+            return List.of();
+
+        var graph = updater.graph();
+        var batch = graph.batch();
+        changes.forEach(change -> change.accept(batch));
+        try {
+            if (batch.commit().isSuccessful())
+                return List.of();
+        } catch (GraphOperationException _) {
+            // The batch was rolled back, the changes are retried one by one to find the one that cannot be applied
+        }
+
+        return applyOneByOne(graph, changes);
+    }
+
+    private static <SC extends StructuredComputation<?, ?, SC>> List<Graph.BatchFailure> applyOneByOne(
+            Graph<SC, ?> graph, List<Consumer<GraphBatch<SC, ?>>> changes) {
+        List<Graph.BatchFailure> failures = new ArrayList<>();
+        GraphOperationException error = null;
+        for (var change : changes) {
+            var batch = graph.batch();
+            change.accept(batch);
+            try {
+                if (batch.commit() instanceof Result.Failure<Void, Graph.BatchFailure>(var failure))
+                    failures.add(failure);
+            } catch (GraphOperationException e) {
+                if (error == null)
+                    error = e;
+                else
+                    error.addSuppressed(e);
+            }
+        }
+
+        if (error != null)
+            throw error;
+        return failures;
+    }
+
+    /// Discards the recorded changes.
+    public synchronized void clear() {
+        created.clear();
+        vertices.clear();
+        edges.clear();
+        onlyParents.clear();
+        onlyChildren.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CommandBuffer[vertices=" + vertices.size() + ", edges=" + edges.size() + "]";
+    }
+}
@@ -0,0 +1,57 @@
+package juanmanuel.tea.components;
+
+import juanmanuel.tea.graph.Graph;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static juanmanuel.tea.graph.Graph.VertexCallbackType.ON_ADD_VERTEX;
+import static juanmanuel.tea.graph.Graph.VertexCallbackType.ON_REMOVE_VERTEX;
+
+/// Index from the updated objects to their computations in the graph of an [Updater].
+///
+/// The index registers vertex callbacks in the graph to stay in sync with it, so every lookup takes constant time.
+/// The updated objects are compared by identity.
+/// @param <Upd> The updated class
+/// @param <SC> The structured computation class
+@NullMarked
+public final class ComputationIndex<Upd extends Updated, SC extends StructuredComputation<?, Upd, SC>> {
+    private final Map<Upd, SC> computations = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /// Creates an index of the computations of the graph, including the ones already added to it.
+    /// @param graph The graph to index
+    public ComputationIndex(Graph<SC, ?> graph) {
+        Objects.requireNonNull(graph);
+        graph.addVertexCallback(ON_ADD_VERTEX, computation -> computations.put(computation.updated(), computation));
+        graph.addVertexCallback(ON_REMOVE_VERTEX, computation -> computations.remove(computation.updated(), computation));
+        graph.forEach(computation -> computations.put(computation.updated(), computation));
+    }
+
+    /// @param updated The updated object
+    /// @return The computation of the updated object in the graph, or null if there is none
+    public @Nullable SC get(Upd updated) {
+        return computations.get(updated);
+    }
+
+    /// @param updated The updated object
+    /// @return The computation of the updated object in the graph, if any
+    public Optional<SC> find(Upd updated) {
+        return Optional.ofNullable(get(updated));
+    }
+
+    /// @param updated The updated object
+    /// @return True if the graph contains a computation of the updated object
+    public boolean contains(Upd updated) {
+        return computations.containsKey(updated);
+    }
+
+    /// @return The number of computations in the index
+    public int size() {
+        return computations.size();
+    }
+}
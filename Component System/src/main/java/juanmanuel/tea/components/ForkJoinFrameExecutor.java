@@ -0,0 +1,59 @@
+package juanmanuel.tea.components;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/// A [FrameExecutor] backed by a work-stealing [ForkJoinPool].
+///
+/// Tasks scheduled from a worker of the pool are pushed to the deque of that worker, which takes its own tasks in LIFO
+/// order. The children released by a computation therefore run next on the same worker, while idle workers steal from
+/// the other end of the deque. Tasks scheduled from any other thread are submitted to the pool.
+@NullMarked
+public final class ForkJoinFrameExecutor implements FrameExecutor {
+    static final ForkJoinFrameExecutor SHARED = new ForkJoinFrameExecutor();
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /// Creates an executor with its own pool, with one worker per available processor.
+    public ForkJoinFrameExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /// Creates an executor with its own pool.
+    /// @param parallelism The number of workers of the pool
+    public ForkJoinFrameExecutor(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+        this.ownsPool = true;
+    }
+
+    /// Creates an executor that schedules its tasks in the given pool. Closing the executor does not shut down the pool.
+    /// @param pool The pool
+    public ForkJoinFrameExecutor(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+        this.ownsPool = false;
+    }
+
+    /// @return The pool that runs the tasks
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Objects.requireNonNull(task);
+        if (ForkJoinTask.getPool() == pool)
+            ForkJoinTask.adapt(task).fork();
+        else
+            pool.execute(task);
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool && this != SHARED)
+            pool.shutdown();
+    }
+}
@@ -0,0 +1,121 @@
+package juanmanuel.tea.components;
+
+import juanmanuel.tea.graph.ExecutionPlan;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/// A single pass of an [Updater] over its computations.
+///
+/// Every frame has its own number and executes the [ExecutionPlan] that was current when the frame started, so changes
+/// to the graph during the frame do not affect it.
+///
+/// The frame keeps count of the computations that have been scheduled and have not finished yet. The starter of the
+/// frame holds one extra count until it has scheduled all the computations it starts with. When the count reaches zero
+/// no computation of the frame can be released any more, and the [#completion()] future is completed. If a computation
+/// fails, its descendants are not released and the future completes exceptionally with the first failure.
+///
+/// The [#priority(int)] of a computation is its critical path in the plan, weighted by the measured cost of the
+/// computations. The paths are cached on the plan and shared by its frames, refreshed with the current costs at most
+/// every [#PRIORITY_REFRESH_FRAMES] frames.
+/// @param <SC> The structured computation class
+@NullMarked
+public final class Frame<SC extends StructuredComputation<?, ?, SC>> {
+    private static final AtomicInteger sequence = new AtomicInteger();
+    /// The maximum number of frames of a plan that share the same priorities.
+    static final int PRIORITY_REFRESH_FRAMES = 32;
+
+    private final int number;
+    private final ExecutionPlan<SC> plan;
+    private final AtomicInteger inFlight = new AtomicInteger(1);
+    private final AtomicReference<@Nullable Throwable> failure = new AtomicReference<>();
+    private final CompletableFuture<Frame<SC>> completion = new CompletableFuture<>();
+    private volatile long @Nullable [] priorities;
+
+    Frame(ExecutionPlan<SC> plan) {
+        this.number = sequence.getAndIncrement();
+        this.plan = plan;
+    }
+
+    /// Registers a computation that is about to be scheduled. If it cannot be scheduled, its count must still be released
+    /// with [#finished(Throwable)].
+    void scheduled() {
+        inFlight.incrementAndGet();
+    }
+
+    /// Unregisters a scheduled computation, or the starter of the frame, once it has finished.
+    /// @param cause The failure of the computation, or null if it finished normally
+    void finished(@Nullable Throwable cause) {
+        if (cause != null)
+            failure.compareAndSet(null, cause);
+
+        if (inFlight.decrementAndGet() == 0) {
+            var f = failure.get();
+            if (f == null)
+                completion.complete(this);
+            else
+                completion.completeExceptionally(f);
+        }
+    }
+
+    /// @return The number of the frame, unique among the frames running at the same time
+    public int number() {
+        return number;
+    }
+
+    /// @return The plan executed by this frame
+    public ExecutionPlan<SC> plan() {
+        return plan;
+    }
+
+    /// Gets the priority of a computation in this frame: the total cost of the heaviest path from it to a sink, see
+    /// [ExecutionPlan#criticalPaths]. Computations that have not been measured yet count as 1 nanosecond.
+    ///
+    /// The priorities are taken from the plan when first requested, see
+    /// [ExecutionPlan#criticalPaths(java.util.function.ToLongFunction, int)], so they only walk the plan every few
+    /// frames.
+    /// @param id The id of the computation in the plan
+    /// @return The priority, higher for computations that should start first
+    public long priority(int id) {
+        var p = priorities;
+        if (p == null) {
+            // Concurrent callers may request them more than once, any of the results is valid
+            p = plan.criticalPaths(Frame::weight, PRIORITY_REFRESH_FRAMES);
+            priorities = p;
+        }
+        return p[id];
+    }
+
+    private static long weight(StructuredComputation<?, ?, ?> computation) {
+        return Math.max(computation.cost(), 1);
+    }
+
+    /// @return A future completed when every computation released in this frame has finished
+    public CompletableFuture<Frame<SC>> completion() {
+        return completion;
+    }
+
+    /// @return True if every computation released in this frame has finished
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /// Waits until every computation released in this frame has finished, whether it failed or not.
+    /// @throws InterruptedException If the current thread is interrupted while waiting
+    public void await() throws InterruptedException {
+        try {
+            completion.get();
+        } catch (ExecutionException _) {
+            // The failure is reported by the completion future
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Frame[number=" + number + ", plan=" + plan + "]";
+    }
+}
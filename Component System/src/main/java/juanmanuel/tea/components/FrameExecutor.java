@@ -0,0 +1,46 @@
+package juanmanuel.tea.components;
+
+import org.jspecify.annotations.NullMarked;
+
+/// Runs the computations of the frames of an [Updater].
+///
+/// The updater hands every computation that becomes ready to [#execute(Runnable)]: the roots when a frame starts, and
+/// every child when its last parent finishes. Tasks of the same frame may run concurrently.
+///
+/// Executors that order their tasks, like [PriorityFrameExecutor], are also given the priority of every task, see
+/// [#prioritized()].
+///
+/// A plain lambda can be used as an executor, for example `task -> Thread.ofVirtual().start(task)`.
+@NullMarked
+@FunctionalInterface
+public interface FrameExecutor extends AutoCloseable {
+
+    /// The executor used by updaters that do not provide their own.
+    /// @return A work-stealing executor shared by all the updaters
+    static FrameExecutor shared() {
+        return ForkJoinFrameExecutor.SHARED;
+    }
+
+    /// Schedules a task. If the calling thread is running a task of this executor, the new task should be kept close to
+    /// it, as it usually is a successor of the calling task and works on related data.
+    /// @param task The task to run
+    void execute(Runnable task);
+
+    /// Schedules a task with a priority. Executors that order their tasks start the ready tasks with the highest priority
+    /// first, the rest ignore the priority.
+    /// @param task The task to run
+    /// @param priority The priority of the task, see [Frame#priority(int)]
+    default void execute(Runnable task, long priority) {
+        execute(task);
+    }
+
+    /// @return True if the executor orders its tasks by the priority given to [#execute(Runnable, long)], so the updater
+    /// only computes the priorities when they are used
+    default boolean prioritized() {
+        return false;
+    }
+
+    /// Releases the resources of the executor. Tasks already scheduled may not run.
+    @Override
+    default void close() {}
+}
@@ -0,0 +1,15 @@
+package juanmanuel.tea.components;
+
+/// What an [UpdateLoop] does when a frame is due while the previous frame is still running.
+///
+/// Frames never overlap with any of the policies.
+public enum LateFramePolicy {
+    /// The frame is not run. The loop continues with the next time step.
+    SKIP,
+
+    /// The frame is run as soon as the previous one finishes. Frames due while one frame is already waiting are not run.
+    QUEUE_ONE,
+
+    /// The loop waits for the previous frame to finish and then runs the frame.
+    BLOCK
+}
@@ -0,0 +1,122 @@
+package juanmanuel.tea.components;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// A [FrameExecutor] that starts the ready tasks with the highest priority first.
+///
+/// The updater gives every computation the length of its critical path as priority, see [Frame#priority(int)], so the
+/// computations at the head of the longest dependency chains start before shorter independent work. When there are
+/// more ready computations than workers this shortens the frame, as a long chain is no longer started late.
+///
+/// Tasks are kept in a single priority queue taken by a fixed set of platform workers. Tasks of equal priority start in
+/// the order they were scheduled. Tasks scheduled without a priority have priority `0`.
+///
+/// Closing the executor rejects new tasks with a [RejectedExecutionException]. The tasks already scheduled still run,
+/// and each worker stops once the queue is drained.
+@NullMarked
+public final class PriorityFrameExecutor implements FrameExecutor {
+    private static final AtomicInteger sequence = new AtomicInteger();
+    private static final Comparator<PrioritizedTask> ORDER = Comparator
+            .comparingLong(PrioritizedTask::priority).reversed()
+            .thenComparingLong(PrioritizedTask::order);
+
+    private final PriorityBlockingQueue<PrioritizedTask> queue = new PriorityBlockingQueue<>(64, ORDER);
+    private final AtomicLong scheduled = new AtomicLong();
+    private final Thread[] workers;
+    private volatile boolean closed;
+
+    private record PrioritizedTask(Runnable task, long priority, long order) {}
+
+    /// Stops the worker that takes it. Sorted after every task, so the queue is drained before the workers stop.
+    private static final Runnable STOP = () -> {};
+
+    /// Creates an executor with one worker per available processor.
+    public PriorityFrameExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /// Creates an executor.
+    /// @param parallelism The number of workers
+    /// @throws IllegalArgumentException If the number of workers is not positive
+    public PriorityFrameExecutor(int parallelism) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("The number of workers must be positive");
+
+        int executor = sequence.getAndIncrement();
+        workers = new Thread[parallelism];
+        for (int i = 0; i < parallelism; i++)
+            workers[i] = Thread.ofPlatform()
+                    .name("priority-worker-" + executor + "-" + i)
+                    .daemon()
+                    .start(this::work);
+    }
+
+    /// @return The number of workers
+    public int parallelism() {
+        return workers.length;
+    }
+
+    private void work() {
+        while (true) {
+            PrioritizedTask next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException _) {
+                continue;
+            }
+
+            if (next.task() == STOP)
+                return;
+
+            try {
+                next.task().run();
+            } catch (Throwable t) {
+                var thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(task, 0);
+    }
+
+    /// @throws RejectedExecutionException If the executor is closed
+    @Override
+    public void execute(Runnable task, long priority) {
+        Objects.requireNonNull(task);
+        if (closed)
+            throw new RejectedExecutionException("The executor is closed");
+
+        var prioritized = new PrioritizedTask(task, priority, scheduled.getAndIncrement());
+        queue.add(prioritized);
+
+        // Closed meanwhile: the workers may have stopped, unless one of them took the task already
+        if (closed && queue.remove(prioritized))
+            throw new RejectedExecutionException("The executor is closed");
+    }
+
+    @Override
+    public boolean prioritized() {
+        return true;
+    }
+
+    /// Rejects new tasks and stops the workers once the tasks already scheduled have run. Does not wait for them.
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+        for (int i = 0; i < workers.length; i++)
+            queue.add(new PrioritizedTask(STOP, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,199 @@
+package juanmanuel.tea.components;
+
+import juanmanuel.tea.graph.ExecutionPlan;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.Function;
+
+/// Partition of an [ExecutionPlan] in shards that can update independently, arranged for a [ShardScheduler].
+///
+/// The shards are given dense numbers in `[0, shards())`. The edges between computations of different shards are
+/// honoured with phases: a computation runs in the phase after the latest phase of its parents from other shards, and
+/// in the latest phase of its parents from its own shard. Every phase starts once the previous one has finished, so a
+/// computation only waits on other shards at the phase barriers. When the shards are the weakly connected components
+/// of the plan there are no such edges, and the whole frame is a single phase.
+///
+/// The computations of a shard in a phase form a task, run sequentially in id order, which is a topological order. The
+/// tasks of a phase are numbered in `[phaseStart(phase), phaseEnd(phase))`.
+/// @param <SC> The structured computation class
+@NullMarked
+public final class ShardPlan<SC extends StructuredComputation<?, ?, SC>> {
+    private final ExecutionPlan<SC> plan;
+    private final int shards;
+    private final int[] shardOf;
+    private final int[] phaseOf;
+    private final int[] phaseOffsets;
+    private final int[] taskShards;
+    private final int[] taskOffsets;
+    private final int[] taskComputations;
+
+    private ShardPlan(ExecutionPlan<SC> plan, int shards, int[] shardOf, int[] phaseOf, int[] phaseOffsets,
+                      int[] taskShards, int[] taskOffsets, int[] taskComputations) {
+        this.plan = plan;
+        this.shards = shards;
+        this.shardOf = shardOf;
+        this.phaseOf = phaseOf;
+        this.phaseOffsets = phaseOffsets;
+        this.taskShards = taskShards;
+        this.taskOffsets = taskOffsets;
+        this.taskComputations = taskComputations;
+    }
+
+    /// Partitions the plan in its weakly connected components.
+    /// @param plan The plan to partition
+    /// @return The partition, with a single phase
+    public static <SC extends StructuredComputation<?, ?, SC>> ShardPlan<SC> components(ExecutionPlan<SC> plan) {
+        int size = plan.size();
+        int[] shardOf = new int[size];
+        for (int id = 0; id < size; id++)
+            shardOf[id] = plan.componentOf(id);
+
+        return build(plan, plan.components(), shardOf);
+    }
+
+    /// Partitions the plan in the shards declared by the key of every computation. Computations with equal keys share
+    /// a shard.
+    /// @param plan The plan to partition
+    /// @param shardKey The key of the shard of a computation
+    /// @return The partition
+    public static <SC extends StructuredComputation<?, ?, SC>> ShardPlan<SC> byKey(ExecutionPlan<SC> plan, Function<? super SC, ?> shardKey) {
+        Objects.requireNonNull(shardKey);
+
+        int size = plan.size();
+        int[] shardOf = new int[size];
+        var numbers = new HashMap<Object, Integer>();
+        for (int id = 0; id < size; id++) {
+            var key = Objects.requireNonNull(shardKey.apply(plan.vertex(id)), "The shard key cannot be null");
+            shardOf[id] = numbers.computeIfAbsent(key, _ -> numbers.size());
+        }
+
+        return build(plan, numbers.size(), shardOf);
+    }
+
+    private static <SC extends StructuredComputation<?, ?, SC>> ShardPlan<SC> build(ExecutionPlan<SC> plan, int shards, int[] shardOf) {
+        int size = plan.size();
+
+        // Ids are a topological order, so the parents of a computation have their phase assigned before it
+        int[] phaseOf = new int[size];
+        int phases = size == 0 ? 0 : 1;
+        for (int id = 0; id < size; id++) {
+            int phase = 0;
+            for (int i = 0, n = plan.predecessorCount(id); i < n; i++) {
+                int parent = plan.predecessor(id, i);
+                phase = Math.max(phase, phaseOf[parent] + (shardOf[parent] == shardOf[id] ? 0 : 1));
+            }
+            phaseOf[id] = phase;
+            phases = Math.max(phases, phase + 1);
+        }
+
+        // Order the ids by phase, then shard, then id, with two stable counting sorts
+        int[] byShard = countingSort(identity(size), shardOf, shards);
+        int[] order = countingSort(byShard, phaseOf, phases);
+
+        // Every run of ids of the same phase and shard is a task
+        int[] taskShards = new int[size];
+        int[] taskOffsets = new int[size + 1];
+        int[] phaseOffsets = new int[phases + 1];
+        int tasks = 0;
+        for (int i = 0; i < size; i++) {
+            int id = order[i];
+            if (i == 0 || phaseOf[id] != phaseOf[order[i - 1]] || shardOf[id] != shardOf[order[i - 1]]) {
+                taskShards[tasks] = shardOf[id];
+                taskOffsets[tasks++] = i;
+                phaseOffsets[phaseOf[id] + 1] = tasks;
+            }
+        }
+        taskOffsets[tasks] = size;
+        for (int phase = 1; phase <= phases; phase++)
+            phaseOffsets[phase] = Math.max(phaseOffsets[phase], phaseOffsets[phase - 1]);
+
+        return new ShardPlan<>(plan, shards, shardOf, phaseOf, phaseOffsets, Arrays.copyOf(taskShards, tasks),
+                Arrays.copyOf(taskOffsets, tasks + 1), order);
+    }
+
+    private static int[] identity(int size) {
+        int[] ids = new int[size];
+        for (int id = 0; id < size; id++)
+            ids[id] = id;
+        return ids;
+    }
+
+    private static int[] countingSort(int[] ids, int[] keys, int range) {
+        int[] offsets = new int[range + 1];
+        for (int id : ids)
+            offsets[keys[id] + 1]++;
+        for (int key = 0; key < range; key++)
+            offsets[key + 1] += offsets[key];
+
+        int[] sorted = new int[ids.length];
+        for (int id : ids)
+            sorted[offsets[keys[id]]++] = id;
+        return sorted;
+    }
+
+    /// @return The partitioned plan
+    public ExecutionPlan<SC> executionPlan() {
+        return plan;
+    }
+
+    /// @return The number of shards
+    public int shards() {
+        return shards;
+    }
+
+    /// @return The number of phases
+    public int phases() {
+        return phaseOffsets.length - 1;
+    }
+
+    /// @param id The id of the computation in the plan
+    /// @return The shard of the computation
+    public int shardOf(int id) {
+        return shardOf[id];
+    }
+
+    /// @param id The id of the computation in the plan
+    /// @return The phase of the computation
+    public int phaseOf(int id) {
+        return phaseOf[id];
+    }
+
+    /// @param phase The phase
+    /// @return The first task of the phase
+    public int phaseStart(int phase) {
+        return phaseOffsets[phase];
+    }
+
+    /// @param phase The phase
+    /// @return The task after the last task of the phase
+    public int phaseEnd(int phase) {
+        return phaseOffsets[phase + 1];
+    }
+
+    /// @param task The task
+    /// @return The shard the task belongs to
+    public int taskShard(int task) {
+        return taskShards[task];
+    }
+
+    /// @param task The task
+    /// @return The number of computations of the task
+    public int taskSize(int task) {
+        return taskOffsets[task + 1] - taskOffsets[task];
+    }
+
+    /// @param task The task
+    /// @param index The index of the computation in the task, in `[0, taskSize(task))`
+    /// @return The id of the computation in the plan
+    public int taskComputation(int task, int index) {
+        return taskComputations[taskOffsets[task] + index];
+    }
+
+    @Override
+    public String toString() {
+        return "ShardPlan[plan=" + plan + ", shards=" + shards + ", phases=" + phases() + "]";
+    }
+}
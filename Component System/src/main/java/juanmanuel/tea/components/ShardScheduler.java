@@ -0,0 +1,179 @@
+package juanmanuel.tea.components;
+
+import juanmanuel.tea.graph.ExecutionPlan;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/// Runs the frames of a [ShardedUpdater], giving every shard of its computations an executor lane.
+///
+/// A lane is a single platform thread, so the computations of a shard never run concurrently and stay on the same core
+/// frame after frame, while the shards of different lanes update in parallel. When there are more shards than lanes,
+/// shard `s` runs in lane `s % lanes()`.
+///
+/// The shards are the weakly connected components of the graph, or the ones declared by a shard key. The [ShardPlan] is
+/// compiled once for every [ExecutionPlan] of the graph, and every phase of it starts when the last task of the previous
+/// phase finishes, without blocking any thread.
+///
+/// If a computation fails, the rest of its task and the following phases are not run, and the frame completes
+/// exceptionally with the failure.
+/// @param <SC> The structured computation class
+@NullMarked
+public final class ShardScheduler<SC extends StructuredComputation<?, ?, SC>> implements AutoCloseable {
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    private final Lane[] lanes;
+    private final @Nullable Function<? super SC, ?> shardKey;
+    private volatile @Nullable ShardPlan<SC> shardPlan;
+
+    /// A lane backed by a single thread.
+    private record Lane(ExecutorService executor) implements FrameExecutor {
+        @Override
+        public void execute(Runnable task) {
+            executor.execute(task);
+        }
+
+        @Override
+        public void close() {
+            executor.shutdown();
+        }
+    }
+
+    /// Creates a scheduler whose shards are the weakly connected components of the graph.
+    /// @param lanes The number of lanes
+    /// @throws IllegalArgumentException If the number of lanes is not positive
+    public ShardScheduler(int lanes) {
+        this.lanes = createLanes(lanes);
+        this.shardKey = null;
+    }
+
+    /// Creates a scheduler whose shards are declared by the computations. Computations with equal keys share a shard.
+    /// @param lanes The number of lanes
+    /// @param shardKey The key of the shard of a computation
+    /// @throws IllegalArgumentException If the number of lanes is not positive
+    public ShardScheduler(int lanes, Function<? super SC, ?> shardKey) {
+        this.lanes = createLanes(lanes);
+        this.shardKey = Objects.requireNonNull(shardKey);
+    }
+
+    private static Lane[] createLanes(int count) {
+        if (count <= 0)
+            throw new IllegalArgumentException("The number of lanes must be positive");
+
+        int scheduler = sequence.getAndIncrement();
+        var lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            var factory = Thread.ofPlatform()
+                    .name("shard-lane-" + scheduler + "-" + i)
+                    .daemon()
+                    .factory();
+            lanes[i] = new Lane(Executors.newSingleThreadExecutor(factory));
+        }
+        return lanes;
+    }
+
+    /// @return The number of lanes
+    public int lanes() {
+        return lanes.length;
+    }
+
+    /// @param shard The shard
+    /// @return The lane that runs the shard
+    public FrameExecutor laneOf(int shard) {
+        return lanes[shard % lanes.length];
+    }
+
+    /// Gets the partition of the plan, compiling it if the plan changed since the last frame.
+    /// @param plan The plan of the frame
+    /// @return The partition of the plan
+    public ShardPlan<SC> shardPlan(ExecutionPlan<SC> plan) {
+        var shards = shardPlan;
+        if (shards == null || shards.executionPlan() != plan) {
+            shards = shardKey == null ? ShardPlan.components(plan) : ShardPlan.byKey(plan, shardKey);
+            shardPlan = shards;
+        }
+        return shards;
+    }
+
+    /// Schedules the first phase of the frame in the lanes. The caller must still release its own count of the frame.
+    /// @param updater The updater the frame belongs to
+    /// @param frame The frame
+    void start(Updater<?, ?, SC> updater, Frame<SC> frame) {
+        var shards = shardPlan(frame.plan());
+        if (shards.phases() > 0)
+            new Run(updater, frame, shards).startPhase(0);
+    }
+
+    /// The state of a frame being run.
+    private final class Run {
+        private final Updater<?, ?, SC> updater;
+        private final Frame<SC> frame;
+        private final ShardPlan<SC> shards;
+        private final AtomicInteger remaining = new AtomicInteger();
+        private volatile boolean failed;
+
+        private Run(Updater<?, ?, SC> updater, Frame<SC> frame, ShardPlan<SC> shards) {
+            this.updater = updater;
+            this.frame = frame;
+            this.shards = shards;
+        }
+
+        private void startPhase(int phase) {
+            int start = shards.phaseStart(phase);
+            int end = shards.phaseEnd(phase);
+            remaining.set(end - start);
+            for (int task = start; task < end; task++) {
+                int t = task;
+                frame.scheduled();
+                try {
+                    laneOf(shards.taskShard(t)).execute(() -> runTask(phase, t));
+                } catch (RuntimeException e) {
+                    // The task will not run, so it cannot be the barrier that starts the next phase
+                    failed = true;
+                    remaining.decrementAndGet();
+                    frame.finished(e);
+                }
+            }
+        }
+
+        private void runTask(int phase, int task) {
+            var plan = shards.executionPlan();
+            Throwable failure = null;
+            try {
+                for (int i = 0, n = shards.taskSize(task); i < n; i++)
+                    updater.computeInline(plan.vertex(shards.taskComputation(task, i)), frame);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } catch (Throwable t) {
+                failure = t;
+            }
+
+            try {
+                if (failure != null)
+                    failed = true;
+
+                // The last task of a phase is its barrier: it starts the next phase before releasing its count of the frame
+                if (remaining.decrementAndGet() == 0 && !failed && phase + 1 < shards.phases())
+                    startPhase(phase + 1);
+            } catch (Throwable t) {
+                failed = true;
+                failure = t;
+            } finally {
+                frame.finished(failure);
+            }
+        }
+    }
+
+    /// Stops the threads of the lanes. Tasks already scheduled may not run.
+    @Override
+    public void close() {
+        for (var lane : lanes)
+            lane.close();
+    }
+}
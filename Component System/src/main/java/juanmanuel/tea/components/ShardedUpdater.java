@@ -0,0 +1,40 @@
+package juanmanuel.tea.components;
+
+import org.jspecify.annotations.NullMarked;
+
+/// An [Updater] that splits its computations in shards, each one updated in its own executor lane.
+///
+/// Independent parts of the graph, its weakly connected components by default, update in parallel without contending
+/// for the same executor. The edges between shards are honoured with phase barriers, see [ShardPlan].
+/// @param <Self> The updater class
+/// @param <Upd> The updated class
+/// @param <SC> The structured computation class
+@NullMarked
+public interface ShardedUpdater<
+        Self extends Updater<Self, Upd, SC>,
+        Upd extends Updated,
+        SC extends StructuredComputation<Self, Upd, SC>> extends Updater<Self, Upd, SC> {
+
+    /// Scheduler that runs the frames of this updater in the lanes of the shards.
+    ///
+    /// Implementations should create the scheduler once, together with the graph.
+    /// @return The scheduler
+    ShardScheduler<SC> shardScheduler();
+
+    /// Runs a frame over the current [juanmanuel.tea.graph.ExecutionPlan] of the graph, scheduling its first phase in
+    /// the lanes of the [#shardScheduler()].
+    ///
+    /// The deferred changes are applied first, see [#applyDeferredChanges()].
+    ///
+    /// Returns once the first phase is scheduled. Use [Frame#completion()] to know when every computation has finished.
+    /// @return The frame
+    @Override
+    default Frame<SC> runFrame() {
+        applyDeferredChanges();
+
+        var frame = newFrame();
+        shardScheduler().start(this, frame);
+        frame.finished(null);
+        return frame;
+    }
+}
@@ -1,7 +1,5 @@
 package juanmanuel.tea.components;
 
-import juanmanuel.tea.graph.ApplicationEdge;
-import juanmanuel.tea.graph.Graph;
 import juanmanuel.tea.graph.Vertex;
 import juanmanuel.tea.graph.operation_failures.FailureResults;
 import juanmanuel.tea.graph.operation_failures.vertex.ChildAdditionFailure;
@@ -14,6 +12,7 @@ import org.jspecify.annotations.NullMarked;
 import java.util.*;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -35,7 +34,13 @@ public abstract class StructuredComputation <
         Upd extends Updated,
         Self extends StructuredComputation<Upr, Upd, Self>
         > extends Vertex<Self> {
-    protected final Map<StructuredComputation<Upr, Upd, Self>, Boolean> previousComputations = new HashMap<>();
+    /// Number of the frame in which the counter was last armed in the high 32 bits, and the number of parents that have
+    /// not finished their computation in that frame in the low 32 bits.
+    ///
+    /// The counter is re-armed by the first parent that finishes in a new frame, so there is no reset pass per frame.
+    private final AtomicLong pendingPredecessors = new AtomicLong(pack(-1, 0));
+    /// Exponentially weighted moving average of the duration of the updates of this computation, in nanoseconds.
+    private volatile long cost;
     private final Upd updated;
     private final Class<Upr> updaterClass;
 
@@ -66,8 +71,48 @@ public abstract class StructuredComputation <
         this(updaterClass, updated, 1);
     }
 
-    protected Map<StructuredComputation<Upr, Upd, Self>, Boolean> previousComputations() {
-        return previousComputations;
+    private static long pack(int frame, int pending) {
+        return ((long) frame << 32) | (pending & 0xFFFFFFFFL);
+    }
+
+    /// Notifies that one of the parents of this computation has finished in the given frame.
+    ///
+    /// Returns true for exactly one call per frame: the one made by the last parent to finish.
+    /// @param frame The number of the frame
+    /// @param predecessors The number of parents of this computation in the frame
+    /// @return True if this computation has no pending parents left in the frame and can be computed
+    final boolean predecessorFinished(int frame, int predecessors) {
+        while (true) {
+            long current = pendingPredecessors.get();
+            int pending = (int) (current >>> 32) == frame ? (int) current : predecessors;
+            if (pending <= 0)
+                return false;
+
+            if (pendingPredecessors.compareAndSet(current, pack(frame, pending - 1)))
+                return pending == 1;
+        }
+    }
+
+    /// @param frame The number of the frame
+    /// @param predecessors The number of parents of this computation in the frame
+    /// @return The number of parents that have not finished yet in the given frame
+    public final int pendingPredecessors(int frame, int predecessors) {
+        long current = pendingPredecessors.get();
+        return (int) (current >>> 32) == frame ? (int) current : predecessors;
+    }
+
+    /// Records the duration of an update of this computation in its moving average. Every sample weighs 1/8 of the
+    /// average, so the cost follows changes in a few frames while smoothing out single slow updates.
+    /// @param nanos The duration of the update, in nanoseconds
+    final void recordCost(long nanos) {
+        long current = cost;
+        cost = current == 0 ? Math.max(nanos, 1) : Math.max(current + (nanos - current) / 8, 1);
+    }
+
+    /// @return The moving average of the duration of the updates of this computation in nanoseconds, or `0` if it has
+    /// not been updated yet
+    public final long cost() {
+        return cost;
     }
 
     public Upd updated() {
@@ -121,8 +166,7 @@ public abstract class StructuredComputation <
      * This method is used to find a computation in the graph that matches the given updated object.
      * It first checks if the updated object of this computation is the same as the given updated object.
      * If it is, it returns an Optional containing this computation.
-     * If it is not, it goes through all the vertices in the graph and filters out the computations that have the same updater class and updated object as this computation.
-     * It then returns the first computation that matches these conditions, or an empty Optional if no such computation is found.
+     * If it is not, it looks the updated object up in the computation index of the updater.
      *
      * @param updated The updated object to find the computation of.
      * @return An Optional containing the computation that matches the given updated object, or an empty Optional if no such computation is found.
@@ -131,10 +175,7 @@ public abstract class StructuredComputation <
         if (this.updated == updated)
             return Optional.of(self());
 
-        return updater.graph().vertexSet()
-                .stream()
-                .filter(c -> Objects.equals(c.updated(), updated))
-                .findFirst();
+        return updater.computationIndex().find(updated);
     }
 //
 //    /**
@@ -204,9 +245,8 @@ public abstract class StructuredComputation <
     }
 
     /// This method is called before the computation starts. It performs these tasks:
-    /// 1. It resets the previous computations by setting their values to false.
-    /// 2. It notifies the children that the computation has started by calling their onParentComputeStarts method.
-    /// 3. It notifies the parents that the computation has started by calling their onChildComputeStarts method.
+    /// 1. It notifies the children that the computation has started by calling their onParentComputeStarts method.
+    /// 2. It notifies the parents that the computation has started by calling their onChildComputeStarts method.
     ///
     /// The method uses a StructuredTaskScope to ensure that all tasks are completed, even if an exception is thrown.
     /// If any task throws an exception, the StructuredTaskScope will be shut down and the exception will be rethrown.
@@ -216,26 +256,17 @@ public abstract class StructuredComputation <
     protected void onStartCompute(Upr updater) throws InterruptedException {
         Objects.requireNonNull(updater);
         try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            // Reset the previous computations
-            for (var previousComputation : previousComputations.entrySet())
-                scope.fork(() -> {
-                    previousComputation.setValue(false);
-                    return null;
-                });
-
             // Notify the children that the computation has started
-            for (Self child : updater.graph().childrenOf(self()))
-                scope.fork(() -> {
-                    child.onParentComputeStarts(self(), updater);
-                    return null;
-                });
+            updater.graph().forEachChild(self(), child -> scope.fork(() -> {
+                child.onParentComputeStarts(self(), updater);
+                return null;
+            }));
 
             // Notify the parents that the computation has started
-            for (Self parent : updater.graph().parentsOf(self()))
-                scope.fork(() -> {
-                    parent.onChildComputeStarts(self(), updater);
-                    return null;
-                });
+            updater.graph().forEachParent(self(), parent -> scope.fork(() -> {
+                parent.onChildComputeStarts(self(), updater);
+                return null;
+            }));
             scope.join();
         }
     }
@@ -253,18 +284,16 @@ public abstract class StructuredComputation <
         Objects.requireNonNull(updater);
         try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
             // Notify the children that the computation has finished
-            for (var child : updater.graph().childrenOf(self()))
-                scope.fork(() -> {
-                    child.onParentComputeFinished(self(), updater);
-                    return null;
-                });
+            updater.graph().forEachChild(self(), child -> scope.fork(() -> {
+                child.onParentComputeFinished(self(), updater);
+                return null;
+            }));
 
             // Notify the parents that the computation has finished
-            for (var parent : updater.graph().parentsOf(self()))
-                scope.fork(() -> {
-                    parent.onChildComputeFinished(self(), updater);
-                    return null;
-                });
+            updater.graph().forEachParent(self(), parent -> scope.fork(() -> {
+                parent.onChildComputeFinished(self(), updater);
+                return null;
+            }));
             scope.join();
         }
     }
@@ -404,6 +433,62 @@ public abstract class StructuredComputation <
         return addParent(sComp, updater.graph());
     }
 
+    /// Records in the [Updater#commandBuffer()] that a computation containing the given updated object must be set as a
+    /// child of this computation, as [#setAfter(Updated, Updater)] does, once the current frame finishes.
+    ///
+    /// The graph is not modified, so it can be called from the computations of a frame.
+    /// @param updated The updated object that will execute after this computation.
+    /// @param updater The updater that contains the graph.
+    /// @return The computation that will be set as a child.
+    public Self deferSetAfter(Upd updated, Upr updater) {
+        var commands = updater.commandBuffer();
+        Self sComp = commands.computationOf(updated);
+        commands.setParent(sComp, self());
+        return sComp;
+    }
+
+    /// Records in the [Updater#commandBuffer()] that a computation containing the given updated object must be added as
+    /// a child of this computation, as [#addAfter(Updated, Updater)] does, once the current frame finishes.
+    ///
+    /// The graph is not modified, so it can be called from the computations of a frame.
+    /// @param updated The updated object that will execute after this computation.
+    /// @param updater The updater that contains the graph.
+    /// @return The computation that will be added as a child.
+    public Self deferAddAfter(Upd updated, Upr updater) {
+        var commands = updater.commandBuffer();
+        Self sComp = commands.computationOf(updated);
+        commands.connect(self(), sComp);
+        return sComp;
+    }
+
+    /// Records in the [Updater#commandBuffer()] that a computation containing the given updated object must be set as a
+    /// parent of this computation, as [#setBefore(Updated, Updater)] does, once the current frame finishes.
+    ///
+    /// The graph is not modified, so it can be called from the computations of a frame.
+    /// @param updated The updated object that will execute before this computation.
+    /// @param updater The updater that contains the graph.
+    /// @return The computation that will be set as a parent.
+    public Self deferSetBefore(Upd updated, Upr updater) {
+        var commands = updater.commandBuffer();
+        Self sComp = commands.computationOf(updated);
+        commands.setChild(sComp, self());
+        return sComp;
+    }
+
+    /// Records in the [Updater#commandBuffer()] that a computation containing the given updated object must be added as
+    /// a parent of this computation, as [#addBefore(Updated, Updater)] does, once the current frame finishes.
+    ///
+    /// The graph is not modified, so it can be called from the computations of a frame.
+    /// @param updated The updated object that will execute before this computation.
+    /// @param updater The updater that contains the graph.
+    /// @return The computation that will be added as a parent.
+    public Self deferAddBefore(Upd updated, Upr updater) {
+        var commands = updater.commandBuffer();
+        Self sComp = commands.computationOf(updated);
+        commands.connect(sComp, self());
+        return sComp;
+    }
+
     public Result<Void, Void> setParallel(Upd updated, Upr updater) {
         Objects.requireNonNull(updated);
         Objects.requireNonNull(updater);
@@ -442,20 +527,18 @@ public abstract class StructuredComputation <
      * @return A set containing the updated objects that are children of this UpdaterComputation.
      */
     public Set<Upd> updatedChildren(Upr updater) {
-        return updater.graph().childrenOf(self())
-                .stream()
-                .map(StructuredComputation::updated)
-                .collect(Collectors.toSet());
+        Set<Upd> children = HashSet.newHashSet(updater.graph().childCount(self()));
+        updater.graph().forEachChild(self(), child -> children.add(child.updated()));
+        return children;
     }
 
     /**
      * @return A set containing the Updated objects that are parents of this UpdaterComputation.
      */
     public Set<Upd> updatedParents(Upr updater) {
-        return updater.graph().parentsOf(self())
-                .stream()
-                .map(StructuredComputation::updated)
-                .collect(Collectors.toSet());
+        Set<Upd> parents = HashSet.newHashSet(updater.graph().parentCount(self()));
+        updater.graph().forEachParent(self(), parent -> parents.add(parent.updated()));
+        return parents;
     }
 
     /**
@@ -486,11 +569,13 @@ public abstract class StructuredComputation <
      * @return Whether the given Updated object is contained in a descendant of this UpdaterComputation.
      */
     public final boolean isUpdatedAfter(Upd updated, Upr updater) {
-        return updatedDescendants(updater).contains(updated);
+        var computation = updater.computationIndex().get(updated);
+        return computation != null && updater.graph().isReachable(self(), computation);
     }
 
     public final boolean isUpdatedBefore(Upd updated, Upr updater) {
-        return updatedAncestors(updater).contains(updated);
+        var computation = updater.computationIndex().get(updated);
+        return computation != null && updater.graph().isReachable(computation, self());
     }
 
     public final boolean isChildComputation(Upd updated, Upr updater) {
@@ -508,10 +593,8 @@ public abstract class StructuredComputation <
      * @return Whether the given Updated object is contained in a sibling of this UpdaterComputation.
      */
     public boolean isUpdatedParallel(Upd updated, Upr updater) {
-        return updater.graph().fullSiblingsOf(self())
-                .stream()
-                .map(this.computationClass()::cast)
-                .anyMatch(c -> c.updated() == updated);
+        var computation = updater.computationIndex().get(updated);
+        return computation != null && updater.graph().siblingIndex().areFullSiblings(self(), computation);
     }
 
     protected void onChildComputeStarts(Self child, Upr updater) {
@@ -540,32 +623,6 @@ public abstract class StructuredComputation <
         return this.updaterClass().equals(other.updaterClass()) && this.updatedClass().equals(other.updatedClass());
     }
 
-    @Override
-    protected void onConnectChild(Self child, Graph<?, ApplicationEdge> graph) throws RuntimeException {
-        super.onConnectChild(child, graph);
-        System.out.println("Connected child: " + child); // FIXME: Delete, just for testing
-    }
-
-    @Override
-    protected void onDisconnectChild(Self child, Graph<?, ? extends ApplicationEdge> graph) throws RuntimeException {
-        super.onDisconnectChild(child, graph);
-        System.out.println("Disconnected child: " + child); // FIXME: Delete, just for testing
-    }
-
-    @Override
-    protected void onConnectParent(Self parent, Graph<?, ApplicationEdge> graph) throws RuntimeException {
-        super.onConnectParent(parent, graph);
-        System.out.println("Connected parent: " + parent); // FIXME: Delete, just for testing
-        previousComputations.put(parent, false);
-    }
-
-    @Override
-    protected void onDisconnectParent(Self parent, Graph<?, ? extends ApplicationEdge> graph) throws RuntimeException {
-        super.onDisconnectParent(parent, graph);
-        System.out.println("Disconnected parent: " + parent); // FIXME: Delete, just for testing
-        previousComputations.remove(parent);
-    }
-
     @Override
     public String toString() {
         return "StructuredComputation{" +
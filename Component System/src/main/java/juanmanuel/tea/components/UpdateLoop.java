@@ -0,0 +1,295 @@
+package juanmanuel.tea.components;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/// Fixed time step loop that drives the frames of an [Updater].
+///
+/// The loop measures the elapsed time in nanoseconds and accumulates it. Every time the accumulator holds a whole time
+/// step, a frame is run and the time step is consumed. To avoid falling further behind when frames take longer than the
+/// time step, at most [#maxSubsteps()] frames are run per iteration, and the rest of the accumulated time is dropped.
+///
+/// After running its frames, the loop passes the remaining fraction of a time step, the interpolation alpha in
+/// `[0, 1)`, to [Updater#interpolateUpdated(double)] so the updated objects can blend their previous and current state.
+/// The updated objects are only interpolated when no frame is running, so interpolation never races with their updates.
+/// If the last frame is still running, the loop wakes up as soon as it finishes to interpolate.
+///
+/// A frame is finished when all its computations are, see [Frame#completion()]. Frames never overlap: when a frame is
+/// due while the previous one is still running, the [LateFramePolicy] of the loop decides whether it is skipped, queued
+/// or waited for.
+///
+/// The loop runs on its own thread until [#stop()] or [#close()] is called. Failures are passed to the failure handler
+/// of the loop, see [#onFailure(Consumer)]: a frame whose computations fail is reported and the loop goes on, while an
+/// exception thrown by the updater itself, when starting a frame or interpolating, is reported and stops the loop.
+@NullMarked
+public final class UpdateLoop implements AutoCloseable {
+    private final Updater<?, ?, ?> updater;
+    private final long timestep;
+    private final int maxSubsteps;
+    private final LateFramePolicy lateFramePolicy;
+    private volatile boolean running;
+    private volatile double alpha;
+    private volatile long frames;
+    private volatile long droppedSteps;
+    private volatile long skippedFrames;
+    private final AtomicLong failedFrames = new AtomicLong();
+    private volatile @Nullable Consumer<? super Throwable> failureHandler;
+    private @Nullable Thread thread;
+    private @Nullable Frame<?> current;
+    private @Nullable Frame<?> awaitedForInterpolation;
+    private boolean queued;
+
+    /// Creates a loop that waits for late frames, see [LateFramePolicy#BLOCK].
+    /// @param updater The updater whose frames are run
+    /// @param timestep The duration of a frame, in nanoseconds
+    /// @param maxSubsteps The maximum number of frames run to catch up in a single iteration of the loop
+    /// @throws IllegalArgumentException If the time step or the maximum number of substeps is not positive
+    public UpdateLoop(Updater<?, ?, ?> updater, long timestep, int maxSubsteps) {
+        this(updater, timestep, maxSubsteps, LateFramePolicy.BLOCK);
+    }
+
+    /// @param updater The updater whose frames are run
+    /// @param timestep The duration of a frame, in nanoseconds
+    /// @param maxSubsteps The maximum number of frames run to catch up in a single iteration of the loop
+    /// @param lateFramePolicy What to do when a frame is due while the previous one is still running
+    /// @throws IllegalArgumentException If the time step or the maximum number of substeps is not positive
+    public UpdateLoop(Updater<?, ?, ?> updater, long timestep, int maxSubsteps, LateFramePolicy lateFramePolicy) {
+        if (timestep <= 0)
+            throw new IllegalArgumentException("The time step must be positive");
+
+        if (maxSubsteps <= 0)
+            throw new IllegalArgumentException("The maximum number of substeps must be positive");
+
+        this.updater = Objects.requireNonNull(updater);
+        this.timestep = timestep;
+        this.maxSubsteps = maxSubsteps;
+        this.lateFramePolicy = Objects.requireNonNull(lateFramePolicy);
+    }
+
+    /// Starts the loop in a new thread.
+    /// @return This loop
+    /// @throws IllegalStateException If the loop was already started
+    public synchronized UpdateLoop start() {
+        if (thread != null)
+            throw new IllegalStateException("The loop was already started");
+
+        running = true;
+        thread = Thread.ofPlatform()
+                .name("update-loop-" + updater)
+                .daemon()
+                .start(this::run);
+        return this;
+    }
+
+    /// Sets the handler of the failures of the loop, by default the uncaught exception handler of its thread.
+    /// @param handler Receives the failure of every failed frame, and the exception that stopped the loop, if any. It
+    /// may be called from the threads running the computations
+    /// @return This loop
+    public UpdateLoop onFailure(Consumer<? super Throwable> handler) {
+        failureHandler = Objects.requireNonNull(handler);
+        return this;
+    }
+
+    private void run() {
+        try {
+            loop();
+        } catch (Throwable t) {
+            report(t);
+        } finally {
+            running = false;
+
+            // Do not leave a frame running after the loop has finished
+            var last = current;
+            if (last != null)
+                awaitQuietly(last);
+        }
+    }
+
+    private void loop() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            runQueuedFrame();
+
+            int substeps = 0;
+            while (running && accumulator >= timestep && substeps < maxSubsteps) {
+                step();
+                accumulator -= timestep;
+                substeps++;
+            }
+
+            // Catch-up limit reached, drop the backlog instead of spiralling
+            if (accumulator >= timestep) {
+                droppedSteps += accumulator / timestep;
+                accumulator %= timestep;
+            }
+
+            alpha = (double) accumulator / timestep;
+            var frame = current;
+            if (frame == null || frame.isDone()) {
+                updater.interpolateUpdated(alpha);
+            } else if (frame != awaitedForInterpolation) {
+                awaitedForInterpolation = frame;
+                var loopThread = Thread.currentThread();
+                frame.completion().whenComplete((_, _) -> LockSupport.unpark(loopThread));
+            }
+
+            if (running)
+                LockSupport.parkNanos(this, timestep - accumulator);
+        }
+    }
+
+    /// Runs a frame, unless the previous one is still running and the [LateFramePolicy] says otherwise.
+    private void step() {
+        var previous = current;
+        if (previous != null && !previous.isDone()) {
+            switch (lateFramePolicy) {
+                case SKIP -> {
+                    skippedFrames++;
+                    return;
+                }
+                case QUEUE_ONE -> {
+                    if (queued) {
+                        skippedFrames++;
+                    } else {
+                        queued = true;
+                        var loopThread = Thread.currentThread();
+                        previous.completion().whenComplete((_, _) -> LockSupport.unpark(loopThread));
+                    }
+                    return;
+                }
+                case BLOCK -> awaitQuietly(previous);
+            }
+        }
+
+        runFrame();
+    }
+
+    /// Runs the frame queued by [LateFramePolicy#QUEUE_ONE] if the previous frame has finished.
+    private void runQueuedFrame() {
+        var previous = current;
+        if (queued && (previous == null || previous.isDone())) {
+            queued = false;
+            runFrame();
+        }
+    }
+
+    private void runFrame() {
+        var frame = updater.runFrame();
+        current = frame;
+        frames++;
+        frame.completion().whenComplete((_, failure) -> {
+            if (failure != null) {
+                failedFrames.incrementAndGet();
+                report(failure);
+            }
+        });
+    }
+
+    private void report(Throwable failure) {
+        var handler = failureHandler;
+        if (handler != null) {
+            handler.accept(failure);
+            return;
+        }
+
+        var t = Objects.requireNonNullElseGet(thread, Thread::currentThread);
+        t.getUncaughtExceptionHandler().uncaughtException(t, failure);
+    }
+
+    private void awaitQuietly(Frame<?> frame) {
+        try {
+            frame.await();
+        } catch (InterruptedException e) {
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /// Stops the loop. The frame being run, if any, is completed. Does not wait for the thread of the loop to finish.
+    public void stop() {
+        running = false;
+        var t = thread;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    /// Waits for the thread of the loop to finish.
+    /// @throws InterruptedException If the current thread is interrupted while waiting
+    public void awaitTermination() throws InterruptedException {
+        var t = thread;
+        if (t != null)
+            t.join();
+    }
+
+    /// Stops the loop and waits for its thread to finish.
+    @Override
+    public void close() {
+        stop();
+        try {
+            awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /// @return True if the loop has been started and has neither been stopped nor failed
+    public boolean isRunning() {
+        return running;
+    }
+
+    /// @return The duration of a frame, in nanoseconds
+    public long timestep() {
+        return timestep;
+    }
+
+    /// @return The maximum number of frames run to catch up in a single iteration of the loop
+    public int maxSubsteps() {
+        return maxSubsteps;
+    }
+
+    /// @return The fraction of a time step accumulated but not simulated yet, in `[0, 1)`
+    public double interpolationAlpha() {
+        return alpha;
+    }
+
+    /// @return The number of frames run by the loop
+    public long frames() {
+        return frames;
+    }
+
+    /// @return The policy applied when a frame is due while the previous one is still running
+    public LateFramePolicy lateFramePolicy() {
+        return lateFramePolicy;
+    }
+
+    /// @return The number of frames not run because the previous frame was still running
+    public long skippedFrames() {
+        return skippedFrames;
+    }
+
+    /// @return The number of frames finished with a failure
+    public long failedFrames() {
+        return failedFrames.get();
+    }
+
+    /// @return The number of time steps dropped because the catch-up limit was reached
+    public long droppedSteps() {
+        return droppedSteps;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateLoop[updater=" + updater + ", timestep=" + timestep + "ns, maxSubsteps=" + maxSubsteps + "]";
+    }
+}
@@ -1,3 +1,11 @@
 package juanmanuel.tea.components;
 
-public interface Updated {}
+public interface Updated {
+
+    /// Called by the [UpdateLoop] after running its frames, with the fraction of a time step that has elapsed but has
+    /// not been simulated yet. Can be used to blend the previous and the current state when rendering.
+    ///
+    /// Does nothing by default.
+    /// @param alpha The interpolation alpha, in `[0, 1)`
+    default void interpolate(double alpha) {}
+}
@@ -1,13 +1,14 @@
 package juanmanuel.tea.components;
 
 import juanmanuel.tea.graph.ApplicationEdge;
+import juanmanuel.tea.graph.ExecutionPlan;
 import juanmanuel.tea.graph.Graph;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.StructuredTaskScope;
-import java.util.concurrent.TimeUnit;
 
 /// Holds the logic to update an object contained in a computation. And organizes the computations of the updated objects
 /// in a graph.
@@ -19,6 +20,12 @@ public interface Updater<
         Self extends Updater<Self, Upd, SC>,
         Upd extends Updated,
         SC extends StructuredComputation<Self, Upd, SC>> {
+    /// Duration of a frame of the loop started by [#start()], in nanoseconds.
+    long DEFAULT_TIMESTEP = 1_000_000_000L / 60;
+
+    /// Maximum number of frames the loop started by [#start()] runs to catch up in a single iteration.
+    int DEFAULT_MAX_SUBSTEPS = 5;
+
     Class<Self> updaterClass();
     Class<Upd> updatedClass();
     Class<SC> computationClass();
@@ -50,11 +57,23 @@ public interface Updater<
     /// @return The graph
     Graph<SC, ApplicationEdge> graph();
 
+    /// Index of the computations of the [#graph()] by their updated object.
+    ///
+    /// Implementations should create the index once, together with the graph.
+    /// @return The index
+    ComputationIndex<Upd, SC> computationIndex();
+
+    /// Buffer of the structural changes of the [#graph()] requested during a frame, applied before the next frame.
+    ///
+    /// Implementations should create the buffer once, together with the graph.
+    /// @return The buffer
+    CommandBuffer<Self, Upd, SC> commandBuffer();
+
     /// Checks if the graph contains the computation of the updated object
     /// @param updated The updated object
     /// @return True if the graph contains the computation
     default boolean contains(Upd updated) {
-        return graph().vertexSet().stream().anyMatch(computation -> computation.updated().equals(updated));
+        return computationIndex().contains(updated);
     }
 
     /**
@@ -66,106 +85,298 @@ public interface Updater<
         return updatedClass().isAssignableFrom(object.getClass());
     }
 
+    /// Starts a new frame over the current [ExecutionPlan] of the graph.
+    /// @return The new frame
+    default Frame<SC> newFrame() {
+        return new Frame<>(graph().executionPlan());
+    }
+
+    /// Computes the computation in a new frame, and then schedules the computations that depend on it.
+    /// @param computation The computation to compute
+    /// @return The frame, completed when the computation and every computation released by it have finished
+    /// @throws InterruptedException If the computation is interrupted
+    default Frame<SC> compute(SC computation) throws InterruptedException {
+        var frame = newFrame();
+        Throwable failure = null;
+        try {
+            compute(computation, frame);
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            frame.finished(failure);
+        }
+        return frame;
+    }
+
     /// Computes the computation and notifies the children and parents when the computation starts and finishes.
     /// @param computation The computation to compute
+    /// @param frame The frame the computation belongs to
     /// @throws InterruptedException If the computation is interrupted
-    default void compute(SC computation) throws InterruptedException {
+    default void compute(SC computation, Frame<SC> frame) throws InterruptedException {
         Objects.requireNonNull(computation);
-        if (!graph().containsVertex(computation))
+        Objects.requireNonNull(frame);
+        if (frame.plan().idOf(computation) < 0)
             throw new IllegalArgumentException("The computation is not part of this updater's graph.");
 
-        onStartCompute(computation);
+        onStartCompute(computation, frame);
+        measuredUpdate(computation);
+        onFinishCompute(computation, frame);
+    }
+
+    /// Computes the computation and notifies the children and parents when the computation starts and finishes, without
+    /// releasing the children: the caller is responsible for computing them afterwards.
+    ///
+    /// Used to run several computations in a single task, in an order that respects their dependencies.
+    /// @param computation The computation to compute
+    /// @param frame The frame the computation belongs to
+    /// @throws InterruptedException If the computation is interrupted
+    default void computeInline(SC computation, Frame<SC> frame) throws InterruptedException {
+        onStartCompute(computation, frame);
+        measuredUpdate(computation);
+        notifyFinishCompute(computation, frame);
+    }
+
+    /// Updates the computation, recording the duration of the update in its [StructuredComputation#cost()].
+    /// @param computation The computation to update
+    private void measuredUpdate(SC computation) {
+        long start = System.nanoTime();
         update(computation);
-        onFinishCompute(computation);
+        computation.recordCost(System.nanoTime() - start);
     }
 
-    /// Computes the computation if the previous computations have notified that they have finished.
+    /// Notifies the computation that one of its parents has finished in the frame, and computes it if that was the last
+    /// parent it was waiting for. A computation is computed at most once per frame.
     /// @param computation The computation to compute
+    /// @param frame The frame the computation belongs to
+    /// @return True if the computation was computed
     /// @throws InterruptedException If the computation is interrupted
-    default void computeIfReady(SC computation) throws InterruptedException {
-        if (computation.previousComputations().values().stream().allMatch(b -> b)) compute(computation);
+    default boolean computeIfReady(SC computation, Frame<SC> frame) throws InterruptedException {
+        var plan = frame.plan();
+        if (!computation.predecessorFinished(frame.number(), plan.predecessorCount(plan.idOf(computation))))
+            return false;
+
+        compute(computation, frame);
+        return true;
     }
 
-    /// Resets the state of the previous computations and notifies the children and parents that the computation has started.
+    /// Notifies the children and parents that the computation has started.
+    ///
+    /// The children and parents are taken from the [ExecutionPlan] of the frame.
     /// @param computation The computation that has started
+    /// @param frame The frame the computation belongs to
     /// @throws InterruptedException
     @SuppressWarnings("unchecked")
-    default void onStartCompute(SC computation) throws InterruptedException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            // Reset the previous computations
-            for (var previousComputation : computation.previousComputations().entrySet())
-                scope.fork(() -> {
-                    previousComputation.setValue(false);
-                    return null;
-                });
-
-            // Notify the children that the computation has started
-            for (var child : graph().childrenOf(computation))
-                scope.fork(() -> {
-                    child.previousComputations().computeIfPresent(computation, (_, _) -> false);
-                    child.onParentComputeStarts(computation, (Self) this);
-                    return null;
-                });
-
-            // Notify the parents that the computation has started
-            for (var parent : graph().parentsOf(computation))
-                scope.fork(() -> {
-                    parent.onChildComputeStarts(computation, (Self) this);
-                    return null;
-                });
-            scope.join();
+    default void onStartCompute(SC computation, Frame<SC> frame) throws InterruptedException {
+        var plan = frame.plan();
+        int id = plan.idOf(computation);
+
+        // Notify the children that the computation has started
+        for (int i = 0, n = plan.successorCount(id); i < n; i++)
+            plan.vertex(plan.successor(id, i)).onParentComputeStarts(computation, (Self) this);
+
+        // Notify the parents that the computation has started
+        for (int i = 0, n = plan.predecessorCount(id); i < n; i++)
+            plan.vertex(plan.predecessor(id, i)).onChildComputeStarts(computation, (Self) this);
+    }
+
+    /// Notifies the children and parents that the computation has finished, and schedules in the [#frameExecutor()]
+    /// the children that are not waiting for any other parent.
+    ///
+    /// The children and parents are taken from the [ExecutionPlan] of the frame.
+    /// @param computation The computation that has finished
+    /// @param frame The frame the computation belongs to
+    /// @throws InterruptedException
+    default void onFinishCompute(SC computation, Frame<SC> frame) throws InterruptedException {
+        notifyFinishCompute(computation, frame);
+
+        var plan = frame.plan();
+        int id = plan.idOf(computation);
+        for (int i = 0, n = plan.successorCount(id); i < n; i++) {
+            int childId = plan.successor(id, i);
+            if (plan.vertex(childId).predecessorFinished(frame.number(), plan.predecessorCount(childId)))
+                schedule(plan.vertex(childId), frame);
         }
     }
 
-    /// Notifies the children that the computation has finished and notifies the parents that the computation has finished.
+    /// Notifies the children and parents that the computation has finished.
+    ///
+    /// The children and parents are taken from the [ExecutionPlan] of the frame.
     /// @param computation The computation that has finished
+    /// @param frame The frame the computation belongs to
     /// @throws InterruptedException
     @SuppressWarnings("unchecked")
-    default void onFinishCompute(SC computation) throws InterruptedException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            // Notify the children that the computation has finished
-            for (var child : graph().childrenOf(computation))
-                scope.fork(() -> {
-                    child.previousComputations().computeIfPresent(computation, (_, _) -> true);
-                    child.onParentComputeFinished(computation, (Self) this);
-                    Thread.ofVirtual().start(() -> {
-                        try {
-                            computeIfReady(child);
-                        } catch (InterruptedException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-                    return null;
-                });
-
-            // Notify the parents that the computation has finished
-            for (var parent : graph().parentsOf(computation))
-                scope.fork(() -> {
-                    parent.onChildComputeFinished(computation, (Self) this);
-                    return null;
-                });
-            scope.join();
+    default void notifyFinishCompute(SC computation, Frame<SC> frame) throws InterruptedException {
+        var plan = frame.plan();
+        int id = plan.idOf(computation);
+
+        // Notify the parents that the computation has finished
+        for (int i = 0, n = plan.predecessorCount(id); i < n; i++)
+            plan.vertex(plan.predecessor(id, i)).onChildComputeFinished(computation, (Self) this);
+
+        // Notify the children that the computation has finished
+        for (int i = 0, n = plan.successorCount(id); i < n; i++)
+            plan.vertex(plan.successor(id, i)).onParentComputeFinished(computation, (Self) this);
+    }
+
+    /// Executor that runs the computations of the frames of this updater.
+    /// @return The executor, [FrameExecutor#shared()] by default
+    default FrameExecutor frameExecutor() {
+        return FrameExecutor.shared();
+    }
+
+    /// Schedules the computation of the frame in the [#frameExecutor()].
+    /// @param computation The computation to compute
+    /// @param frame The frame the computation belongs to
+    private void schedule(SC computation, Frame<SC> frame) {
+        execute(frame, frame.plan().idOf(computation), () -> {
+            Throwable failure = null;
+            try {
+                compute(computation, frame);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                frame.finished(failure);
+            }
+        });
+    }
+
+    /// Schedules a chain of the plan of the frame as a single task of the [#frameExecutor()], computing its members one
+    /// after the other. The members of a chain can never run in parallel, so they are not handed off to the executor
+    /// one by one.
+    /// @param component The component of the plan, which must be a chain
+    /// @param frame The frame the chain belongs to
+    private void scheduleChain(int component, Frame<SC> frame) {
+        var plan = frame.plan();
+        execute(frame, plan.componentMember(component, 0), () -> {
+            Throwable failure = null;
+            try {
+                for (int i = 0, n = plan.componentSize(component); i < n; i++)
+                    computeInline(plan.vertex(plan.componentMember(component, i)), frame);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                frame.finished(failure);
+            }
+        });
+    }
+
+    /// Registers a task in the frame and hands it to the [#frameExecutor()], with the priority of the computation it
+    /// starts if the executor orders its tasks. If the executor rejects the task, the frame fails with the rejection.
+    /// @param frame The frame the task belongs to
+    /// @param id The id of the first computation of the task in the plan of the frame
+    /// @param task The task, which must release its count of the frame when it finishes
+    private void execute(Frame<SC> frame, int id, Runnable task) {
+        frame.scheduled();
+        try {
+            var executor = frameExecutor();
+            if (executor.prioritized())
+                executor.execute(task, frame.priority(id));
+            else
+                executor.execute(task);
+        } catch (RuntimeException e) {
+            frame.finished(e);
         }
     }
 
-    default void start() {
-        try (ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1)) {
-            executor.scheduleAtFixedRate(() -> {
-                try (StructuredTaskScope.ShutdownOnFailure scope = new StructuredTaskScope.ShutdownOnFailure()) {
-                    for (SC source : graph().roots()) {
-                        scope.fork(() -> {
-                            compute(source);
-                            return null;
-                        });
-                    }
-                    scope.join();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-            }, 0, 1000 / 60, TimeUnit.MILLISECONDS);
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS); // TODO: Implement a way to stop the computation
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+    /// Applies the changes recorded in the [#commandBuffer()] and the modifications queued in the graph with
+    /// [Graph#enqueue]. Rejected modifications are discarded without discarding the valid ones, and reported to
+    /// [#onDeferredChangesFailed].
+    ///
+    /// Called before a frame starts, so computations can request modifications while the frame reads an immutable plan.
+    /// Never throws: the frame runs over the changes that could be applied.
+    default void applyDeferredChanges() {
+        List<Graph.BatchFailure> rejected = new ArrayList<>();
+        RuntimeException error = null;
+        try {
+            if (!commandBuffer().isEmpty())
+                rejected.addAll(commandBuffer().apply());
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        try {
+            if (graph().hasQueuedMutations())
+                rejected.addAll(graph().applyQueuedMutations());
+        } catch (RuntimeException e) {
+            if (error == null)
+                error = e;
+            else
+                error.addSuppressed(e);
         }
+
+        if (!rejected.isEmpty() || error != null)
+            onDeferredChangesFailed(rejected, error);
+    }
+
+    /// Called before a frame starts if some of the deferred changes could not be applied, see
+    /// [#applyDeferredChanges()].
+    ///
+    /// By default the rejected changes are ignored, and the error is passed to the uncaught exception handler of the
+    /// current thread.
+    /// @param rejected The failures of the rejected changes, in the order they were applied
+    /// @param error The exception thrown while applying the changes, or null if none was thrown
+    default void onDeferredChangesFailed(List<Graph.BatchFailure> rejected, @Nullable RuntimeException error) {
+        if (error != null) {
+            var thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+        }
+    }
+
+    /// Runs a frame over the current [ExecutionPlan] of the graph, scheduling its roots in the [#frameExecutor()].
+    ///
+    /// The weakly connected components of the plan that are chains run as a single task each, see
+    /// [ExecutionPlan#isChain(int)]. The rest release their computations as their parents finish. If the executor is
+    /// [FrameExecutor#prioritized()], the ready computations with the longest critical path start first, see
+    /// [Frame#priority(int)].
+    ///
+    /// The deferred changes are applied first, see [#applyDeferredChanges()].
+    ///
+    /// Returns once the roots are scheduled. Use [Frame#completion()] to know when every computation has finished.
+    /// @return The frame
+    default Frame<SC> runFrame() {
+        applyDeferredChanges();
+
+        // The plan is only recompiled when the graph changed since the previous frame
+        var frame = newFrame();
+        var plan = frame.plan();
+        for (int id = 0, roots = plan.rootCount(); id < roots; id++) {
+            int component = plan.componentOf(id);
+            if (plan.isChain(component) && plan.componentSize(component) > 1)
+                scheduleChain(component, frame);
+            else
+                schedule(plan.vertex(id), frame);
+        }
+        frame.finished(null);
+        return frame;
+    }
+
+    /// Passes the interpolation alpha of the loop to the updated objects of the graph.
+    /// @param alpha The fraction of a time step accumulated but not simulated yet, in `[0, 1)`
+    /// @see Updated#interpolate(double)
+    default void interpolateUpdated(double alpha) {
+        var plan = graph().executionPlan();
+        for (int id = 0, n = plan.size(); id < n; id++)
+            plan.vertex(id).updated().interpolate(alpha);
+    }
+
+    /// Starts an [UpdateLoop] that runs 60 frames per second, catching up at most [#DEFAULT_MAX_SUBSTEPS] frames at once.
+    /// @return The running loop, used to stop it
+    default UpdateLoop start() {
+        return start(DEFAULT_TIMESTEP, DEFAULT_MAX_SUBSTEPS);
+    }
+
+    /// Starts an [UpdateLoop] with the given time step.
+    /// @param timestep The duration of a frame, in nanoseconds
+    /// @param maxSubsteps The maximum number of frames run to catch up in a single iteration of the loop
+    /// @return The running loop, used to stop it
+    default UpdateLoop start(long timestep, int maxSubsteps) {
+        return new UpdateLoop(this, timestep, maxSubsteps).start();
     }
 }
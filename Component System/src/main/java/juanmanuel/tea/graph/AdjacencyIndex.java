@@ -0,0 +1,259 @@
+package juanmanuel.tea.graph;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/// Primitive adjacency of the vertices of a [Graph].
+///
+/// Every vertex has a dense int id in `[0, idBound())`. The ids of removed vertices are recycled by the next additions,
+/// so the id range stays as small as the largest size the graph has had.
+///
+/// The children and parents of every vertex are stored as int ids in two compressed arrays, one per direction, where
+/// every vertex owns a segment with some free slack. A segment that runs out of slack is moved to the end of its array
+/// with twice the capacity, and the arrays are compacted when the abandoned segments take more room than the live
+/// ones. Queries read the arrays directly and do not allocate.
+///
+/// The index is owned and updated by its graph, use [Graph#adjacency()] to obtain it. Like the graph, it must not be
+/// modified while it is being read.
+/// @param <V> The type of the vertices
+@NullMarked
+public final class AdjacencyIndex<V extends Vertex<V>> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<V, Integer> ids = new IdentityHashMap<>();
+    private @Nullable V[] vertices = newVertices(INITIAL_CAPACITY);
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int idBound;
+    private final Segments children = new Segments();
+    private final Segments parents = new Segments();
+
+    /// Neighbour lists of one direction, stored as segments of a shared int array.
+    private static final class Segments {
+        private int[] start = new int[INITIAL_CAPACITY];
+        private int[] size = new int[INITIAL_CAPACITY];
+        private int[] capacity = new int[INITIAL_CAPACITY];
+        private int[] data = new int[INITIAL_CAPACITY * 4];
+        private int end;
+        private int abandoned;
+
+        private void ensureIds(int ids) {
+            if (ids > start.length) {
+                int length = Math.max(ids, start.length * 2);
+                start = Arrays.copyOf(start, length);
+                size = Arrays.copyOf(size, length);
+                capacity = Arrays.copyOf(capacity, length);
+            }
+        }
+
+        private void add(int id, int value) {
+            if (size[id] == capacity[id])
+                relocate(id, Math.max(2, capacity[id] * 2));
+
+            data[start[id] + size[id]++] = value;
+        }
+
+        private boolean remove(int id, int value) {
+            int from = start[id];
+            int last = from + size[id] - 1;
+            for (int i = from; i <= last; i++)
+                if (data[i] == value) {
+                    data[i] = data[last];
+                    size[id]--;
+                    return true;
+                }
+            return false;
+        }
+
+        private boolean contains(int id, int value) {
+            int from = start[id];
+            int to = from + size[id];
+            for (int i = from; i < to; i++)
+                if (data[i] == value)
+                    return true;
+            return false;
+        }
+
+        private void clear(int id) {
+            abandoned += capacity[id];
+            start[id] = 0;
+            size[id] = 0;
+            capacity[id] = 0;
+        }
+
+        private void relocate(int id, int newCapacity) {
+            if (end + newCapacity > data.length) {
+                if (abandoned > end / 2)
+                    compact(start.length);
+
+                if (end + newCapacity > data.length)
+                    data = Arrays.copyOf(data, Math.max(end + newCapacity, data.length * 2));
+            }
+
+            System.arraycopy(data, start[id], data, end, size[id]);
+            abandoned += capacity[id];
+            start[id] = end;
+            capacity[id] = newCapacity;
+            end += newCapacity;
+        }
+
+        /// Moves the live segments to the start of a new array, keeping their slack.
+        private void compact(int ids) {
+            int live = end - abandoned;
+            int[] compacted = new int[Math.max(INITIAL_CAPACITY, live * 2)];
+            int position = 0;
+            for (int id = 0; id < ids; id++) {
+                if (capacity[id] == 0)
+                    continue;
+
+                System.arraycopy(data, start[id], compacted, position, size[id]);
+                start[id] = position;
+                position += capacity[id];
+            }
+            data = compacted;
+            end = position;
+            abandoned = 0;
+        }
+    }
+
+    AdjacencyIndex() {}
+
+    @SuppressWarnings("unchecked")
+    private static <V> @Nullable V[] newVertices(int capacity) {
+        return (V[]) new Vertex<?>[capacity];
+    }
+
+    /// Gives an id to a new vertex, reusing the id of a removed vertex if there is any.
+    /// @param v The vertex added to the graph
+    void vertexAdded(V v) {
+        if (ids.containsKey(v))
+            return;
+
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = idBound++;
+            if (id == vertices.length)
+                vertices = Arrays.copyOf(vertices, vertices.length * 2);
+            children.ensureIds(idBound);
+            parents.ensureIds(idBound);
+        }
+
+        vertices[id] = v;
+        ids.put(v, id);
+    }
+
+    /// Removes a vertex along with its edges and frees its id.
+    /// @param v The vertex removed from the graph
+    void vertexRemoved(V v) {
+        var boxed = ids.remove(v);
+        if (boxed == null)
+            return;
+
+        int id = boxed;
+        for (int i = 0, n = children.size[id]; i < n; i++)
+            parents.remove(children.data[children.start[id] + i], id);
+        for (int i = 0, n = parents.size[id]; i < n; i++)
+            children.remove(parents.data[parents.start[id] + i], id);
+
+        children.clear(id);
+        parents.clear(id);
+        vertices[id] = null;
+
+        if (freeCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        freeIds[freeCount++] = id;
+    }
+
+    /// @param source The source vertex of the edge added to the graph
+    /// @param target The target vertex of the edge added to the graph
+    void edgeAdded(V source, V target) {
+        int s = idOf(source);
+        int t = idOf(target);
+        if (s < 0 || t < 0)
+            throw new GraphOperationException("The vertices of the edge are not in the adjacency index");
+
+        children.add(s, t);
+        parents.add(t, s);
+    }
+
+    /// @param source The source vertex of the edge removed from the graph
+    /// @param target The target vertex of the edge removed from the graph
+    void edgeRemoved(V source, V target) {
+        int s = idOf(source);
+        int t = idOf(target);
+        if (s < 0 || t < 0)
+            return;
+
+        children.remove(s, t);
+        parents.remove(t, s);
+    }
+
+    /// @return The number of vertices in the index
+    public int size() {
+        return ids.size();
+    }
+
+    /// @return An upper bound of the ids in use, so arrays of this length can be indexed by id
+    public int idBound() {
+        return idBound;
+    }
+
+    /// @param v The vertex
+    /// @return The id of the vertex, or -1 if it is not in the graph
+    public int idOf(V v) {
+        var id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    /// @param id The id
+    /// @return The vertex with the given id, or null if the id is not in use
+    public @Nullable V vertex(int id) {
+        return id >= 0 && id < idBound ? vertices[id] : null;
+    }
+
+    /// @param id The id of the vertex
+    /// @return The number of children of the vertex
+    public int outDegree(int id) {
+        return children.size[id];
+    }
+
+    /// @param id The id of the vertex
+    /// @param index The index of the child, in `[0, outDegree(id))`
+    /// @return The id of the child
+    public int child(int id, int index) {
+        return children.data[children.start[id] + index];
+    }
+
+    /// @param id The id of the vertex
+    /// @return The number of parents of the vertex
+    public int inDegree(int id) {
+        return parents.size[id];
+    }
+
+    /// @param id The id of the vertex
+    /// @param index The index of the parent, in `[0, inDegree(id))`
+    /// @return The id of the parent
+    public int parent(int id, int index) {
+        return parents.data[parents.start[id] + index];
+    }
+
+    /// @param source The id of the source vertex
+    /// @param target The id of the target vertex
+    /// @return True if there is an edge from the source to the target
+    public boolean hasEdge(int source, int target) {
+        return children.size[source] <= parents.size[target]
+                ? children.contains(source, target)
+                : parents.contains(target, source);
+    }
+
+    @Override
+    public String toString() {
+        return "AdjacencyIndex[size=" + size() + ", idBound=" + idBound + "]";
+    }
+}
@@ -0,0 +1,101 @@
+package juanmanuel.tea.graph;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.StructuredTaskScope;
+
+/// Runs the callbacks of a graph operation.
+///
+/// The callbacks are collected before running them, so an operation with nothing to notify does not pay for a
+/// [StructuredTaskScope]. Sets of up to the inline limit of the graph are run in the calling thread, in the order they
+/// were added, and only larger sets are forked.
+///
+/// Either way a failing callback stops the callbacks that have not started yet, and its exception is not propagated, as
+/// the operation has already been applied.
+@NullMarked
+final class CallbackDispatch {
+    /// Default maximum number of callbacks of an operation run in the calling thread.
+    static final int DEFAULT_INLINE_LIMIT = 4;
+
+    private static final Runnable[] NO_TASKS = new Runnable[0];
+
+    /// Names of the methods declared by a class and its superclasses below [Graph] and [Vertex].
+    private static final ClassValue<Set<String>> DECLARED_METHODS = new ClassValue<>() {
+        @Override
+        protected Set<String> computeValue(Class<?> type) {
+            Set<String> names = new HashSet<>();
+            for (Class<?> c = type; c != null && c != Graph.class && c != Vertex.class && c != Object.class; c = c.getSuperclass())
+                for (Method method : c.getDeclaredMethods())
+                    if (!Modifier.isStatic(method.getModifiers()))
+                        names.add(method.getName());
+            return Set.copyOf(names);
+        }
+    };
+
+    private final int inlineLimit;
+    private Runnable[] tasks = NO_TASKS;
+    private int size;
+
+    /// @param inlineLimit The maximum number of callbacks run in the calling thread, 0 to fork every callback
+    CallbackDispatch(int inlineLimit) {
+        this.inlineLimit = inlineLimit;
+    }
+
+    /// Checks if the class of the target, or a superclass of it below [Graph] or [Vertex], declares the method.
+    /// @param target The graph or vertex
+    /// @param method The name of the method
+    /// @return True if the method is overridden
+    static boolean overrides(Object target, String method) {
+        return DECLARED_METHODS.get(target.getClass()).contains(method);
+    }
+
+    /// @param task The callback to run
+    /// @return This dispatch
+    CallbackDispatch add(Runnable task) {
+        if (size == tasks.length)
+            tasks = Arrays.copyOf(tasks, Math.max(4, size * 2));
+        tasks[size++] = task;
+        return this;
+    }
+
+    /// @return True if no callback was added
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /// Runs the callbacks, and returns when all of them have finished.
+    void run() {
+        if (size == 0)
+            return;
+
+        if (size <= inlineLimit) {
+            for (int i = 0; i < size; i++) {
+                try {
+                    tasks[i].run();
+                } catch (RuntimeException e) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            for (int i = 0; i < size; i++) {
+                var task = tasks[i];
+                scope.fork(() -> {
+                    task.run();
+                    return null;
+                });
+            }
+
+            scope.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
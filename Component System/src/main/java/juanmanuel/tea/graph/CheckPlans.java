@@ -0,0 +1,78 @@
+package juanmanuel.tea.graph;
+
+import juanmanuel.tea.graph.policy.PolicyState;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/// Keeps the graph stages of the checks of the operations of a [Graph], compiled for each pair of vertex classes.
+///
+/// Checking an operation runs the graph policy, the vertex policies, the graph validations and the vertex validations,
+/// in that order. The graph stages rarely depend on the vertices themselves: while the graph policy has no rules for
+/// specific vertices its state only depends on their classes, and the graph validations of an operation are either
+/// present or not. A plan keeps the outcome of those stages for a pair of classes, so a check only runs the stages that
+/// have rules. The stages of the vertices depend on each vertex and are always run.
+///
+/// Plans are stamped with the generation of the graph rules they were compiled from, and are compiled again once a
+/// policy or validation of the graph changes.
+@NullMarked
+final class CheckPlans {
+    /// The operations of a graph that are checked.
+    enum Operation {
+        ADD_VERTEX, REMOVE_VERTEX, ADD_EDGE, REMOVE_EDGE
+    }
+
+    /// The compiled graph stages of the check of an operation. Operations over a single vertex use its class as both the
+    /// source and the target.
+    /// @param source The class of the source vertex
+    /// @param target The class of the target vertex
+    /// @param generation The generation of the graph rules
+    /// @param policyState The state of the graph policy, or null if it depends on the vertices
+    /// @param validates True if the graph has validations for the operation
+    record Plan(Class<?> source, Class<?> target, long generation, @Nullable PolicyState policyState, boolean validates) {}
+
+    private static final class Table {
+        // The last plan used, as the same classes are usually checked many times in a row
+        private volatile @Nullable Plan last;
+        private final Map<Class<?>, Map<Class<?>, Plan>> plans = new ConcurrentHashMap<>();
+    }
+
+    private final Table[] tables = new Table[Operation.values().length];
+
+    CheckPlans() {
+        for (int i = 0; i < tables.length; i++)
+            tables[i] = new Table();
+    }
+
+    /// @param operation The operation
+    /// @param source The class of the source vertex
+    /// @param target The class of the target vertex
+    /// @param generation The current generation of the graph rules
+    /// @return The plan compiled for the classes with the current rules, or null if there is none
+    @Nullable Plan find(Operation operation, Class<?> source, Class<?> target, long generation) {
+        var table = tables[operation.ordinal()];
+        var plan = table.last;
+        if (plan == null || plan.source() != source || plan.target() != target) {
+            var byTarget = table.plans.get(source);
+            plan = byTarget == null ? null : byTarget.get(target);
+            if (plan == null)
+                return null;
+            table.last = plan;
+        }
+
+        return plan.generation() == generation ? plan : null;
+    }
+
+    /// Keeps a compiled plan, replacing the one compiled for the same classes.
+    /// @param operation The operation
+    /// @param plan The plan
+    /// @return The plan
+    Plan put(Operation operation, Plan plan) {
+        var table = tables[operation.ordinal()];
+        table.plans.computeIfAbsent(plan.source(), _ -> new ConcurrentHashMap<>()).put(plan.target(), plan);
+        table.last = plan;
+        return plan;
+    }
+}
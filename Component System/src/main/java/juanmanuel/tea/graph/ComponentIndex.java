@@ -0,0 +1,257 @@
+package juanmanuel.tea.graph;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.*;
+
+/// Tracks the weakly connected components of a [Graph], the sets of vertices connected ignoring edge directions.
+///
+/// The components are kept in a union-find over the ids of the [AdjacencyIndex]. Adding an edge joins the components of
+/// its vertices in near constant time. Removing an edge or a vertex may split a component, which is only checked when
+/// the index is next queried: the members of the affected component are then regrouped through their remaining edges.
+/// A batch of removals in the same component is therefore resolved at once.
+///
+/// The members of every component are kept in a circular list, so a component can be walked without scanning the
+/// whole graph.
+///
+/// The index is owned and updated by its graph, use [Graph#componentIndex()] to obtain it.
+/// @param <V> The type of the vertices
+@NullMarked
+public final class ComponentIndex<V extends Vertex<V>> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Graph<V, ?> graph;
+    private int[] parent = new int[INITIAL_CAPACITY];
+    private int[] size = new int[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int[] previous = new int[INITIAL_CAPACITY];
+    private final BitSet suspects = new BitSet();
+    private int count;
+
+    ComponentIndex(Graph<V, ?> graph) {
+        this.graph = graph;
+    }
+
+    /// Places a new vertex in a component of its own. Must be called after the vertex is added to the adjacency index.
+    /// @param v The vertex added to the graph
+    synchronized void vertexAdded(V v) {
+        // The id may be the one of a removed vertex still referenced by a component waiting to be split
+        resolve();
+
+        int id = graph.adjacency().idOf(v);
+        if (id < 0)
+            return;
+
+        ensureCapacity(id + 1);
+        singleton(id);
+        count++;
+    }
+
+    /// Takes the vertex out of its component, which may split. Must be called before the vertex is removed from the
+    /// adjacency index.
+    /// @param v The vertex being removed
+    synchronized void vertexRemoved(V v) {
+        int id = graph.adjacency().idOf(v);
+        if (id < 0)
+            return;
+
+        suspects.clear(id);
+        if (next[id] == id) {
+            count--;
+            return;
+        }
+
+        int after = next[id];
+        int before = previous[id];
+        next[before] = after;
+        previous[after] = before;
+        next[id] = id;
+        previous[id] = id;
+        suspects.set(after);
+    }
+
+    /// Joins the components of the vertices of an edge. Must be called after the edge is added to the adjacency index.
+    /// @param source The source vertex of the edge
+    /// @param target The target vertex of the edge
+    synchronized void edgeAdded(V source, V target) {
+        var adjacency = graph.adjacency();
+        int s = adjacency.idOf(source);
+        int t = adjacency.idOf(target);
+        if (s >= 0 && t >= 0 && union(s, t))
+            count--;
+    }
+
+    /// Marks the component of the edge to be checked for a split. Must be called after the edge is removed from the
+    /// adjacency index.
+    /// @param source The source vertex of the edge
+    synchronized void edgeRemoved(V source) {
+        int s = graph.adjacency().idOf(source);
+        if (s >= 0)
+            suspects.set(s);
+    }
+
+    /// Recomputes every component.
+    synchronized void rebuild() {
+        var adjacency = graph.adjacency();
+        int bound = adjacency.idBound();
+        ensureCapacity(bound);
+        suspects.clear();
+        count = 0;
+
+        for (int id = 0; id < bound; id++)
+            if (adjacency.vertex(id) != null) {
+                singleton(id);
+                count++;
+            }
+
+        for (int id = 0; id < bound; id++)
+            if (adjacency.vertex(id) != null)
+                for (int i = 0, n = adjacency.outDegree(id); i < n; i++)
+                    if (union(id, adjacency.child(id, i)))
+                        count--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= parent.length)
+            return;
+
+        int length = Math.max(capacity, parent.length * 2);
+        parent = Arrays.copyOf(parent, length);
+        size = Arrays.copyOf(size, length);
+        next = Arrays.copyOf(next, length);
+        previous = Arrays.copyOf(previous, length);
+    }
+
+    private void singleton(int id) {
+        parent[id] = id;
+        size[id] = 1;
+        next[id] = id;
+        previous[id] = id;
+    }
+
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    /// Joins the components of both ids, splicing their member lists.
+    /// @return True if they were different components
+    private boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB)
+            return false;
+
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+
+        int afterA = next[a];
+        int afterB = next[b];
+        next[a] = afterB;
+        previous[afterB] = a;
+        next[b] = afterA;
+        previous[afterA] = b;
+        return true;
+    }
+
+    /// Regroups the members of every component that may have been split since the last query.
+    private void resolve() {
+        if (suspects.isEmpty())
+            return;
+
+        var adjacency = graph.adjacency();
+        var members = new ArrayList<Integer>();
+        for (int suspect = suspects.nextSetBit(0); suspect >= 0; suspect = suspects.nextSetBit(suspect + 1)) {
+            members.clear();
+            int id = suspect;
+            do {
+                members.add(id);
+                id = next[id];
+            } while (id != suspect);
+
+            for (int member : members) {
+                suspects.clear(member);
+                singleton(member);
+            }
+
+            // The edges of the members stay inside their old component, so only its members are regrouped
+            count += members.size() - 1;
+            for (int member : members)
+                for (int i = 0, n = adjacency.outDegree(member); i < n; i++)
+                    if (union(member, adjacency.child(member, i)))
+                        count--;
+        }
+    }
+
+    /// Gets a representative of the component of a vertex, which is the same for every vertex of the component until
+    /// the graph is modified.
+    /// @param id The id of the vertex in the adjacency index
+    /// @return The id of the representative vertex of its component
+    synchronized int rootOf(int id) {
+        resolve();
+        return find(id);
+    }
+
+    /// @return The number of weakly connected components of the graph
+    public synchronized int componentCount() {
+        resolve();
+        return count;
+    }
+
+    /// @param first A vertex
+    /// @param second Another vertex
+    /// @return True if both vertices are in the graph and are connected by a path, ignoring edge directions
+    public synchronized boolean connected(V first, V second) {
+        var adjacency = graph.adjacency();
+        int a = adjacency.idOf(first);
+        int b = adjacency.idOf(second);
+        if (a < 0 || b < 0)
+            return false;
+
+        resolve();
+        return find(a) == find(b);
+    }
+
+    /// @param v The vertex
+    /// @return The vertices of the component of the given one, including itself, or an empty set if it is not in the
+    /// graph
+    public synchronized Set<V> componentOf(V v) {
+        var adjacency = graph.adjacency();
+        int id = adjacency.idOf(v);
+        if (id < 0)
+            return new HashSet<>();
+
+        resolve();
+        return members(id);
+    }
+
+    /// @return The weakly connected components of the graph, including the ones of a single vertex
+    public synchronized List<Set<V>> components() {
+        resolve();
+        var adjacency = graph.adjacency();
+        var components = new ArrayList<Set<V>>(count);
+        for (int id = 0; id < adjacency.idBound(); id++)
+            if (adjacency.vertex(id) != null && find(id) == id)
+                components.add(members(id));
+        return components;
+    }
+
+    private Set<V> members(int start) {
+        var adjacency = graph.adjacency();
+        var members = new HashSet<V>(size[find(start)] * 2);
+        int id = start;
+        do {
+            members.add(Objects.requireNonNull(adjacency.vertex(id)));
+            id = next[id];
+        } while (id != start);
+        return members;
+    }
+}
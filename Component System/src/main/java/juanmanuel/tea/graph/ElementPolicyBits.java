@@ -0,0 +1,58 @@
+package juanmanuel.tea.graph;
+
+import juanmanuel.tea.graph.internal.PolicyBitsAccess;
+import juanmanuel.tea.graph.policy.PolicyBits;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Supplier;
+
+/// Attaches the [PolicyBits] of vertices and graphs, which are created the first time a policies manager sets a rule
+/// for the element.
+@NullMarked
+final class ElementPolicyBits implements PolicyBitsAccess.Carrier {
+    static final ElementPolicyBits INSTANCE = new ElementPolicyBits();
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Vertex, PolicyBits> VERTEX_BITS =
+            AtomicReferenceFieldUpdater.newUpdater(Vertex.class, PolicyBits.class, "policyBits");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Graph, PolicyBits> GRAPH_BITS =
+            AtomicReferenceFieldUpdater.newUpdater(Graph.class, PolicyBits.class, "policyBits");
+
+    private ElementPolicyBits() {}
+
+    /// Installs the carrier, called when the element classes are initialized.
+    static void install() {
+        PolicyBitsAccess.install(INSTANCE);
+    }
+
+    @Override
+    public @Nullable PolicyBits bitsOf(GraphElement graphElement) {
+        return switch (graphElement) {
+            case Vertex<?> vertex -> vertex.policyBits();
+            case Graph<?, ?> graph -> graph.policyBits();
+            case ApplicationEdge _ -> null;
+        };
+    }
+
+    @Override
+    public @Nullable PolicyBits bitsOf(GraphElement graphElement, Supplier<PolicyBits> factory) {
+        return switch (graphElement) {
+            case Vertex<?> vertex -> {
+                var bits = vertex.policyBits;
+                if (bits == null && !VERTEX_BITS.compareAndSet(vertex, null, bits = factory.get()))
+                    bits = vertex.policyBits;
+                yield bits;
+            }
+            case Graph<?, ?> graph -> {
+                var bits = graph.policyBits;
+                if (bits == null && !GRAPH_BITS.compareAndSet(graph, null, bits = factory.get()))
+                    bits = graph.policyBits;
+                yield bits;
+            }
+            case ApplicationEdge _ -> null;
+        };
+    }
+}
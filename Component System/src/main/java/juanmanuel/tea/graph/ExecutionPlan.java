@@ -0,0 +1,327 @@
+package juanmanuel.tea.graph;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/// Immutable snapshot of the structure of a [Graph] arranged for execution.
+///
+/// The vertices are given dense ids in `[0, size())`. Ids are assigned level by level, so the id order is a topological
+/// order and every level is a contiguous id range: level `0` holds the roots, and a vertex of level `n` has at least one
+/// predecessor in level `n - 1`.
+///
+/// Successors and predecessors are stored as compressed int arrays, so walking the plan does not allocate.
+///
+/// The weakly connected components of the graph, taken from its [ComponentIndex], are numbered in `[0, components())`
+/// in order of their first id, and their members are listed in id order. A component whose vertices have at most one
+/// predecessor and one successor each is a chain: its members in id order are the only order they can run in.
+///
+/// The critical paths of the plan, the longest remaining paths from every vertex to a sink, can be computed for any
+/// weight of the vertices with [#criticalPaths(ToLongFunction)], or cached on the plan for a weight that changes slowly
+/// with [#criticalPaths(ToLongFunction, int)].
+///
+/// A plan is compiled by the graph for a given [Graph#version()] and is reused until a vertex or edge mutation changes
+/// that version. Use [Graph#executionPlan()] to obtain the current plan.
+/// @param <V> The type of the vertices
+@NullMarked
+public final class ExecutionPlan<V extends Vertex<V>> {
+    private final long version;
+    private final V[] vertices;
+    private final Map<V, Integer> ids;
+    private final int[] levelOffsets;
+    private final int[] successorOffsets;
+    private final int[] successors;
+    private final int[] predecessorOffsets;
+    private final int[] predecessors;
+    private final int[] componentOf;
+    private final int[] componentOffsets;
+    private final int[] componentMembers;
+    private final BitSet chains;
+    private volatile @Nullable CachedPaths cachedPaths;
+
+    /// Critical paths cached on the plan, reused for a number of requests before being computed again.
+    private record CachedPaths(long[] paths, int lifetime, AtomicInteger uses) {}
+
+    private ExecutionPlan(long version, V[] vertices, Map<V, Integer> ids, int[] levelOffsets,
+                          int[] successorOffsets, int[] successors, int[] predecessorOffsets, int[] predecessors,
+                          int[] componentOf, int[] componentOffsets, int[] componentMembers, BitSet chains) {
+        this.version = version;
+        this.vertices = vertices;
+        this.ids = ids;
+        this.levelOffsets = levelOffsets;
+        this.successorOffsets = successorOffsets;
+        this.successors = successors;
+        this.predecessorOffsets = predecessorOffsets;
+        this.predecessors = predecessors;
+        this.componentOf = componentOf;
+        this.componentOffsets = componentOffsets;
+        this.componentMembers = componentMembers;
+        this.chains = chains;
+    }
+
+    /// Compiles the plan of the given graph.
+    ///
+    /// The caller must guarantee that the graph is not modified during the compilation.
+    /// @param graph The graph to compile
+    /// @param version The version of the graph being compiled
+    /// @return The plan of the graph
+    @SuppressWarnings("unchecked")
+    static <V extends Vertex<V>, E extends ApplicationEdge> ExecutionPlan<V> compile(Graph<V, E> graph, long version) {
+        var dag = graph.graph;
+        int size = dag.vertexSet().size();
+
+        // Provisional ids in iteration order
+        var provisional = new IdentityHashMap<V, Integer>(size);
+        var provisionalVertices = (V[]) new Vertex<?>[size];
+        for (V v : dag.vertexSet()) {
+            provisionalVertices[provisional.size()] = v;
+            provisional.put(v, provisional.size());
+        }
+
+        int[] pending = new int[size];
+        for (int i = 0; i < size; i++)
+            pending[i] = dag.inDegreeOf(provisionalVertices[i]);
+
+        // Kahn's algorithm, one level at a time. order[newId] = provisional id
+        int[] order = new int[size];
+        int[] levelOffsets = new int[size + 1];
+        int levels = 0;
+        int end = 0;
+        for (int i = 0; i < size; i++)
+            if (pending[i] == 0)
+                order[end++] = i;
+
+        int start = 0;
+        while (start < end) {
+            levelOffsets[levels++] = start;
+            int levelEnd = end;
+            for (int i = start; i < levelEnd; i++)
+                for (E edge : dag.outgoingEdgesOf(provisionalVertices[order[i]])) {
+                    int target = provisional.get(dag.getEdgeTarget(edge));
+                    if (--pending[target] == 0)
+                        order[end++] = target;
+                }
+            start = levelEnd;
+        }
+        levelOffsets[levels] = end;
+
+        if (end != size)
+            throw new GraphOperationException("The graph contains a cycle. Graph is inconsistent");
+
+        var vertices = (V[]) new Vertex<?>[size];
+        var ids = new IdentityHashMap<V, Integer>(size);
+        for (int id = 0; id < size; id++) {
+            vertices[id] = provisionalVertices[order[id]];
+            ids.put(vertices[id], id);
+        }
+
+        int[] successorOffsets = new int[size + 1];
+        int[] predecessorOffsets = new int[size + 1];
+        for (int id = 0; id < size; id++) {
+            successorOffsets[id + 1] = successorOffsets[id] + dag.outDegreeOf(vertices[id]);
+            predecessorOffsets[id + 1] = predecessorOffsets[id] + dag.inDegreeOf(vertices[id]);
+        }
+
+        int[] successors = new int[successorOffsets[size]];
+        int[] predecessors = new int[predecessorOffsets[size]];
+        int[] predecessorCursor = Arrays.copyOf(predecessorOffsets, size);
+        for (int id = 0; id < size; id++) {
+            int cursor = successorOffsets[id];
+            for (E edge : dag.outgoingEdgesOf(vertices[id])) {
+                int target = ids.get(dag.getEdgeTarget(edge));
+                successors[cursor++] = target;
+                predecessors[predecessorCursor[target]++] = id;
+            }
+        }
+
+        // Number the components in order of their first id
+        var adjacency = graph.adjacency();
+        var componentIndex = graph.componentIndex();
+        int[] numbers = new int[adjacency.idBound()];
+        Arrays.fill(numbers, -1);
+        int[] componentOf = new int[size];
+        int components = 0;
+        for (int id = 0; id < size; id++) {
+            int root = componentIndex.rootOf(adjacency.idOf(vertices[id]));
+            if (numbers[root] < 0)
+                numbers[root] = components++;
+            componentOf[id] = numbers[root];
+        }
+
+        int[] componentOffsets = new int[components + 1];
+        for (int id = 0; id < size; id++)
+            componentOffsets[componentOf[id] + 1]++;
+        for (int c = 0; c < components; c++)
+            componentOffsets[c + 1] += componentOffsets[c];
+
+        var chains = new BitSet(components);
+        chains.set(0, components);
+        int[] componentMembers = new int[size];
+        int[] componentCursor = Arrays.copyOf(componentOffsets, components);
+        for (int id = 0; id < size; id++) {
+            componentMembers[componentCursor[componentOf[id]]++] = id;
+            if (successorOffsets[id + 1] - successorOffsets[id] > 1 || predecessorOffsets[id + 1] - predecessorOffsets[id] > 1)
+                chains.clear(componentOf[id]);
+        }
+
+        return new ExecutionPlan<>(version, vertices, ids, Arrays.copyOf(levelOffsets, levels + 1),
+                successorOffsets, successors, predecessorOffsets, predecessors,
+                componentOf, componentOffsets, componentMembers, chains);
+    }
+
+    /// @return The version of the graph this plan was compiled from
+    public long version() {
+        return version;
+    }
+
+    /// @return The number of vertices in the plan
+    public int size() {
+        return vertices.length;
+    }
+
+    /// @return The number of topological levels in the plan
+    public int levels() {
+        return levelOffsets.length - 1;
+    }
+
+    /// @param level The level
+    /// @return The first id of the given level
+    public int levelStart(int level) {
+        return levelOffsets[level];
+    }
+
+    /// @param level The level
+    /// @return The id after the last id of the given level
+    public int levelEnd(int level) {
+        return levelOffsets[level + 1];
+    }
+
+    /// The roots are the ids in `[0, rootCount())`.
+    /// @return The number of vertices without predecessors
+    public int rootCount() {
+        return levels() == 0 ? 0 : levelEnd(0);
+    }
+
+    /// @param id The id of the vertex
+    /// @return The vertex with the given id
+    public V vertex(int id) {
+        return vertices[id];
+    }
+
+    /// @param v The vertex
+    /// @return The id of the vertex in this plan, or `-1` if the vertex is not part of the plan
+    public int idOf(V v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    /// @param id The id of the vertex
+    /// @return The number of predecessors of the vertex
+    public int predecessorCount(int id) {
+        return predecessorOffsets[id + 1] - predecessorOffsets[id];
+    }
+
+    /// @param id The id of the vertex
+    /// @param index The index of the predecessor, in `[0, predecessorCount(id))`
+    /// @return The id of the predecessor
+    public int predecessor(int id, int index) {
+        return predecessors[predecessorOffsets[id] + index];
+    }
+
+    /// @param id The id of the vertex
+    /// @return The number of successors of the vertex
+    public int successorCount(int id) {
+        return successorOffsets[id + 1] - successorOffsets[id];
+    }
+
+    /// @param id The id of the vertex
+    /// @param index The index of the successor, in `[0, successorCount(id))`
+    /// @return The id of the successor
+    public int successor(int id, int index) {
+        return successors[successorOffsets[id] + index];
+    }
+
+    /// @return The number of weakly connected components in the plan
+    public int components() {
+        return componentOffsets.length - 1;
+    }
+
+    /// @param id The id of the vertex
+    /// @return The component of the vertex
+    public int componentOf(int id) {
+        return componentOf[id];
+    }
+
+    /// @param component The component
+    /// @return The number of vertices of the component
+    public int componentSize(int component) {
+        return componentOffsets[component + 1] - componentOffsets[component];
+    }
+
+    /// @param component The component
+    /// @param index The index of the vertex in the component, in `[0, componentSize(component))`
+    /// @return The id of the vertex, members are listed in id order
+    public int componentMember(int component, int index) {
+        return componentMembers[componentOffsets[component] + index];
+    }
+
+    /// @param component The component
+    /// @return True if every vertex of the component has at most one predecessor and one successor
+    public boolean isChain(int component) {
+        return chains.get(component);
+    }
+
+    /// Computes, for every vertex, the weight of the heaviest path from it to a sink, including both ends. Starting the
+    /// vertices with the heaviest paths first keeps the longest dependency chains from delaying the end of a pass.
+    ///
+    /// Walks the plan once in reverse id order.
+    /// @param weight The weight of a vertex, which must not be negative
+    /// @return The critical path weights, indexed by id
+    public long[] criticalPaths(ToLongFunction<? super V> weight) {
+        int size = size();
+        long[] paths = new long[size];
+        for (int id = size - 1; id >= 0; id--) {
+            long longest = 0;
+            for (int i = successorOffsets[id], end = successorOffsets[id + 1]; i < end; i++)
+                longest = Math.max(longest, paths[successors[i]]);
+            paths[id] = weight.applyAsLong(vertices[id]) + longest;
+        }
+        return paths;
+    }
+
+    /// Gets the critical paths for a weight that changes slowly, like a measured cost, caching them on the plan.
+    ///
+    /// The cached paths are reused for a number of requests and then computed again with the current weights. The
+    /// number of requests doubles after every computation, up to the refresh interval, so the paths follow the first
+    /// changes of the weights quickly and are then only computed every `refreshInterval` requests. The same weight must
+    /// be passed on every call.
+    /// @param weight The weight of a vertex, which must not be negative
+    /// @param refreshInterval The maximum number of requests served by the same paths
+    /// @return The critical path weights, indexed by id. The array is shared and must not be modified
+    /// @throws IllegalArgumentException If the refresh interval is not positive
+    public long[] criticalPaths(ToLongFunction<? super V> weight, int refreshInterval) {
+        if (refreshInterval <= 0)
+            throw new IllegalArgumentException("The refresh interval must be positive");
+
+        var cached = cachedPaths;
+        if (cached != null && cached.uses().incrementAndGet() <= cached.lifetime())
+            return cached.paths();
+
+        // Concurrent callers may compute them more than once, any of the results is valid
+        int lifetime = cached == null ? 1 : Math.min(cached.lifetime() * 2, refreshInterval);
+        var paths = criticalPaths(weight);
+        cachedPaths = new CachedPaths(paths, lifetime, new AtomicInteger());
+        return paths;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionPlan[version=" + version + ", size=" + size() + ", levels=" + levels() + ", components=" + components() + "]";
+    }
+}
@@ -2,6 +2,7 @@ package juanmanuel.tea.graph;
 
 import juanmanuel.tea.graph.operation_failures.FailureResults;
 import juanmanuel.tea.graph.policy.GraphOperationsPolicies;
+import juanmanuel.tea.graph.policy.PolicyBits;
 import juanmanuel.tea.graph.policy.PolicyState;
 import juanmanuel.tea.graph.validation.GraphOperationValidator;
 import juanmanuel.tea.utils.Result;
@@ -17,7 +18,10 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.util.*;
-import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -31,6 +35,8 @@ import static juanmanuel.tea.graph.policy.GraphPolicy.VertexModificationGraphPol
 import static juanmanuel.tea.graph.policy.GraphPolicy.VertexModificationGraphPolicy.REMOVE_VERTEX_POLICY;
 import static juanmanuel.tea.graph.policy.PolicyState.ACCEPT;
 import static juanmanuel.tea.graph.policy.VertexPolicy.EdgeModificationVertexPolicy.*;
+import static juanmanuel.tea.graph.policy.VertexPolicy.EffectVertexPolicy.ON_CONNECT_CHILD_POLICY;
+import static juanmanuel.tea.graph.policy.VertexPolicy.EffectVertexPolicy.ON_CONNECT_PARENT_POLICY;
 import static juanmanuel.tea.graph.policy.VertexPolicy.GraphModificationVertexPolicy.ADD_TO_GRAPH_POLICY;
 import static juanmanuel.tea.graph.validation.GraphOperationValidator.EdgeValidation.CREATE_EDGE_VALIDATION;
 import static juanmanuel.tea.graph.validation.GraphOperationValidator.EdgeValidation.REMOVE_EDGE_VALIDATION;
@@ -52,11 +58,39 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
     protected final DirectedAcyclicGraph<V, E> graph;
     @Nullable GraphOperationValidator<V> validationsManager;
     @Nullable GraphOperationsPolicies policiesManager;
-    private final Map<?, Consumer<V>> addVertexCallbacks = new HashMap<>();
-    private final Map<?, Consumer<V>> removeVertexCallbacks = new HashMap<>();
-    private final Map<?, BiConsumer<V, V>> addEdgeCallbacks = new HashMap<>();
-    private final Map<?, BiConsumer<V, V>> removeEdgeCallbacks = new HashMap<>();
+    private final Set<Consumer<V>> addVertexCallbacks = new CopyOnWriteArraySet<>();
+    private final Set<Consumer<V>> removeVertexCallbacks = new CopyOnWriteArraySet<>();
+    private final Set<BiConsumer<V, V>> addEdgeCallbacks = new CopyOnWriteArraySet<>();
+    private final Set<BiConsumer<V, V>> removeEdgeCallbacks = new CopyOnWriteArraySet<>();
     private boolean acceptUnsetPolicy = false;
+    private final AtomicLong version = new AtomicLong();
+    private volatile @Nullable ExecutionPlan<V> executionPlan;
+    private final AdjacencyIndex<V> adjacency = new AdjacencyIndex<>();
+    private final TopologicalOrder<V> topologicalOrder = new TopologicalOrder<>(this);
+    private final ReachabilityIndex<V> reachability = new ReachabilityIndex<>(this);
+    private final SiblingIndex<V> siblings = new SiblingIndex<>(this);
+    private final ComponentIndex<V> components = new ComponentIndex<>(this);
+    private volatile TraversalCache<V> traversalCache = new TraversalCache<>(-1);
+    private final StampedLock lock = new StampedLock();
+    private volatile ConcurrencyMode concurrencyMode = ConcurrencyMode.SINGLE_THREADED;
+    private final Queue<Consumer<GraphBatch<V, E>>> queuedMutations = new ConcurrentLinkedQueue<>();
+    private volatile int callbackInlineLimit = CallbackDispatch.DEFAULT_INLINE_LIMIT;
+    private final CheckPlans checkPlans = new CheckPlans();
+    volatile @Nullable PolicyBits policyBits; // Attached by ElementPolicyBits with the first rule set for the graph
+
+    static {
+        ElementPolicyBits.install();
+    }
+
+    /**
+     * The sources and sinks of the vertices computed for a version of the graph.
+     */
+    private record TraversalCache<V>(long version, Map<V, Set<V>> sources, Map<V, Set<V>> sinks) {
+        private TraversalCache(long version) {
+            this(version, Collections.synchronizedMap(new IdentityHashMap<>()),
+                    Collections.synchronizedMap(new IdentityHashMap<>()));
+        }
+    }
 
     public Graph(Class<E> edgeClass) {
         graph = new DirectedAcyclicGraph<>(null, SupplierUtil.createSupplier(edgeClass), true);
@@ -75,33 +109,296 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
     }
 
     public Set<V> vertexSet() {
-        return graph.vertexSet();
+        return view(graph::vertexSet);
     }
 
     public Set<E> edgeSet() {
-        return graph.edgeSet();
+        return view(graph::edgeSet);
     }
 
     public Set<E> edgesOf(V v) {
-        return graph.edgesOf(v);
+        return view(() -> graph.edgesOf(v));
     }
 
     public Set<E> egressEdgesOf(V v) {
+        return view(() -> {
+            try {
+                return graph.outgoingEdgesOf(v);
+            } catch (IllegalArgumentException e) {
+                return new HashSet<>();
+            }
+        });
+    }
+
+    public Set<E> ingressEdgesOf(V v) {
+        return view(() -> {
+            try {
+                return graph.incomingEdgesOf(v);
+            } catch (IllegalArgumentException e) {
+                return new HashSet<>();
+            }
+        });
+    }
+
+    /**
+     * Gets the version of the structure of the graph. The version changes every time a vertex or an edge is added or
+     * removed.
+     * @return The current version of the graph.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Called after every vertex or edge addition or removal.
+     */
+    void structureChanged() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Gets the execution plan of the current version of the graph. The plan is compiled the first time it is requested
+     * after a structural change and reused until the next one.
+     * @return The execution plan of the graph.
+     */
+    public ExecutionPlan<V> executionPlan() {
+        var plan = executionPlan;
+        if (plan != null && plan.version() == version())
+            return plan;
+
+        long stamp = lockForReading();
         try {
-            return graph.outgoingEdgesOf(v);
-        } catch (IllegalArgumentException e) {
-            return new HashSet<>();
+            long current = version();
+            plan = ExecutionPlan.compile(this, current);
+            executionPlan = plan;
+            return plan;
+        } finally {
+            unlockForReading(stamp);
         }
     }
 
-    public Set<E> ingressEdgesOf(V v) {
+    /**
+     * Gets how the graph is accessed by threads.
+     * @return The concurrency mode of the graph.
+     */
+    public ConcurrencyMode concurrencyMode() {
+        return concurrencyMode;
+    }
+
+    /**
+     * Sets how the graph is accessed by threads. In {@link ConcurrencyMode#CONCURRENT} mode the structure of the graph
+     * is guarded by a lock: modifications are exclusive, and the queries of this class can run concurrently with them
+     * without observing a partial modification. Policies, validations and callbacks are always run without the lock.
+     * The sets of vertices and edges, like {@link #vertexSet()}, are then copies taken under the lock instead of live
+     * views. The underlying indices, {@link #iterables()}, {@link #forEach(Consumer)}, {@link #spliterator()} and the
+     * accessors of edge weights and suppliers read the underlying graph directly and are not guarded.
+     * <p>
+     * The mode must not be changed while the graph is being modified.
+     * @param mode The concurrency mode.
+     */
+    public void concurrencyMode(ConcurrencyMode mode) {
+        concurrencyMode = Objects.requireNonNull(mode);
+    }
+
+    /**
+     * Gets the maximum number of callbacks of an operation that are run in the calling thread. Operations with more
+     * callbacks, counting the ones of the graph and of the vertices involved, run them in parallel.
+     * @return The maximum number of callbacks run in the calling thread.
+     */
+    public int callbackInlineLimit() {
+        return callbackInlineLimit;
+    }
+
+    /**
+     * Sets the maximum number of callbacks of an operation that are run in the calling thread.
+     * @param limit The maximum number of callbacks run in the calling thread, 0 to always run them in parallel.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public void callbackInlineLimit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("The limit must not be negative");
+        callbackInlineLimit = limit;
+    }
+
+    /**
+     * Acquires the lock for a structural modification if the graph is concurrent.
+     * The lock is not reentrant, so no public query may be called until it is released.
+     * @return The stamp to release the lock with, 0 if no lock was acquired.
+     */
+    long lockForWriting() {
+        return concurrencyMode == ConcurrencyMode.CONCURRENT ? lock.writeLock() : 0;
+    }
+
+    void unlockForWriting(long stamp) {
+        if (stamp != 0)
+            lock.unlockWrite(stamp);
+    }
+
+    private long lockForReading() {
+        return concurrencyMode == ConcurrencyMode.CONCURRENT ? lock.readLock() : 0;
+    }
+
+    private void unlockForReading(long stamp) {
+        if (stamp != 0)
+            lock.unlockRead(stamp);
+    }
+
+    /**
+     * Runs a query over the structure of the graph. If the graph is concurrent, the query is first run optimistically,
+     * without locking, and run again under the read lock if the graph was modified meanwhile. The query must not have
+     * side effects, as it may observe the graph in the middle of a modification.
+     */
+    private <T> T read(Supplier<T> query) {
+        if (concurrencyMode != ConcurrencyMode.CONCURRENT)
+            return query.get();
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (lock.validate(stamp))
+                    return result;
+            } catch (RuntimeException e) {
+                // A partial modification can make the query fail, only the failures of a valid read are reported
+                if (lock.validate(stamp))
+                    throw e;
+            }
+        }
+
+        return locked(query);
+    }
+
+    /**
+     * Gets a view of the underlying graph. If the graph is concurrent, the view is copied under the guard of
+     * {@link #read(Supplier)}, as a live view could be modified while it is iterated.
+     */
+    private <T> Set<T> view(Supplier<Set<T>> view) {
+        if (concurrencyMode != ConcurrencyMode.CONCURRENT)
+            return view.get();
+
+        return read(() -> Collections.unmodifiableSet(new LinkedHashSet<>(view.get())));
+    }
+
+    /**
+     * Runs a query over the structure of the graph under the read lock if the graph is concurrent.
+     * Used by the queries that cache their results.
+     */
+    private <T> T locked(Supplier<T> query) {
+        long stamp = lockForReading();
         try {
-            return graph.incomingEdgesOf(v);
-        } catch (IllegalArgumentException e) {
-            return new HashSet<>();
+            return query.get();
+        } finally {
+            unlockForReading(stamp);
         }
     }
 
+    /**
+     * Queues a modification of the graph to be applied by {@link #applyQueuedMutations()}. It can be called from any
+     * thread, including during a frame, as the graph is not modified until the queue is applied.
+     * @param mutation Adds the operations of the modification to the batch that applies it.
+     */
+    public void enqueue(Consumer<GraphBatch<V, E>> mutation) {
+        queuedMutations.add(Objects.requireNonNull(mutation));
+    }
+
+    /**
+     * Checks if there are queued modifications.
+     * @return True if there are modifications waiting to be applied.
+     */
+    public boolean hasQueuedMutations() {
+        return !queuedMutations.isEmpty();
+    }
+
+    /**
+     * Applies the queued modifications in the order they were queued, each one as a {@link GraphBatch} of its own, so a
+     * rejected modification does not affect the others. Called by the updaters between frames.
+     * @return The failures of the rejected modifications, in the order they were queued.
+     */
+    public List<BatchFailure> applyQueuedMutations() {
+        List<BatchFailure> failures = new ArrayList<>();
+        Consumer<GraphBatch<V, E>> mutation;
+        while ((mutation = queuedMutations.poll()) != null) {
+            var batch = batch();
+            mutation.accept(batch);
+            if (batch.commit() instanceof Result.Failure<Void, BatchFailure>(var f))
+                failures.add(f);
+        }
+        return failures;
+    }
+
+    /**
+     * Gets the primitive adjacency of the graph, where vertices are identified by dense int ids. The index is updated on
+     * every vertex or edge addition or removal.
+     * @return The adjacency index of the graph.
+     */
+    public AdjacencyIndex<V> adjacency() {
+        return adjacency;
+    }
+
+    /**
+     * Gets the topological order of the graph. The order is updated incrementally on every vertex or edge addition or
+     * removal, so it is always current and never recomputed.
+     * @return The topological order of the graph.
+     */
+    public TopologicalOrder<V> topologicalOrder() {
+        return topologicalOrder;
+    }
+
+    /**
+     * Gets the reachability index of the graph, which answers whether there is a path between two vertices.
+     * @return The reachability index of the graph.
+     */
+    public ReachabilityIndex<V> reachability() {
+        return reachability;
+    }
+
+    /**
+     * Gets the sibling index of the graph, which groups the vertices with the same parents.
+     * @return The sibling index of the graph.
+     */
+    public SiblingIndex<V> siblingIndex() {
+        return siblings;
+    }
+
+    /**
+     * Gets the component index of the graph, which tracks its weakly connected components.
+     * @return The component index of the graph.
+     */
+    public ComponentIndex<V> componentIndex() {
+        return components;
+    }
+
+    /**
+     * Checks if there is a path from the source vertex to the target vertex.
+     * Most negative answers take constant time, and positive answers take constant time once the descendants of the
+     * source have been computed.
+     * @param source The source vertex.
+     * @param target The target vertex.
+     * @return True if the target is a descendant of the source, false otherwise or if any of them is not in the graph.
+     */
+    public boolean isReachable(V source, V target) {
+        return locked(() -> reachability.reaches(source, target));
+    }
+
+    /**
+     * Starts a batch of vertex and edge additions and removals. The operations are validated together and applied
+     * atomically when the batch is committed.
+     * @return A new empty batch for this graph.
+     * @see GraphBatch
+     */
+    public GraphBatch<V, E> batch() {
+        return new GraphBatch<>(this);
+    }
+
+    /**
+     * Gets the states of the policies set for this graph by a policies manager, usually the one of a vertex. Used by the
+     * policies managers to keep those states in the graph instead of in a weak map.
+     * @return The policy bits of this graph, or null if no manager set a rule for it.
+     */
+    final @Nullable PolicyBits policyBits() {
+        return policyBits;
+    }
+
     public GraphOperationsPolicies policiesManager() {
         if (policiesManager == null)
             policiesManager = new GraphOperationsPolicies();
@@ -114,6 +411,41 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
         return validationsManager;
     }
 
+    /**
+     * Gets the graph stages of the check of an operation, compiling them for the classes of the vertices if the rules
+     * of the graph changed since they were last compiled.
+     * @param operation The operation to check.
+     * @param source The source vertex, or the vertex of a vertex operation.
+     * @param target The target vertex, or the vertex of a vertex operation.
+     * @return The compiled plan.
+     */
+    private CheckPlans.Plan planFor(CheckPlans.Operation operation, V source, V target) {
+        var policies = policiesManager();
+        var validations = validationsManager();
+        long generation = ((long) policies.generation() << 32) | (validations.generation() & 0xFFFFFFFFL);
+
+        var plan = checkPlans.find(operation, source.getClass(), target.getClass(), generation);
+        if (plan != null)
+            return plan;
+
+        // Without rules for specific vertices, the state found for these vertices holds for any of the same classes
+        @Nullable PolicyState policyState = switch (operation) {
+            case ADD_VERTEX -> policies.hasObjectRules(ADD_VERTEX_POLICY) ? null : policies.stateOf(ADD_VERTEX_POLICY, source);
+            case REMOVE_VERTEX -> policies.hasObjectRules(REMOVE_VERTEX_POLICY) ? null : policies.stateOf(REMOVE_VERTEX_POLICY, source);
+            case ADD_EDGE -> policies.hasObjectRules(CREATE_EDGE_POLICY) ? null : policies.stateOf(CREATE_EDGE_POLICY, source, target);
+            case REMOVE_EDGE -> policies.hasObjectRules(REMOVE_EDGE_POLICY) ? null : policies.stateOf(REMOVE_EDGE_POLICY, source, target);
+        };
+
+        boolean validates = switch (operation) {
+            case ADD_VERTEX -> validations.hasValidationsForOperation(ADD_VERTEX_VALIDATION);
+            case REMOVE_VERTEX -> validations.hasValidationsForOperation(REMOVE_VERTEX_VALIDATION);
+            case ADD_EDGE -> validations.hasValidationsForOperation(CREATE_EDGE_VALIDATION);
+            case REMOVE_EDGE -> validations.hasValidationsForOperation(REMOVE_EDGE_VALIDATION);
+        };
+
+        return checkPlans.put(operation, new CheckPlans.Plan(source.getClass(), target.getClass(), generation, policyState, validates));
+    }
+
     private boolean shouldCallOnEnterVertexFor(V v) {
         return switch (policiesManager().stateOf(ON_ENTER_GRAPH_POLICY, v)) {
             case ACCEPT -> true;
@@ -136,7 +468,9 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
      * @return A result indicating if the vertex can be added or not.
      */
     public Result<Void, ShouldAddVertexFailure> shouldAddVertexNoCheckIfPresent(V v) {
-        switch (policiesManager().stateOf(ADD_VERTEX_POLICY, v)) {
+        var plan = planFor(CheckPlans.Operation.ADD_VERTEX, v, v);
+        var policyState = plan.policyState();
+        switch (policyState != null ? policyState : policiesManager().stateOf(ADD_VERTEX_POLICY, v)) {
             case REJECT -> {
                 return fail(new FailureResults.RejectedByGraphPolicy("The graph policy rejected the vertex addition", this));
             }
@@ -146,7 +480,7 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             }
         }
 
-        if (!validationsManager().validateOperation(ADD_VERTEX_VALIDATION, v))
+        if (plan.validates() && !validationsManager().validateOperation(ADD_VERTEX_VALIDATION, v))
             return fail(new FailureResults.RejectedByGraphValidation("The graph validation rejected the vertex addition", this));
 
         switch (v.policiesManager().stateOf(ADD_TO_GRAPH_POLICY, this)) {
@@ -210,7 +544,9 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
         if (!containsVertex(v))
             return fail(new FailureResults.VertexNotPresent("The vertex is not present in the graph", v));
 
-        switch (policiesManager().stateOf(REMOVE_VERTEX_POLICY, v)) {
+        var plan = planFor(CheckPlans.Operation.REMOVE_VERTEX, v, v);
+        var policyState = plan.policyState();
+        switch (policyState != null ? policyState : policiesManager().stateOf(REMOVE_VERTEX_POLICY, v)) {
             case ACCEPT -> {}
             case REJECT -> {
                 return fail(new FailureResults.RejectedByGraphPolicy("The graph policy rejected the vertex removal", this));
@@ -221,7 +557,7 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             }
         }
 
-        if (!validationsManager().validateOperation(REMOVE_VERTEX_VALIDATION, v))
+        if (plan.validates() && !validationsManager().validateOperation(REMOVE_VERTEX_VALIDATION, v))
             return fail(new FailureResults.RejectedByGraphValidation("The graph validation rejected the vertex removal", this));
 
         var paResStr = parentsOf(v)
@@ -291,38 +627,37 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             };
 
             case Result.Success<Void, ?> _ -> {
-                if (!graph.addVertex(v))
-                    throw new GraphOperationException("The vertex could not be added to the graph");
-
+                long stamp = lockForWriting();
+                try {
+                    if (!graph.addVertex(v))
+                        throw new GraphOperationException("The vertex could not be added to the graph");
+
+                    adjacency.vertexAdded(v);
+                    topologicalOrder.vertexAdded(v);
+                    reachability.vertexAdded();
+                    siblings.vertexAdded(v);
+                    components.vertexAdded(v);
+                    structureChanged();
+                } finally {
+                    unlockForWriting(stamp);
+                }
                 yield success(v);
             }
         };
     }
 
     final void processVertexAdditionCallbacks(V v) {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var addVertexCallback : addVertexCallbacks.values())
-                scope.fork(() -> {
-                    addVertexCallback.accept(v);
-                    return null;
-                });
-
-            if (shouldCallOnEnterVertexFor(v))
-                scope.fork(() -> {
-                    this.onEnterVertex(v);
-                    return null;
-                });
-
-            if (v.shouldCallOnEnterGraphFor(this))
-                scope.fork(() -> {
-                    v.onEnterGraph(this);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        var dispatch = new CallbackDispatch(callbackInlineLimit);
+        for (var addVertexCallback : addVertexCallbacks)
+            dispatch.add(() -> addVertexCallback.accept(v));
+
+        if (CallbackDispatch.overrides(this, "onEnterVertex") && shouldCallOnEnterVertexFor(v))
+            dispatch.add(() -> this.onEnterVertex(v));
+
+        if (v.handlesEnterGraph() && v.shouldCallOnEnterGraphFor(this))
+            dispatch.add(() -> v.onEnterGraph(this));
+
+        dispatch.run();
     }
 
     public Result<E, Graph.EdgeAdditionFailure> addEdge(V sourceVertex, V targetVertex) {
@@ -346,25 +681,163 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
 //    } TODO
 
     public Set<V> childrenOf(V vertex) {
-        return egressEdgesOf(vertex)
-                .stream()
-                .map(graph::getEdgeTarget)
-                .collect(Collectors.toSet());
+        return read(() -> collectNeighbors(vertex, true));
     }
 
     public Set<V> parentsOf(V vertex) {
-        return ingressEdgesOf(vertex)
-                .stream()
-                .map(graph::getEdgeSource)
-                .collect(Collectors.toSet());
+        return read(() -> collectNeighbors(vertex, false));
+    }
+
+    /**
+     * Collects the children of the vertex, or its parents if not forward, without locking.
+     */
+    private Set<V> collectNeighbors(V vertex, boolean forward) {
+        int id = adjacency.idOf(vertex);
+        if (id < 0)
+            return new HashSet<>();
+
+        int degree = forward ? adjacency.outDegree(id) : adjacency.inDegree(id);
+        Set<V> neighbors = HashSet.newHashSet(degree);
+        for (int i = 0; i < degree; i++)
+            neighbors.add(Objects.requireNonNull(adjacency.vertex(forward ? adjacency.child(id, i) : adjacency.parent(id, i))));
+        return neighbors;
+    }
+
+    /**
+     * Copies the children of the vertex, or its parents if not forward, so they can be visited without holding the lock.
+     */
+    @SuppressWarnings("unchecked")
+    private V[] neighborSnapshot(V vertex, boolean forward) {
+        return read(() -> {
+            int id = adjacency.idOf(vertex);
+            if (id < 0)
+                return (V[]) new Vertex<?>[0];
+
+            int degree = forward ? adjacency.outDegree(id) : adjacency.inDegree(id);
+            var neighbors = (V[]) new Vertex<?>[degree];
+            for (int i = 0; i < degree; i++)
+                neighbors[i] = Objects.requireNonNull(adjacency.vertex(forward ? adjacency.child(id, i) : adjacency.parent(id, i)));
+            return neighbors;
+        });
+    }
+
+    /**
+     * Performs the given action for each child of the given vertex, without allocating.
+     * The graph must not be modified by the action. If the graph is concurrent, the children are copied first and the
+     * action runs without the lock.
+     * @param vertex The vertex.
+     * @param action The action to perform for each child. It is not called if the vertex is not in the graph.
+     */
+    public void forEachChild(V vertex, Consumer<? super V> action) {
+        if (concurrencyMode == ConcurrencyMode.CONCURRENT) {
+            for (V child : neighborSnapshot(vertex, true))
+                action.accept(child);
+            return;
+        }
+
+        int id = adjacency.idOf(vertex);
+        if (id < 0)
+            return;
+
+        for (int i = 0, degree = adjacency.outDegree(id); i < degree; i++)
+            action.accept(Objects.requireNonNull(adjacency.vertex(adjacency.child(id, i))));
+    }
+
+    /**
+     * Performs the given action for each parent of the given vertex, without allocating.
+     * The graph must not be modified by the action. If the graph is concurrent, the parents are copied first and the
+     * action runs without the lock.
+     * @param vertex The vertex.
+     * @param action The action to perform for each parent. It is not called if the vertex is not in the graph.
+     */
+    public void forEachParent(V vertex, Consumer<? super V> action) {
+        if (concurrencyMode == ConcurrencyMode.CONCURRENT) {
+            for (V parent : neighborSnapshot(vertex, false))
+                action.accept(parent);
+            return;
+        }
+
+        int id = adjacency.idOf(vertex);
+        if (id < 0)
+            return;
+
+        for (int i = 0, degree = adjacency.inDegree(id); i < degree; i++)
+            action.accept(Objects.requireNonNull(adjacency.vertex(adjacency.parent(id, i))));
+    }
+
+    /**
+     * Performs the given action for each parent and then for each child of the given vertex, without allocating.
+     * The graph must not be modified by the action.
+     * @param vertex The vertex.
+     * @param action The action to perform for each neighbor. It is not called if the vertex is not in the graph.
+     */
+    public void forEachNeighbor(V vertex, Consumer<? super V> action) {
+        forEachParent(vertex, action);
+        forEachChild(vertex, action);
+    }
+
+    /**
+     * Gets the number of children of the given vertex. Together with {@link #childAt(Vertex, int)} it allows iterating
+     * the children by index.
+     * @param vertex The vertex.
+     * @return The number of children of the vertex, or 0 if it is not in the graph.
+     */
+    public int childCount(V vertex) {
+        return read(() -> {
+            int id = adjacency.idOf(vertex);
+            return id < 0 ? 0 : adjacency.outDegree(id);
+        });
+    }
+
+    /**
+     * Gets a child of the given vertex by index. The indices are stable until the children of the vertex change.
+     * @param vertex The vertex.
+     * @param index The index of the child, in [0, {@link #childCount(Vertex)}).
+     * @return The child at the given index.
+     * @throws IndexOutOfBoundsException If the index is out of range or the vertex is not in the graph.
+     */
+    public V childAt(V vertex, int index) throws IndexOutOfBoundsException {
+        return read(() -> {
+            int id = adjacency.idOf(vertex);
+            Objects.checkIndex(index, id < 0 ? 0 : adjacency.outDegree(id));
+            return Objects.requireNonNull(adjacency.vertex(adjacency.child(id, index)));
+        });
+    }
+
+    /**
+     * Gets the number of parents of the given vertex. Together with {@link #parentAt(Vertex, int)} it allows iterating
+     * the parents by index.
+     * @param vertex The vertex.
+     * @return The number of parents of the vertex, or 0 if it is not in the graph.
+     */
+    public int parentCount(V vertex) {
+        return read(() -> {
+            int id = adjacency.idOf(vertex);
+            return id < 0 ? 0 : adjacency.inDegree(id);
+        });
+    }
+
+    /**
+     * Gets a parent of the given vertex by index. The indices are stable until the parents of the vertex change.
+     * @param vertex The vertex.
+     * @param index The index of the parent, in [0, {@link #parentCount(Vertex)}).
+     * @return The parent at the given index.
+     * @throws IndexOutOfBoundsException If the index is out of range or the vertex is not in the graph.
+     */
+    public V parentAt(V vertex, int index) throws IndexOutOfBoundsException {
+        return read(() -> {
+            int id = adjacency.idOf(vertex);
+            Objects.checkIndex(index, id < 0 ? 0 : adjacency.inDegree(id));
+            return Objects.requireNonNull(adjacency.vertex(adjacency.parent(id, index)));
+        });
     }
 
     public Set<V> ancestorsOf(V vertex) {
-        return graph.getAncestors(vertex);
+        return read(() -> graph.getAncestors(vertex));
     }
 
     public Set<V> descendantsOf(V vertex) {
-        return graph.getDescendants(vertex);
+        return read(() -> graph.getDescendants(vertex));
     }
 
     public void forEach(Consumer<? super V> action) {
@@ -376,7 +849,7 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
     }
 
     public Set<E> getAllEdges(V sourceVertex, V targetVertex) {
-        return graph.getAllEdges(sourceVertex, targetVertex);
+        return read(() -> graph.getAllEdges(sourceVertex, targetVertex));
     }
 
     public void setEdgeSupplier(Supplier<E> edgeSupplier) {
@@ -396,36 +869,43 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
     }
 
     public Optional<E> getEdge(V sourceVertex, V targetVertex) {
-        return Optional.ofNullable(graph.getEdge(sourceVertex, targetVertex));
+        return read(() -> Optional.ofNullable(graph.getEdge(sourceVertex, targetVertex)));
     }
 
     public Optional<V> getEdgeSource(E e) {
-        return Optional.ofNullable(graph.getEdgeSource(e));
+        return read(() -> Optional.ofNullable(graph.getEdgeSource(e)));
     }
 
     public Optional<V> getEdgeTarget(E e) {
-        return Optional.ofNullable(graph.getEdgeTarget(e));
+        return read(() -> Optional.ofNullable(graph.getEdgeTarget(e)));
     }
 
     public boolean containsEdge(E e) {
-        return graph.containsEdge(e);
+        return read(() -> graph.containsEdge(e));
     }
 
 
     public boolean containsVertex(V v) {
-        return graph.containsVertex(v);
+        return read(() -> graph.containsVertex(v));
     }
 
     public int degreeOf(V vertex) {
-        return graph.degreeOf(vertex);
+        return read(() -> graph.degreeOf(vertex));
     }
 
     public int inDegreeOf(V vertex) {
-        return graph.inDegreeOf(vertex);
+        return read(() -> adjacency.inDegree(adjacencyIdOf(vertex)));
     }
 
     public int outDegreeOf(V vertex) {
-        return graph.outDegreeOf(vertex);
+        return read(() -> adjacency.outDegree(adjacencyIdOf(vertex)));
+    }
+
+    private int adjacencyIdOf(V vertex) {
+        int id = adjacency.idOf(Objects.requireNonNull(vertex));
+        if (id < 0)
+            throw new IllegalArgumentException("no such vertex in graph: " + vertex);
+        return id;
     }
 
     public double getEdgeWeight(E e) {
@@ -445,14 +925,14 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
     }
 
     public Set<V> roots() {
-        return graph.vertexSet().stream().filter(v -> graph.inDegreeOf(v) == 0).collect(Collectors.toSet());
+        return read(() -> graph.vertexSet().stream().filter(v -> graph.inDegreeOf(v) == 0).collect(Collectors.toSet()));
     }
     public Set<V> sinks() {
-        return graph.vertexSet().stream().filter(v -> graph.outDegreeOf(v) == 0).collect(Collectors.toSet());
+        return read(() -> graph.vertexSet().stream().filter(v -> graph.outDegreeOf(v) == 0).collect(Collectors.toSet()));
     }
 
     public boolean containsEdge(V sourceVertex, V targetVertex) {
-        return graph.containsEdge(sourceVertex, targetVertex);
+        return read(() -> graph.containsEdge(sourceVertex, targetVertex));
     }
 
     /**
@@ -462,27 +942,29 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
      * @return the edge that connects the given vertices if it exists. If it does not exist, an empty optional is returned.
      */
     public Optional<E> edgeOf(V sourceVertex, V targetVertex) {
-        return Optional.ofNullable(graph.getEdge(sourceVertex, targetVertex));
+        return read(() -> Optional.ofNullable(graph.getEdge(sourceVertex, targetVertex)));
     }
 
     public int size() {
-        return graph.vertexSet().size();
+        return read(() -> graph.vertexSet().size());
     }
 
     public Set<V> siblingsOf(V v) {
         Set<V> siblings = new HashSet<>();
-        for (V parent : parentsOf(v)) {
-            siblings.addAll(childrenOf(parent));
-        }
+        forEachParent(v, parent -> forEachChild(parent, siblings::add));
         siblings.remove(v);
         return siblings;
     }
 
+    /**
+     * Gets the full siblings of the given vertex, the vertices with exactly the same parents.
+     * The vertices are grouped by their parents as the graph changes, so the group is found in constant time.
+     * @param v the vertex.
+     * @return the full siblings of the given vertex, empty if it has no parents.
+     * @see SiblingIndex
+     */
     public Set<V> fullSiblingsOf(V v) {
-        Set<V> siblings = siblingsOf(v);
-        for (V parent : parentsOf(v))
-            siblings.removeIf(s -> !parentsOf(s).contains(parent));
-        return siblings;
+        return read(() -> siblings.fullSiblingsOf(v));
     }
 
     public Set<V> halfSiblingsOf(V v) {
@@ -498,42 +980,119 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
      * @return the neighbors of the given vertex.
      */
     public Set<V> neighborsOf(V v) {
-        Set<V> neighbors = new HashSet<>();
-        neighbors.addAll(parentsOf(v));
-        neighbors.addAll(childrenOf(v));
+        Set<V> neighbors = HashSet.newHashSet(parentCount(v) + childCount(v));
+        forEachNeighbor(v, neighbors::add);
         return neighbors;
     }
 
     /**
-     * Collects the roots of the graph that connect to the given vertex.
+     * Collects the roots of the graph that connect to the given vertex, including the vertex itself if it is a root.
+     * The result is computed with a single traversal over the ingress edges and reused until the graph changes.
      * @param v the vertex to search for its sources.
-     * @return the sources of the given vertex.
+     * @return an unmodifiable set with the sources of the given vertex, empty if the vertex is not in the graph.
      */
     public Set<V> sourcesOf(V v) {
-        Set<V> roots = new HashSet<>();
-        for (V vertex : roots()) {
-            var dijkstra = new DijkstraShortestPath<>(graph);
-            var path = dijkstra.getPath(vertex, v);
-            if (path != null)
-                roots.add(vertex);
-        }
-        return roots;
+        return locked(() -> currentTraversalCache().sources().computeIfAbsent(v, vertex -> terminalsReachableFrom(vertex, false)));
     }
 
     /**
-     * Collects the vertices that have no outgoing edges and have a path from the given vertex.
+     * Collects the vertices that have no outgoing edges and have a path from the given vertex, including the vertex
+     * itself if it is a sink.
+     * The result is computed with a single traversal over the egress edges and reused until the graph changes.
      * @param v the vertex to search for its sinks.
-     * @return the sinks of the given vertex.
+     * @return an unmodifiable set with the sinks of the given vertex, empty if the vertex is not in the graph.
      */
     public Set<V> sinksOf(V v) {
-        Set<V> sinks = new HashSet<>();
-        for (V vertex : sinks()) {
-            var dijkstra = new DijkstraShortestPath<>(graph);
-            var path = dijkstra.getPath(v, vertex);
-            if (path != null)
-                sinks.add(vertex);
+        return locked(() -> currentTraversalCache().sinks().computeIfAbsent(v, vertex -> terminalsReachableFrom(vertex, true)));
+    }
+
+    /**
+     * Collects the sources of every vertex of the graph in a single pass in topological order, where the sources of a
+     * vertex are the union of the sources of its parents.
+     * The results are also reused by {@link #sourcesOf(Vertex)} until the graph changes.
+     * @return an unmodifiable map from every vertex to an unmodifiable set with its sources.
+     */
+    public Map<V, Set<V>> sourcesOfAll() {
+        return locked(this::computeSourcesOfAll);
+    }
+
+    private Map<V, Set<V>> computeSourcesOfAll() {
+        var cache = currentTraversalCache();
+
+        // Number the roots, and give every vertex the bit set of the roots that reach it
+        var rootIndices = new IdentityHashMap<V, Integer>();
+        var rootList = new ArrayList<V>();
+        var rootsOf = new BitSet[adjacency.idBound()];
+        for (V v : topologicalOrder) {
+            int id = adjacency.idOf(v);
+            var roots = new BitSet();
+            if (adjacency.inDegree(id) == 0) {
+                roots.set(rootList.size());
+                rootIndices.put(v, rootList.size());
+                rootList.add(v);
+            } else {
+                for (int i = 0, n = adjacency.inDegree(id); i < n; i++)
+                    roots.or(rootsOf[adjacency.parent(id, i)]);
+            }
+            rootsOf[id] = roots;
         }
-        return sinks;
+
+        Map<V, Set<V>> sources = new IdentityHashMap<>(topologicalOrder.size());
+        for (V v : topologicalOrder) {
+            var roots = rootsOf[adjacency.idOf(v)];
+            Set<V> set = HashSet.newHashSet(roots.cardinality());
+            for (int r = roots.nextSetBit(0); r >= 0; r = roots.nextSetBit(r + 1))
+                set.add(rootList.get(r));
+            sources.put(v, Collections.unmodifiableSet(set));
+        }
+
+        cache.sources().putAll(sources);
+        return Collections.unmodifiableMap(sources);
+    }
+
+    private TraversalCache<V> currentTraversalCache() {
+        var cache = traversalCache;
+        long current = version();
+        if (cache.version() != current) {
+            cache = new TraversalCache<>(current);
+            traversalCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Traverses the graph from the given vertex and collects the vertices without ingress edges, or without egress
+     * edges if the traversal is forward.
+     */
+    private Set<V> terminalsReachableFrom(V v, boolean forward) {
+        int start = adjacency.idOf(v);
+        if (start < 0)
+            return Set.of();
+
+        Set<V> terminals = new HashSet<>();
+        var visited = new BitSet(adjacency.idBound());
+        int[] queue = new int[adjacency.idBound()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited.set(start);
+
+        while (head < tail) {
+            int id = queue[head++];
+            int degree = forward ? adjacency.outDegree(id) : adjacency.inDegree(id);
+            if (degree == 0)
+                terminals.add(Objects.requireNonNull(adjacency.vertex(id)));
+
+            for (int i = 0; i < degree; i++) {
+                int next = forward ? adjacency.child(id, i) : adjacency.parent(id, i);
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return Collections.unmodifiableSet(terminals);
     }
 
     /**
@@ -602,92 +1161,73 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             };
 
             case Result.Success<Void, ?> _ -> {
-                var parents = parentsOf(v);
-                var children = childrenOf(v);
-
-                if (!graph.removeVertex(v))
-                    throw new GraphOperationException("The vertex could not be removed from the graph");
-
-                try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-                    for (var removeVertexCallback : removeVertexCallbacks.values()) // TODO: Check policy
-                        scope.fork(() -> {
-                            removeVertexCallback.accept(v);
-                            return null;
-                        });
-
-                    if (v.shouldCallOnLeaveGraphFor(this))
-                        scope.fork(() -> {
-                            v.onLeaveGraph(this);
-                            return null;
-                        });
-
-                    if (shouldCallOnLeaveVertexFor(v))
-                        scope.fork(() -> {
-                            this.onLeaveVertex(v);
-                            return null;
-                        });
-
-                    // Calls to onDisconnectChild and onDisconnectParent
-                    parents.forEach(parent -> {
-                        scope.fork(() -> {
-                            if (v.shouldCallOnDisconnectParentFor(parent))
-                                v.onDisconnectParent(parent, this);
-                            return null;
-                        });
-                        scope.fork(() -> {
-                            if (parent.shouldCallOnDisconnectChildFor(v))
-                                parent.onDisconnectChild(v, this);
-                            return null;
-                        });
-                    });
-
-                    children.forEach(child -> {
-                        scope.fork(() -> {
-                            if (v.shouldCallOnDisconnectChildFor(child))
-                                v.onDisconnectChild(child, this);
-                            return null;
-                        });
-                        scope.fork(() -> {
-                            if (child.shouldCallOnDisconnectParentFor(v))
-                                child.onDisconnectParent(v, this);
-                            return null;
-                        });
-                    });
-
-                    scope.join();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+                Set<V> parents;
+                Set<V> children;
+
+                long stamp = lockForWriting();
+                try {
+                    parents = collectNeighbors(v, false);
+                    children = collectNeighbors(v, true);
+
+                    if (!graph.removeVertex(v))
+                        throw new GraphOperationException("The vertex could not be removed from the graph");
+
+                    topologicalOrder.vertexRemoved(v);
+                    reachability.vertexRemoved(v);
+                    siblings.vertexRemoved(v);
+                    components.vertexRemoved(v);
+                    adjacency.vertexRemoved(v);
+                    structureChanged();
+                } finally {
+                    unlockForWriting(stamp);
+                }
+
+                var dispatch = new CallbackDispatch(callbackInlineLimit);
+                for (var removeVertexCallback : removeVertexCallbacks) // TODO: Check policy
+                    dispatch.add(() -> removeVertexCallback.accept(v));
+
+                if (v.handlesLeaveGraph() && v.shouldCallOnLeaveGraphFor(this))
+                    dispatch.add(() -> v.onLeaveGraph(this));
+
+                if (CallbackDispatch.overrides(this, "onLeaveVertex") && shouldCallOnLeaveVertexFor(v))
+                    dispatch.add(() -> this.onLeaveVertex(v));
+
+                // Calls to onDisconnectChild and onDisconnectParent
+                boolean disconnectsParents = v.handlesDisconnectParent();
+                for (V parent : parents) {
+                    if (disconnectsParents && v.shouldCallOnDisconnectParentFor(parent))
+                        dispatch.add(() -> v.onDisconnectParent(parent, this));
+                    if (parent.handlesDisconnectChild() && parent.shouldCallOnDisconnectChildFor(v))
+                        dispatch.add(() -> parent.onDisconnectChild(v, this));
                 }
 
+                boolean disconnectsChildren = v.handlesDisconnectChild();
+                for (V child : children) {
+                    if (disconnectsChildren && v.shouldCallOnDisconnectChildFor(child))
+                        dispatch.add(() -> v.onDisconnectChild(child, this));
+                    if (child.handlesDisconnectParent() && child.shouldCallOnDisconnectParentFor(v))
+                        dispatch.add(() -> child.onDisconnectParent(v, this));
+                }
+
+                dispatch.run();
+
                 yield success(v);
             }
         };
     }
 
     void processVertexRemovalCallbacks(V v) {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var removeVertexCallback : removeVertexCallbacks.values())
-                scope.fork(() -> {
-                    removeVertexCallback.accept(v);
-                    return null;
-                });
-
-            if (shouldCallOnLeaveVertexFor(v))
-                scope.fork(() -> {
-                    this.onLeaveVertex(v);
-                    return null;
-                });
-
-            if (v.shouldCallOnLeaveGraphFor(this))
-                scope.fork(() -> {
-                    v.onLeaveGraph(this);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        var dispatch = new CallbackDispatch(callbackInlineLimit);
+        for (var removeVertexCallback : removeVertexCallbacks)
+            dispatch.add(() -> removeVertexCallback.accept(v));
+
+        if (CallbackDispatch.overrides(this, "onLeaveVertex") && shouldCallOnLeaveVertexFor(v))
+            dispatch.add(() -> this.onLeaveVertex(v));
+
+        if (v.handlesLeaveGraph() && v.shouldCallOnLeaveGraphFor(this))
+            dispatch.add(() -> v.onLeaveGraph(this));
+
+        dispatch.run();
     }
 
     /**
@@ -732,9 +1272,11 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
      * @return A result indicating if the edge can be added or not.
      */
     protected Result<Void, ShouldAddEdgeFailure> edgeAdditionOperationCheck(V source, V target) {
-        switch (policiesManager().stateOf(CREATE_EDGE_POLICY, source, target)) {
+        var plan = planFor(CheckPlans.Operation.ADD_EDGE, source, target);
+        var policyState = plan.policyState();
+        switch (policyState != null ? policyState : policiesManager().stateOf(CREATE_EDGE_POLICY, source, target)) {
             case ACCEPT -> {
-                if (!validationsManager().validateOperation(CREATE_EDGE_VALIDATION, source, target))
+                if (plan.validates() && !validationsManager().validateOperation(CREATE_EDGE_VALIDATION, source, target))
                     return fail(new FailureResults.RejectedByGraphPolicy("The graph validation rejected the edge addition", this));
             }
             case REJECT -> {
@@ -768,7 +1310,7 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             }
         }
 
-        if (!validationsManager().validateOperation(CREATE_EDGE_VALIDATION, source, target))
+        if (plan.validates() && !validationsManager().validateOperation(CREATE_EDGE_VALIDATION, source, target))
             return fail(new FailureResults.RejectedByGraphValidation("The graph validation rejected the edge addition", this));
 
         switch (source.validationsManager().validateOperation(CONNECT_CHILD_VALIDATION, target)) {
@@ -831,45 +1373,50 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             case Result.Success<Void, ?> _ -> {
                 E e;
 
+                long stamp = lockForWriting();
                 try {
-                    e = graph.addEdge(source, target);
-                } catch (GraphCycleProhibitedException ex) {
-                    yield fail(new FailureResults.GraphCycleDetected("The edge addition would create a cycle in the graph: " + ex.getMessage()));
-
-                } catch (IllegalArgumentException ex) {
-                    throw new GraphOperationException("The edge could not be added to the graph");
+                    // Only the region between the target and the source is searched
+                    if (!topologicalOrder.edgeAdded(source, target))
+                        yield fail(new FailureResults.GraphCycleDetected("The edge addition would create a cycle in the graph"));
+
+                    try {
+                        e = graph.addEdge(source, target);
+                    } catch (GraphCycleProhibitedException ex) {
+                        yield fail(new FailureResults.GraphCycleDetected("The edge addition would create a cycle in the graph: " + ex.getMessage()));
+
+                    } catch (IllegalArgumentException ex) {
+                        throw new GraphOperationException("The edge could not be added to the graph");
+                    }
+
+                    if (e == null) {
+                        if (graph.containsEdge(source, target))
+                            yield fail(new FailureResults.EdgeAlreadyExists("The edge already exists in the graph"));
+                        throw new GraphOperationException("The edge could not be added to the graph");
+                    }
+
+                    adjacency.edgeAdded(source, target);
+                    reachability.edgeAdded(source, target);
+                    siblings.parentsChanged(target);
+                    components.edgeAdded(source, target);
+                    graph.setEdgeWeight(e, weight);
+                    structureChanged();
+                } finally {
+                    unlockForWriting(stamp);
                 }
-
-                if (e == null) {
-                    if (containsEdge(source, target))
-                        yield fail(new FailureResults.EdgeAlreadyExists("The edge already exists in the graph"));
-                    throw new GraphOperationException("The edge could not be added to the graph");
-                }
-
-                setEdgeWeight(e, weight);
                 yield success(e);
             }
         };
     }
 
     final void processEdgeAdditionCallbacks(V source, V target) {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var addEdgeCallback : addEdgeCallbacks.values())
-                scope.fork(() -> {
-                    addEdgeCallback.accept(source, target);
-                    return null;
-                });
-
-            if (policiesManager().stateOf(ON_ADD_EDGE_POLICY, source, target) == ACCEPT)
-                scope.fork(() -> {
-                    onConnect(source, target);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        var dispatch = new CallbackDispatch(callbackInlineLimit);
+        for (var addEdgeCallback : addEdgeCallbacks)
+            dispatch.add(() -> addEdgeCallback.accept(source, target));
+
+        if (CallbackDispatch.overrides(this, "onConnect") && policiesManager().stateOf(ON_ADD_EDGE_POLICY, source, target) == ACCEPT)
+            dispatch.add(() -> onConnect(source, target));
+
+        dispatch.run();
     }
 
     /**
@@ -893,7 +1440,9 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
         if (!containsEdge(source, target))
             return fail(new FailureResults.EdgeNotPresent("The edge is not present in the graph"));
 
-        switch (policiesManager().stateOf(REMOVE_EDGE_POLICY, source, target)) {
+        var plan = planFor(CheckPlans.Operation.REMOVE_EDGE, source, target);
+        var policyState = plan.policyState();
+        switch (policyState != null ? policyState : policiesManager().stateOf(REMOVE_EDGE_POLICY, source, target)) {
             case REJECT -> {
                 return fail(new FailureResults.RejectedByGraphPolicy("The graph policy rejected the edge removal", this));
             }
@@ -926,7 +1475,7 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             }
         }
 
-        if (!validationsManager().validateOperation(REMOVE_EDGE_VALIDATION, source, target))
+        if (plan.validates() && !validationsManager().validateOperation(REMOVE_EDGE_VALIDATION, source, target))
             return fail(new FailureResults.RejectedByGraphValidation("Edge removal rejected by the graph validation", this));
 
         switch (source.validationsManager().validateOperation(DISCONNECT_CHILD_VALIDATION, target)) {
@@ -969,29 +1518,26 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             };
 
             case Result.Success<Void, ?> _ -> {
-                E e = graph.removeEdge(source, target);
-
-                if (e == null)
-                    throw new GraphOperationException("The edge could not be removed from the graph");
-
-                try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-                    for (var removeEdgeCallback : removeEdgeCallbacks.values())
-                        scope.fork(() -> {
-                            removeEdgeCallback.accept(source, target);
-                            return null;
-                        });
-
-                    if (policiesManager().stateOf(ON_ADD_EDGE_POLICY, source, target) == ACCEPT)
-                        scope.fork(() -> {
-                            onDisconnect(source, target);
-                            return null;
-                        });
-
-                    scope.join();
-                } catch (InterruptedException e1) {
-                    throw new RuntimeException(e1);
+                E e;
+
+                long stamp = lockForWriting();
+                try {
+                    e = graph.removeEdge(source, target);
+
+                    if (e == null)
+                        throw new GraphOperationException("The edge could not be removed from the graph");
+
+                    adjacency.edgeRemoved(source, target);
+                    reachability.edgeRemoved(source);
+                    siblings.parentsChanged(target);
+                    components.edgeRemoved(source);
+                    structureChanged();
+                } finally {
+                    unlockForWriting(stamp);
                 }
 
+                processEdgeRemovalCallbacks(source, target);
+
                 yield success(e);
             }
         };
@@ -1026,10 +1572,23 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             };
 
             case Result.Success<Void, ?> _ -> {
-                E e = graph.removeEdge(source, target);
+                E e;
 
-                if (e == null)
-                    throw new GraphOperationException("The edge could not be removed from the graph");
+                long stamp = lockForWriting();
+                try {
+                    e = graph.removeEdge(source, target);
+
+                    if (e == null)
+                        throw new GraphOperationException("The edge could not be removed from the graph");
+
+                    adjacency.edgeRemoved(source, target);
+                    reachability.edgeRemoved(source);
+                    siblings.parentsChanged(target);
+                    components.edgeRemoved(source);
+                    structureChanged();
+                } finally {
+                    unlockForWriting(stamp);
+                }
 
                 yield success(e);
             }
@@ -1037,23 +1596,14 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
     }
 
     public final void processEdgeRemovalCallbacks(V source, V target) {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var removeEdgeCallback : removeEdgeCallbacks.values())
-                scope.fork(() -> {
-                    removeEdgeCallback.accept(source, target);
-                    return null;
-                });
-
-            if (policiesManager().stateOf(ON_ADD_EDGE_POLICY, source, target) == ACCEPT)
-                scope.fork(() -> {
-                    onDisconnect(source, target);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        var dispatch = new CallbackDispatch(callbackInlineLimit);
+        for (var removeEdgeCallback : removeEdgeCallbacks)
+            dispatch.add(() -> removeEdgeCallback.accept(source, target));
+
+        if (CallbackDispatch.overrides(this, "onDisconnect") && policiesManager().stateOf(ON_ADD_EDGE_POLICY, source, target) == ACCEPT)
+            dispatch.add(() -> onDisconnect(source, target));
+
+        dispatch.run();
     }
 
     /**
@@ -1092,6 +1642,146 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
         validationsManager().addValidationForOperation(REMOVE_EDGE_VALIDATION, predicate);
     }
 
+    /**
+     * Runs in the calling thread the callbacks of a vertex that has been added to the graph.
+     * @param v The vertex.
+     */
+    void runVertexAdditionCallbacks(V v) {
+        for (var addVertexCallback : addVertexCallbacks)
+            addVertexCallback.accept(v);
+
+        if (shouldCallOnEnterVertexFor(v))
+            onEnterVertex(v);
+
+        if (v.shouldCallOnEnterGraphFor(this))
+            v.onEnterGraph(this);
+    }
+
+    /**
+     * Runs in the calling thread the callbacks of a vertex that has been removed from the graph.
+     * @param v The vertex.
+     * @param parents The parents the vertex had before being removed.
+     * @param children The children the vertex had before being removed.
+     */
+    void runVertexRemovalCallbacks(V v, Collection<V> parents, Collection<V> children) {
+        for (var removeVertexCallback : removeVertexCallbacks)
+            removeVertexCallback.accept(v);
+
+        if (v.shouldCallOnLeaveGraphFor(this))
+            v.onLeaveGraph(this);
+
+        if (shouldCallOnLeaveVertexFor(v))
+            onLeaveVertex(v);
+
+        for (V parent : parents) {
+            if (v.shouldCallOnDisconnectParentFor(parent))
+                v.onDisconnectParent(parent, this);
+            if (parent.shouldCallOnDisconnectChildFor(v))
+                parent.onDisconnectChild(v, this);
+        }
+
+        for (V child : children) {
+            if (v.shouldCallOnDisconnectChildFor(child))
+                v.onDisconnectChild(child, this);
+            if (child.shouldCallOnDisconnectParentFor(v))
+                child.onDisconnectParent(v, this);
+        }
+    }
+
+    /**
+     * Runs in the calling thread the callbacks of an edge that has been added to the graph, including the ones of its
+     * vertices, under the same policies as {@link Vertex#addChild}.
+     * @param source The source vertex of the edge.
+     * @param target The target vertex of the edge.
+     */
+    @SuppressWarnings("unchecked")
+    void runEdgeAdditionCallbacks(V source, V target) {
+        for (var addEdgeCallback : addEdgeCallbacks)
+            addEdgeCallback.accept(source, target);
+
+        if (policiesManager().stateOf(ON_ADD_EDGE_POLICY, source, target) == ACCEPT)
+            onConnect(source, target);
+
+        // The vertex callbacks only take graphs of application edges, which E is bounded by
+        var graph = (Graph<?, ApplicationEdge>) this;
+        if (source.handlesConnectChild() && source.policiesManager().stateOf(ON_CONNECT_CHILD_POLICY, target) == ACCEPT)
+            source.onConnectChild(target, graph);
+
+        if (target.handlesConnectParent() && target.policiesManager().stateOf(ON_CONNECT_PARENT_POLICY, source) == ACCEPT)
+            target.onConnectParent(source, graph);
+    }
+
+    /**
+     * Runs in the calling thread the callbacks of an edge that has been removed from the graph, including the ones of
+     * its vertices, under the same policies as {@link Vertex#removeChild}.
+     * @param source The source vertex of the edge.
+     * @param target The target vertex of the edge.
+     */
+    void runEdgeRemovalCallbacks(V source, V target) {
+        for (var removeEdgeCallback : removeEdgeCallbacks)
+            removeEdgeCallback.accept(source, target);
+
+        if (policiesManager().stateOf(ON_ADD_EDGE_POLICY, source, target) == ACCEPT)
+            onDisconnect(source, target);
+
+        if (source.handlesDisconnectChild() && source.shouldCallOnDisconnectChildFor(target))
+            source.onDisconnectChild(target, this);
+
+        if (target.handlesDisconnectParent() && target.shouldCallOnDisconnectParentFor(source))
+            target.onDisconnectParent(source, this);
+    }
+
+    /**
+     * Registers a callback that is called with every vertex added to or removed from the graph.
+     * @param type The event of the callback.
+     * @param callback The callback.
+     */
+    public void addVertexCallback(VertexCallbackType type, Consumer<V> callback) {
+        Objects.requireNonNull(callback);
+        switch (type) {
+            case ON_ADD_VERTEX -> addVertexCallbacks.add(callback);
+            case ON_REMOVE_VERTEX -> removeVertexCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * Unregisters a callback registered with {@link #addVertexCallback(VertexCallbackType, Consumer)}.
+     * @param type The event of the callback.
+     * @param callback The callback.
+     */
+    public void removeVertexCallback(VertexCallbackType type, Consumer<V> callback) {
+        switch (type) {
+            case ON_ADD_VERTEX -> addVertexCallbacks.remove(callback);
+            case ON_REMOVE_VERTEX -> removeVertexCallbacks.remove(callback);
+        }
+    }
+
+    /**
+     * Registers a callback that is called with the source and the target of every edge added to or removed from the
+     * graph.
+     * @param type The event of the callback.
+     * @param callback The callback.
+     */
+    public void addEdgeCallback(EdgeCallbackType type, BiConsumer<V, V> callback) {
+        Objects.requireNonNull(callback);
+        switch (type) {
+            case ON_ADD_EDGE -> addEdgeCallbacks.add(callback);
+            case ON_REMOVE_EDGE -> removeEdgeCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * Unregisters a callback registered with {@link #addEdgeCallback(EdgeCallbackType, BiConsumer)}.
+     * @param type The event of the callback.
+     * @param callback The callback.
+     */
+    public void removeEdgeCallback(EdgeCallbackType type, BiConsumer<V, V> callback) {
+        switch (type) {
+            case ON_ADD_EDGE -> addEdgeCallbacks.remove(callback);
+            case ON_REMOVE_EDGE -> removeEdgeCallbacks.remove(callback);
+        }
+    }
+
     protected void onEnterVertex(V v) throws RuntimeException {}
 
     protected void onLeaveVertex(V v) throws RuntimeException {}
@@ -1113,6 +1803,21 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
         ON_ADD_EDGE, ON_REMOVE_EDGE
     }
 
+    /**
+     * How a graph is accessed by threads.
+     */
+    public enum ConcurrencyMode {
+        /**
+         * The graph is read and modified by one thread at a time, so it is not locked.
+         */
+        SINGLE_THREADED,
+        /**
+         * The graph may be read while it is being modified, so its structure is guarded by a lock. See
+         * {@link Graph#concurrencyMode(ConcurrencyMode)} for the methods that are not guarded.
+         */
+        CONCURRENT
+    }
+
     public sealed interface VertexAdditionFailure extends Graph.FailureOperationResult permits
             FailureResults.VertexAlreadyPresent,
             FailureResults.RejectedByGraphPolicy,
@@ -1174,5 +1879,16 @@ public non-sealed class Graph<V extends Vertex<V>, E extends ApplicationEdge> im
             FailureResults.RejectedByVertexValidation,
             FailureResults.VertexNotPresent {}
 
+    public sealed interface BatchFailure extends FailureOperationResult permits
+            FailureResults.GraphCycleDetected,
+            FailureResults.EdgeAlreadyExists,
+            FailureResults.EdgeNotPresent,
+            FailureResults.VertexAlreadyPresent,
+            FailureResults.VertexNotPresent,
+            FailureResults.RejectedByGraphPolicy,
+            FailureResults.RejectedByGraphValidation,
+            FailureResults.RejectedByVertexPolicy,
+            FailureResults.RejectedByVertexValidation {}
+
     public sealed interface CallbackType {}
 }
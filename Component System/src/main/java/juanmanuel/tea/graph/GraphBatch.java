@@ -0,0 +1,361 @@
+package juanmanuel.tea.graph;
+
+import juanmanuel.tea.graph.operation_failures.FailureResults;
+import juanmanuel.tea.utils.Result;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.*;
+
+import static juanmanuel.tea.utils.Result.fail;
+import static juanmanuel.tea.utils.Result.success;
+
+/// A set of vertex and edge additions and removals applied to a [Graph] as a single operation.
+///
+/// The operations are recorded by the batch and nothing is done until [#commit()] is called. On commit:
+/// 1. Every operation is checked against the policies and validations of the graph and of the vertices involved, as
+///    the equivalent [Graph] operation would do. Edge additions may refer to vertices added in the same batch.
+/// 2. The operations are applied in this order: edge removals, vertex removals, vertex additions and edge additions.
+///    Each new edge is checked for cycles against the [TopologicalOrder] of the graph, which only searches the region
+///    between its endpoints. If an edge would close a cycle, or the graph rejects any operation, the ones already
+///    applied are undone.
+/// 3. The graph [version][Graph#version()] changes once, and the callbacks of all the operations are run in a single
+///    pass in the calling thread, in the same order.
+///
+/// If any check fails, the graph is not modified and the failure of the first rejected operation is returned. Committing
+/// an empty batch succeeds without locking the graph or changing its version.
+///
+/// A batch can only be committed once.
+/// @param <V> The type of the vertices
+/// @param <E> The type of the edges
+@NullMarked
+public final class GraphBatch<V extends Vertex<V>, E extends ApplicationEdge> {
+    private final Graph<V, E> graph;
+    private final List<V> addedVertices = new ArrayList<>();
+    private final List<V> removedVertices = new ArrayList<>();
+    private final List<EdgeOperation<V>> addedEdges = new ArrayList<>();
+    private final List<EdgeOperation<V>> removedEdges = new ArrayList<>();
+    private boolean committed;
+
+    private record EdgeOperation<V>(V source, V target, double weight) {}
+
+    private record VertexRemoval<V, E>(V vertex, List<V> parents, List<V> children, List<E> ingress, List<E> egress) {}
+
+    GraphBatch(Graph<V, E> graph) {
+        this.graph = graph;
+    }
+
+    /// @param v The vertex to add
+    /// @return This batch
+    public GraphBatch<V, E> addVertex(V v) {
+        checkNotCommitted();
+        addedVertices.add(Objects.requireNonNull(v));
+        return this;
+    }
+
+    /// @param v The vertex to remove, along with its edges
+    /// @return This batch
+    public GraphBatch<V, E> removeVertex(V v) {
+        checkNotCommitted();
+        removedVertices.add(Objects.requireNonNull(v));
+        return this;
+    }
+
+    /// @param source The source vertex of the edge
+    /// @param target The target vertex of the edge
+    /// @return This batch
+    public GraphBatch<V, E> addEdge(V source, V target) {
+        return addEdge(source, target, 1.0);
+    }
+
+    /// @param source The source vertex of the edge
+    /// @param target The target vertex of the edge
+    /// @param weight The weight of the edge
+    /// @return This batch
+    public GraphBatch<V, E> addEdge(V source, V target, double weight) {
+        checkNotCommitted();
+        addedEdges.add(new EdgeOperation<>(Objects.requireNonNull(source), Objects.requireNonNull(target), weight));
+        return this;
+    }
+
+    /// @param source The source vertex of the edge
+    /// @param target The target vertex of the edge
+    /// @return This batch
+    public GraphBatch<V, E> removeEdge(V source, V target) {
+        checkNotCommitted();
+        removedEdges.add(new EdgeOperation<>(Objects.requireNonNull(source), Objects.requireNonNull(target), 0));
+        return this;
+    }
+
+    /// @return The number of operations recorded in the batch
+    public int size() {
+        return addedVertices.size() + removedVertices.size() + addedEdges.size() + removedEdges.size();
+    }
+
+    /// @return True if the batch has been committed
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    private void checkNotCommitted() {
+        if (committed)
+            throw new IllegalStateException("The batch has already been committed");
+    }
+
+    /// Validates and applies the operations of the batch, and then runs their callbacks.
+    /// @return A success if every operation was applied, or the failure of the first rejected operation, in which case
+    /// the graph is not modified
+    /// @throws IllegalStateException If the batch has already been committed
+    /// @throws GraphOperationException If the graph could not apply an operation that had been validated
+    public Result<Void, Graph.BatchFailure> commit() throws IllegalStateException, GraphOperationException {
+        checkNotCommitted();
+        committed = true;
+
+        if (size() == 0)
+            return success();
+
+        var failure = validate();
+        if (failure != null)
+            return fail(failure);
+
+        var removals = new ArrayList<VertexRemoval<V, E>>(removedVertices.size());
+        long stamp = graph.lockForWriting();
+        try {
+            failure = apply(removals);
+            if (failure != null)
+                return fail(failure);
+
+            graph.structureChanged();
+        } finally {
+            graph.unlockForWriting(stamp);
+        }
+
+        for (var edge : removedEdges)
+            graph.runEdgeRemovalCallbacks(edge.source(), edge.target());
+
+        for (var removal : removals)
+            graph.runVertexRemovalCallbacks(removal.vertex(), removal.parents(), removal.children());
+
+        for (V v : addedVertices)
+            graph.runVertexAdditionCallbacks(v);
+
+        for (var edge : addedEdges)
+            graph.runEdgeAdditionCallbacks(edge.source(), edge.target());
+
+        return success();
+    }
+
+    /// @return The failure of the first rejected operation, or null if every operation can be applied
+    private Graph.@Nullable BatchFailure validate() {
+        var removed = identitySet();
+        var added = identitySet();
+        var removedEdgeKeys = new HashSet<EdgeOperation<V>>();
+        var addedEdgeKeys = new HashSet<EdgeOperation<V>>();
+
+        for (var edge : removedEdges) {
+            if (!removedEdgeKeys.add(key(edge)))
+                return new FailureResults.EdgeNotPresent("The edge is removed twice in the batch");
+
+            if (graph.shouldRemoveEdge(edge.source(), edge.target()) instanceof Result.Failure<Void, Graph.ShouldRemoveEdgeFailure>(var f))
+                return switch (f) {
+                    case FailureResults.EdgeNotPresent edgeNotPresent -> edgeNotPresent;
+                    case FailureResults.RejectedByGraphPolicy rejectedByGraphPolicy -> rejectedByGraphPolicy;
+                    case FailureResults.RejectedByGraphValidation rejectedByGraphValidation -> rejectedByGraphValidation;
+                    case FailureResults.RejectedByVertexPolicy rejectedByVertexPolicy -> rejectedByVertexPolicy;
+                    case FailureResults.RejectedByVertexValidation rejectedByVertexValidation -> rejectedByVertexValidation;
+                    case FailureResults.VertexNotPresent vertexNotPresent -> vertexNotPresent;
+                };
+        }
+
+        for (V v : removedVertices) {
+            if (!removed.add(v))
+                return new FailureResults.VertexNotPresent("The vertex is removed twice in the batch", v);
+
+            if (graph.shouldRemoveVertex(v) instanceof Result.Failure<Void, Graph.ShouldRemoveVertexFailure>(var f))
+                return switch (f) {
+                    case FailureResults.RejectedByGraphPolicy rejectedByGraphPolicy -> rejectedByGraphPolicy;
+                    case FailureResults.RejectedByGraphValidation rejectedByGraphValidation -> rejectedByGraphValidation;
+                    case FailureResults.RejectedByVertexPolicy rejectedByVertexPolicy -> rejectedByVertexPolicy;
+                    case FailureResults.RejectedByVertexValidation rejectedByVertexValidation -> rejectedByVertexValidation;
+                    case FailureResults.VertexNotPresent vertexNotPresent -> vertexNotPresent;
+                };
+        }
+
+        for (V v : addedVertices) {
+            if (!added.add(v))
+                return new FailureResults.VertexAlreadyPresent("The vertex is added twice in the batch");
+
+            var result = removed.contains(v) ? graph.shouldAddVertexNoCheckIfPresent(v) : graph.shouldAddVertex(v);
+            if (result instanceof Result.Failure<Void, Graph.ShouldAddVertexFailure>(var f))
+                return switch (f) {
+                    case FailureResults.RejectedByGraphPolicy rejectedByGraphPolicy -> rejectedByGraphPolicy;
+                    case FailureResults.RejectedByGraphValidation rejectedByGraphValidation -> rejectedByGraphValidation;
+                    case FailureResults.RejectedByVertexPolicy rejectedByVertexPolicy -> rejectedByVertexPolicy;
+                    case FailureResults.RejectedByVertexValidation rejectedByVertexValidation -> rejectedByVertexValidation;
+                    case FailureResults.VertexAlreadyPresent vertexAlreadyPresent -> vertexAlreadyPresent;
+                };
+        }
+
+        for (var edge : addedEdges) {
+            V source = edge.source();
+            V target = edge.target();
+
+            if (source == target)
+                return new FailureResults.GraphCycleDetected("The edge addition would create a cycle in the graph");
+
+            if (!willContain(source, removed, added))
+                return new FailureResults.VertexNotPresent("The source vertex is not present in the graph", source);
+
+            if (!willContain(target, removed, added))
+                return new FailureResults.VertexNotPresent("The target vertex is not present in the graph", target);
+
+            boolean stillPresent = graph.containsEdge(source, target)
+                    && !removedEdgeKeys.contains(key(edge))
+                    && !removed.contains(source)
+                    && !removed.contains(target);
+            if (stillPresent || !addedEdgeKeys.add(key(edge)))
+                return new FailureResults.EdgeAlreadyExists("The edge already exists in the graph");
+
+            if (graph.edgeAdditionOperationCheck(source, target) instanceof Result.Failure<Void, Graph.ShouldAddEdgeFailure>(var f))
+                return switch (f) {
+                    case FailureResults.GraphCycleDetected graphCycleDetected -> graphCycleDetected;
+                    case FailureResults.EdgeAlreadyExists edgeAlreadyExists -> edgeAlreadyExists;
+                    case FailureResults.VertexNotPresent vertexNotPresent -> vertexNotPresent;
+                    case FailureResults.RejectedByGraphPolicy rejectedByGraphPolicy -> rejectedByGraphPolicy;
+                    case FailureResults.RejectedByGraphValidation rejectedByGraphValidation -> rejectedByGraphValidation;
+                    case FailureResults.RejectedByVertexPolicy rejectedByVertexPolicy -> rejectedByVertexPolicy;
+                    case FailureResults.RejectedByVertexValidation rejectedByVertexValidation -> rejectedByVertexValidation;
+                };
+        }
+
+        return null;
+    }
+
+    private boolean willContain(V v, Set<V> removed, Set<V> added) {
+        return added.contains(v) || (graph.containsVertex(v) && !removed.contains(v));
+    }
+
+    /// Applies the operations to the underlying graph and its topological order, undoing them if any of them fails.
+    /// @param removals Receives the removed vertices along with their former neighbours
+    /// @return The cycle created by an edge addition, or null if every operation was applied
+    private FailureResults.@Nullable GraphCycleDetected apply(List<VertexRemoval<V, E>> removals) {
+        var dag = graph.graph;
+        var adjacency = graph.adjacency();
+        var order = graph.topologicalOrder();
+        var reachability = graph.reachability();
+        var siblings = graph.siblingIndex();
+        var components = graph.componentIndex();
+        var undo = new ArrayDeque<Runnable>();
+
+        try {
+            for (var edge : removedEdges) {
+                E e = dag.removeEdge(edge.source(), edge.target());
+                if (e == null)
+                    throw new GraphOperationException("The edge could not be removed from the graph");
+                adjacency.edgeRemoved(edge.source(), edge.target());
+                reachability.edgeRemoved(edge.source());
+                siblings.parentsChanged(edge.target());
+                components.edgeRemoved(edge.source());
+                undo.push(() -> {
+                    dag.addEdge(edge.source(), edge.target(), e);
+                    adjacency.edgeAdded(edge.source(), edge.target());
+                });
+            }
+
+            for (V v : removedVertices) {
+                var ingress = List.copyOf(dag.incomingEdgesOf(v));
+                var egress = List.copyOf(dag.outgoingEdgesOf(v));
+                var parents = ingress.stream().map(dag::getEdgeSource).toList();
+                var children = egress.stream().map(dag::getEdgeTarget).toList();
+
+                if (!dag.removeVertex(v))
+                    throw new GraphOperationException("The vertex could not be removed from the graph");
+                order.vertexRemoved(v);
+                reachability.vertexRemoved(v);
+                siblings.vertexRemoved(v);
+                components.vertexRemoved(v);
+                adjacency.vertexRemoved(v);
+
+                var removal = new VertexRemoval<>(v, parents, children, ingress, egress);
+                removals.add(removal);
+                undo.push(() -> {
+                    dag.addVertex(v);
+                    adjacency.vertexAdded(v);
+                    for (int i = 0; i < ingress.size(); i++) {
+                        dag.addEdge(parents.get(i), v, ingress.get(i));
+                        adjacency.edgeAdded(parents.get(i), v);
+                    }
+                    for (int i = 0; i < egress.size(); i++) {
+                        dag.addEdge(v, children.get(i), egress.get(i));
+                        adjacency.edgeAdded(v, children.get(i));
+                    }
+                });
+            }
+
+            for (V v : addedVertices) {
+                if (!dag.addVertex(v))
+                    throw new GraphOperationException("The vertex could not be added to the graph");
+                adjacency.vertexAdded(v);
+                order.vertexAdded(v);
+                reachability.vertexAdded();
+                siblings.vertexAdded(v);
+                components.vertexAdded(v);
+                undo.push(() -> {
+                    dag.removeVertex(v);
+                    order.vertexRemoved(v);
+                    adjacency.vertexRemoved(v);
+                });
+            }
+
+            for (var edge : addedEdges) {
+                if (!order.edgeAdded(edge.source(), edge.target())) {
+                    rollback(undo, removals);
+                    return new FailureResults.GraphCycleDetected("The edge additions would create a cycle in the graph");
+                }
+
+                E e = dag.addEdge(edge.source(), edge.target());
+                if (e == null)
+                    throw new GraphOperationException("The edge could not be added to the graph");
+                adjacency.edgeAdded(edge.source(), edge.target());
+                reachability.edgeAdded(edge.source(), edge.target());
+                siblings.parentsChanged(edge.target());
+                components.edgeAdded(edge.source(), edge.target());
+                undo.push(() -> {
+                    dag.removeEdge(e);
+                    adjacency.edgeRemoved(edge.source(), edge.target());
+                });
+                dag.setEdgeWeight(e, edge.weight());
+            }
+        } catch (RuntimeException e) {
+            rollback(undo, removals);
+
+            throw e instanceof GraphOperationException goe
+                    ? goe
+                    : new GraphOperationException("The batch could not be applied to the graph: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    /// Undoes the applied operations. The order is still valid after undoing edge and vertex additions, but the edges
+    /// and vertices restored may not fit in it, as the additions applied meanwhile may have reordered their vertices, so
+    /// it is recomputed if any edge or vertex was removed.
+    private void rollback(Deque<Runnable> undo, List<VertexRemoval<V, E>> removals) {
+        while (!undo.isEmpty())
+            undo.pop().run();
+
+        graph.reachability().clear();
+        graph.siblingIndex().rebuild();
+        graph.componentIndex().rebuild();
+        if (!removals.isEmpty() || !removedEdges.isEmpty())
+            graph.topologicalOrder().rebuild();
+    }
+
+    private static <V> EdgeOperation<V> key(EdgeOperation<V> edge) {
+        return edge.weight() == 0 ? edge : new EdgeOperation<>(edge.source(), edge.target(), 0);
+    }
+
+    private Set<V> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
@@ -0,0 +1,164 @@
+package juanmanuel.tea.graph;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/// Answers whether there is a path between two vertices of a [Graph].
+///
+/// Most negative answers come from the [TopologicalOrder] of the graph in constant time: a vertex never reaches a
+/// vertex placed before it. The rest are answered from the descendant set of the source vertex, a bit set over the ids
+/// of the [AdjacencyIndex], which is computed the first time the vertex is queried and then kept.
+///
+/// The kept sets are maintained as the graph changes. Adding an edge replaces the sets that contain its source with
+/// copies extended with the new descendants. Removing an edge or a vertex drops the sets that may have lost vertices,
+/// which are computed again on the next query.
+///
+/// Queries can run concurrently with each other, but not with modifications of the graph.
+/// @param <V> The type of the vertices
+@NullMarked
+public final class ReachabilityIndex<V extends Vertex<V>> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Graph<V, ?> graph;
+    private volatile AtomicReferenceArray<BitSet> descendants = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    // Ids with a kept set, so modifications only visit those
+    private final BitSet cached = new BitSet();
+
+    ReachabilityIndex(Graph<V, ?> graph) {
+        this.graph = graph;
+    }
+
+    /// @param source The source vertex
+    /// @param target The target vertex
+    /// @return True if there is a path of at least one edge from the source to the target
+    public boolean reaches(V source, V target) {
+        if (!graph.topologicalOrder().isBefore(source, target))
+            return false;
+
+        var adjacency = graph.adjacency();
+        return descendantsOf(adjacency.idOf(source)).get(adjacency.idOf(target));
+    }
+
+    /// @param source The id of the source vertex in the adjacency index
+    /// @return The ids of the vertices reachable from the source. The set must not be modified
+    BitSet descendantsOf(int source) {
+        var cache = descendants;
+        var set = source < cache.length() ? cache.get(source) : null;
+        if (set == null) {
+            set = compute(source);
+            if (source < cache.length() && cache.compareAndSet(source, null, set))
+                synchronized (cached) {
+                    cached.set(source);
+                }
+        }
+        return set;
+    }
+
+    private BitSet compute(int source) {
+        var adjacency = graph.adjacency();
+        var set = new BitSet(adjacency.idBound());
+        // Every id is pushed at most once
+        int[] stack = new int[adjacency.idBound()];
+        int top = 0;
+        stack[top++] = source;
+
+        while (top > 0) {
+            int id = stack[--top];
+            for (int i = 0, n = adjacency.outDegree(id); i < n; i++) {
+                int child = adjacency.child(id, i);
+                if (!set.get(child)) {
+                    set.set(child);
+                    stack[top++] = child;
+                }
+            }
+        }
+
+        return set;
+    }
+
+    /// Makes room for the ids of the adjacency index.
+    void vertexAdded() {
+        int bound = graph.adjacency().idBound();
+        var cache = descendants;
+        if (bound > cache.length()) {
+            var grown = new AtomicReferenceArray<BitSet>(Math.max(bound, cache.length() * 2));
+            for (int i = 0; i < cache.length(); i++)
+                grown.set(i, cache.get(i));
+            descendants = grown;
+        }
+    }
+
+    /// Drops the sets that contain the vertex, as it may have connected some of their vertices. Must be called before
+    /// the vertex is removed from the adjacency index.
+    /// @param v The vertex being removed
+    void vertexRemoved(V v) {
+        int id = graph.adjacency().idOf(v);
+        if (id >= 0)
+            invalidateContaining(id);
+    }
+
+    /// Extends the sets that contain the source with the target and its descendants. Must be called after the edge is
+    /// added to the adjacency index.
+    /// @param source The source vertex of the edge
+    /// @param target The target vertex of the edge
+    void edgeAdded(V source, V target) {
+        var adjacency = graph.adjacency();
+        int s = adjacency.idOf(source);
+        int t = adjacency.idOf(target);
+        var cache = descendants;
+
+        @Nullable BitSet added = null;
+        for (int i = nextCached(0); i >= 0; i = nextCached(i + 1)) {
+            var set = cache.get(i);
+            if (set == null || (i != s && !set.get(s)) || set.get(t))
+                continue;
+
+            if (added == null) {
+                added = (BitSet) descendantsOf(t).clone();
+                added.set(t);
+            }
+
+            var extended = (BitSet) set.clone();
+            extended.or(added);
+            cache.set(i, extended);
+        }
+    }
+
+    /// Drops the sets that may have lost vertices. Must be called after the edge is removed from the adjacency index.
+    /// @param source The source vertex of the edge
+    void edgeRemoved(V source) {
+        int s = graph.adjacency().idOf(source);
+        if (s >= 0)
+            invalidateContaining(s);
+    }
+
+    private void invalidateContaining(int id) {
+        var cache = descendants;
+        for (int i = nextCached(0); i >= 0; i = nextCached(i + 1)) {
+            var set = cache.get(i);
+            if (i == id || (set != null && set.get(id))) {
+                cache.set(i, null);
+                synchronized (cached) {
+                    cached.clear(i);
+                }
+            }
+        }
+    }
+
+    private int nextCached(int from) {
+        synchronized (cached) {
+            return cached.nextSetBit(from);
+        }
+    }
+
+    /// Drops every set.
+    void clear() {
+        descendants = new AtomicReferenceArray<>(Math.max(INITIAL_CAPACITY, graph.adjacency().idBound()));
+        synchronized (cached) {
+            cached.clear();
+        }
+    }
+}
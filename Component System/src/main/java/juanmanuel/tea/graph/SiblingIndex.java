@@ -0,0 +1,182 @@
+package juanmanuel.tea.graph;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.*;
+
+/// Groups the vertices of a [Graph] by their set of parents.
+///
+/// Every vertex with at least one parent belongs to the group of the vertices with exactly the same parents, its full
+/// siblings. The parent set of a vertex is identified by the sorted ids of its parents in the [AdjacencyIndex], so
+/// finding the group of a vertex, or checking if two vertices are full siblings, takes constant time. The group of a
+/// vertex is updated when its parents change.
+///
+/// The vertices of a group have the same dependencies, so they can be dispatched together once those are satisfied.
+///
+/// The index is owned and updated by its graph, use [Graph#siblingIndex()] to obtain it.
+/// @param <V> The type of the vertices
+@NullMarked
+public final class SiblingIndex<V extends Vertex<V>> {
+    private static final int[] NO_PARENTS = new int[0];
+
+    private final Graph<V, ?> graph;
+    private final Map<ParentSet, Group<V>> groups = new HashMap<>();
+    private @Nullable Group<V>[] groupOf = newGroups(16);
+
+    /// The sorted ids of the parents of a vertex.
+    private record ParentSet(int[] parents, int hash) {
+        private ParentSet(int[] parents) {
+            this(parents, Arrays.hashCode(parents));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ParentSet(int[] otherParents, int otherHash)
+                    && hash == otherHash
+                    && Arrays.equals(parents, otherParents);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Group<V> {
+        private final ParentSet parents;
+        private final Set<V> members = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Group(ParentSet parents) {
+            this.parents = parents;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> @Nullable Group<V>[] newGroups(int length) {
+        return (Group<V>[]) new Group<?>[length];
+    }
+
+    SiblingIndex(Graph<V, ?> graph) {
+        this.graph = graph;
+    }
+
+    /// Places a new vertex, which has no parents yet.
+    /// @param v The vertex added to the graph
+    synchronized void vertexAdded(V v) {
+        regroup(graph.adjacency().idOf(v), -1);
+    }
+
+    /// Removes the vertex from its group and regroups its children. Must be called before the vertex is removed from the
+    /// adjacency index.
+    /// @param v The vertex being removed
+    synchronized void vertexRemoved(V v) {
+        var adjacency = graph.adjacency();
+        int id = adjacency.idOf(v);
+        if (id < 0)
+            return;
+
+        leave(id);
+        for (int i = 0, n = adjacency.outDegree(id); i < n; i++)
+            regroup(adjacency.child(id, i), id);
+    }
+
+    /// Regroups the target of an edge after it has been added to or removed from the adjacency index.
+    /// @param target The target vertex of the edge
+    synchronized void parentsChanged(V target) {
+        int id = graph.adjacency().idOf(target);
+        if (id >= 0)
+            regroup(id, -1);
+    }
+
+    /// Regroups every vertex.
+    synchronized void rebuild() {
+        groups.clear();
+        Arrays.fill(groupOf, null);
+        var adjacency = graph.adjacency();
+        for (int id = 0; id < adjacency.idBound(); id++)
+            if (adjacency.vertex(id) != null)
+                regroup(id, -1);
+    }
+
+    /// Moves a vertex to the group of its current parents, ignoring the excluded parent id.
+    private void regroup(int id, int excluded) {
+        leave(id);
+
+        var adjacency = graph.adjacency();
+        int degree = adjacency.inDegree(id);
+        int[] parents = degree == 0 ? NO_PARENTS : new int[degree];
+        int count = 0;
+        for (int i = 0; i < degree; i++) {
+            int parent = adjacency.parent(id, i);
+            if (parent != excluded)
+                parents[count++] = parent;
+        }
+
+        if (count == 0)
+            return;
+
+        if (count < degree)
+            parents = Arrays.copyOf(parents, count);
+        Arrays.sort(parents);
+
+        if (id >= groupOf.length)
+            groupOf = Arrays.copyOf(groupOf, Math.max(id + 1, groupOf.length * 2));
+
+        var group = groups.computeIfAbsent(new ParentSet(parents), Group<V>::new);
+        group.members.add(Objects.requireNonNull(adjacency.vertex(id)));
+        groupOf[id] = group;
+    }
+
+    private void leave(int id) {
+        if (id >= groupOf.length)
+            return;
+
+        var group = groupOf[id];
+        if (group == null)
+            return;
+
+        groupOf[id] = null;
+        group.members.remove(graph.adjacency().vertex(id));
+        if (group.members.isEmpty())
+            groups.remove(group.parents);
+    }
+
+    private @Nullable Group<V> find(V v) {
+        int id = graph.adjacency().idOf(v);
+        return id < 0 || id >= groupOf.length ? null : groupOf[id];
+    }
+
+    /// @param first A vertex
+    /// @param second Another vertex
+    /// @return True if both vertices are different and have the same parents, and they have at least one
+    public synchronized boolean areFullSiblings(V first, V second) {
+        var group = find(first);
+        return first != second && group != null && group == find(second);
+    }
+
+    /// @param v The vertex
+    /// @return The vertices with the same parents as the given one, including itself, or an empty set if it has no
+    /// parents or is not in the graph
+    public synchronized Set<V> groupOf(V v) {
+        var group = find(v);
+        return group == null ? new HashSet<>() : new HashSet<>(group.members);
+    }
+
+    /// @param v The vertex
+    /// @return The vertices with the same parents as the given one, excluding itself
+    public synchronized Set<V> fullSiblingsOf(V v) {
+        var siblings = groupOf(v);
+        siblings.remove(v);
+        return siblings;
+    }
+
+    /// @return The groups of vertices with the same parents, including the groups of a single vertex. Vertices without
+    /// parents are not grouped
+    public synchronized List<Set<V>> groups() {
+        var list = new ArrayList<Set<V>>(groups.size());
+        for (var group : groups.values())
+            list.add(new HashSet<>(group.members));
+        return list;
+    }
+}
@@ -0,0 +1,298 @@
+package juanmanuel.tea.graph;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/// Topological order of the vertices of a [Graph], maintained incrementally as the graph changes.
+///
+/// Every vertex has a position, and for every edge the position of the source is lower than the position of the
+/// target. Positions are not dense: removing a vertex leaves a gap, which is reclaimed when the gaps outnumber the
+/// vertices.
+///
+/// Edge insertions follow the algorithm of Pearce and Kelly. An edge that already agrees with the order costs
+/// constant time. Otherwise, only the vertices positioned between the target and the source of the edge that are
+/// reachable from the target, or can reach the source, are visited and reordered. Reaching the source from the target
+/// means the edge would close a cycle, so the same search is the cycle check of the graph.
+///
+/// The order is owned and updated by its graph, use [Graph#topologicalOrder()] to obtain it. Like the graph, it must
+/// not be modified while it is being read.
+/// @param <V> The type of the vertices
+@NullMarked
+public final class TopologicalOrder<V extends Vertex<V>> implements Iterable<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private final Graph<V, ?> graph;
+    private final Map<V, Node<V>> nodes = new IdentityHashMap<>();
+    private Node<V>[] slots = newSlots(MIN_CAPACITY);
+    private Node<V>[] byId = newSlots(MIN_CAPACITY);
+    private int end;
+
+    private static final class Node<V> {
+        private final V vertex;
+        private final int id;
+        private int position;
+        private boolean visited;
+
+        private Node(V vertex, int id, int position) {
+            this.vertex = vertex;
+            this.id = id;
+            this.position = position;
+        }
+    }
+
+    TopologicalOrder(Graph<V, ?> graph) {
+        this.graph = graph;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] newSlots(int capacity) {
+        return (Node<V>[]) new Node<?>[capacity];
+    }
+
+    /// Places a new vertex after every other vertex. The vertex must already be in the [AdjacencyIndex] of the graph.
+    /// @param v The vertex added to the graph
+    void vertexAdded(V v) {
+        if (nodes.containsKey(v))
+            return;
+
+        if (end == slots.length)
+            compact(Math.max(MIN_CAPACITY, nodes.size() * 2 + 1));
+
+        int id = graph.adjacency().idOf(v);
+        if (id >= byId.length)
+            byId = Arrays.copyOf(byId, Math.max(id + 1, byId.length * 2));
+
+        var node = new Node<>(v, id, end);
+        slots[end++] = node;
+        byId[id] = node;
+        nodes.put(v, node);
+    }
+
+    /// @param v The vertex removed from the graph
+    void vertexRemoved(V v) {
+        var node = nodes.remove(v);
+        if (node == null)
+            return;
+
+        slots[node.position] = null;
+        byId[node.id] = null;
+        if (end > MIN_CAPACITY && end > nodes.size() * 2)
+            compact(slots.length);
+    }
+
+    /// Renumbers the vertices with consecutive positions.
+    private void compact(int capacity) {
+        Node<V>[] compacted = newSlots(capacity);
+        int position = 0;
+        for (int i = 0; i < end; i++) {
+            var node = slots[i];
+            if (node != null) {
+                node.position = position;
+                compacted[position++] = node;
+            }
+        }
+        slots = compacted;
+        end = position;
+    }
+
+    /// Updates the order for a new edge, which must not have been added to the underlying graph yet.
+    /// @param source The source vertex of the edge
+    /// @param target The target vertex of the edge
+    /// @return False if the edge would create a cycle, in which case the order is not modified
+    boolean edgeAdded(V source, V target) {
+        var sourceNode = nodes.get(source);
+        var targetNode = nodes.get(target);
+        if (sourceNode == null || targetNode == null)
+            throw new GraphOperationException("The vertices of the edge are not in the topological order");
+
+        if (sourceNode == targetNode)
+            return false;
+
+        int lowerBound = targetNode.position;
+        int upperBound = sourceNode.position;
+        if (upperBound < lowerBound)
+            return true;
+
+        // Affected region: vertices in (lowerBound, upperBound) reachable from the target or reaching the source
+        var forward = new ArrayList<Node<V>>();
+        boolean cycle = !forward(targetNode, sourceNode, upperBound, forward);
+        var backward = new ArrayList<Node<V>>();
+        if (!cycle)
+            backward(sourceNode, lowerBound, backward);
+
+        for (var node : forward)
+            node.visited = false;
+        for (var node : backward)
+            node.visited = false;
+
+        if (cycle)
+            return false;
+
+        reorder(backward, forward);
+        return true;
+    }
+
+    /// Collects the vertices reachable from the start positioned before the upper bound.
+    /// @return False if the stop vertex is reachable
+    private boolean forward(Node<V> start, Node<V> stop, int upperBound, List<Node<V>> visited) {
+        var adjacency = graph.adjacency();
+        var stack = new ArrayDeque<Node<V>>();
+        start.visited = true;
+        visited.add(start);
+        stack.push(start);
+
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            for (int i = 0, n = adjacency.outDegree(node.id); i < n; i++) {
+                var child = byId[adjacency.child(node.id, i)];
+                if (child == stop)
+                    return false;
+
+                if (child != null && !child.visited && child.position < upperBound) {
+                    child.visited = true;
+                    visited.add(child);
+                    stack.push(child);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /// Collects the vertices that reach the start positioned after the lower bound.
+    private void backward(Node<V> start, int lowerBound, List<Node<V>> visited) {
+        var adjacency = graph.adjacency();
+        var stack = new ArrayDeque<Node<V>>();
+        start.visited = true;
+        visited.add(start);
+        stack.push(start);
+
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            for (int i = 0, n = adjacency.inDegree(node.id); i < n; i++) {
+                var parent = byId[adjacency.parent(node.id, i)];
+                if (parent != null && !parent.visited && parent.position > lowerBound) {
+                    parent.visited = true;
+                    visited.add(parent);
+                    stack.push(parent);
+                }
+            }
+        }
+    }
+
+    /// Moves the vertices that reach the source before the vertices reachable from the target, reusing their positions
+    /// and keeping the relative order of each group.
+    private void reorder(List<Node<V>> backward, List<Node<V>> forward) {
+        Comparator<Node<V>> byPosition = Comparator.comparingInt(node -> node.position);
+        backward.sort(byPosition);
+        forward.sort(byPosition);
+
+        int[] positions = new int[backward.size() + forward.size()];
+        int i = 0;
+        for (var node : backward)
+            positions[i++] = node.position;
+        for (var node : forward)
+            positions[i++] = node.position;
+        Arrays.sort(positions);
+
+        i = 0;
+        for (var node : backward)
+            place(node, positions[i++]);
+        for (var node : forward)
+            place(node, positions[i++]);
+    }
+
+    private void place(Node<V> node, int position) {
+        node.position = position;
+        slots[position] = node;
+    }
+
+    /// Recomputes the order from the current structure of the graph.
+    void rebuild() {
+        nodes.clear();
+        slots = newSlots(Math.max(MIN_CAPACITY, graph.graph.vertexSet().size()));
+        byId = newSlots(Math.max(MIN_CAPACITY, graph.adjacency().idBound()));
+        end = 0;
+        for (V v : graph.graph)
+            vertexAdded(v);
+    }
+
+    /// @return The number of vertices in the order
+    public int size() {
+        return nodes.size();
+    }
+
+    /// @param v The vertex
+    /// @return True if the vertex is in the order
+    public boolean contains(V v) {
+        return nodes.containsKey(v);
+    }
+
+    /// @param v The vertex
+    /// @return The position of the vertex, or -1 if it is not in the order
+    public int positionOf(V v) {
+        var node = nodes.get(v);
+        return node == null ? -1 : node.position;
+    }
+
+    /// If the first vertex comes after the second one, there is no path from the first vertex to the second one.
+    /// @param first The first vertex
+    /// @param second The second vertex
+    /// @return True if both vertices are in the order and the first one comes before the second one
+    public boolean isBefore(V first, V second) {
+        var firstNode = nodes.get(first);
+        var secondNode = nodes.get(second);
+        return firstNode != null && secondNode != null && firstNode.position < secondNode.position;
+    }
+
+    /// @return The vertices in topological order
+    public List<V> toList() {
+        var list = new ArrayList<V>(nodes.size());
+        forEach(list::add);
+        return list;
+    }
+
+    @Override
+    public void forEach(Consumer<? super V> action) {
+        for (int i = 0; i < end; i++) {
+            var node = slots[i];
+            if (node != null)
+                action.accept(node.vertex);
+        }
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<>() {
+            private int next = advance(0);
+
+            private int advance(int from) {
+                while (from < end && slots[from] == null)
+                    from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public V next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                var node = Objects.requireNonNull(slots[next]);
+                next = advance(next + 1);
+                return node.vertex;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "TopologicalOrder" + toList();
+    }
+}
@@ -1,10 +1,12 @@
 package juanmanuel.tea.graph;
 
 import juanmanuel.tea.graph.callbacks.VertexCallbackManager;
+import juanmanuel.tea.graph.callbacks.VertexCallbackManager.Delivery;
 import juanmanuel.tea.graph.callbacks.vertex.GraphCallbackType;
 import juanmanuel.tea.graph.callbacks.vertex.VertexCallbackType;
 import juanmanuel.tea.graph.operation_failures.FailureResults;
 import juanmanuel.tea.graph.operation_failures.vertex.*;
+import juanmanuel.tea.graph.policy.PolicyBits;
 import juanmanuel.tea.graph.policy.PolicyState;
 import juanmanuel.tea.graph.policy.VertexOperationsPolicies;
 import juanmanuel.tea.graph.validation.VertexOperationValidator;
@@ -14,10 +16,10 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.util.*;
-import java.util.concurrent.StructuredTaskScope;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static juanmanuel.tea.graph.policy.PolicyState.ACCEPT;
 import static juanmanuel.tea.graph.policy.PolicyState.UNSET;
@@ -58,6 +60,14 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
     /// Defines if the policy should accept the operation when its state is [UNSET][PolicyState].
     protected boolean acceptOnUnsetPolicy;
 
+    /// The states of the policies that a policies manager, usually the one of a graph, set for this vertex. Attached by
+    /// [ElementPolicyBits] when the first of those rules is set.
+    volatile @Nullable PolicyBits policyBits;
+
+    static {
+        ElementPolicyBits.install();
+    }
+
     /// @return True if the operation should be accepted when the policy state is
     /// [UNSET][PolicyState]
     public boolean acceptOnUnsetPolicy() {
@@ -70,6 +80,13 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
         this.acceptOnUnsetPolicy = acceptOnUnsetPolicy;
     }
 
+    /// Gets the states of the policies set for this vertex by another policies manager. Used by the policies managers to
+    /// keep those states in the vertex instead of in a weak map.
+    /// @return The policy bits of this vertex, or null if no manager set a rule for it.
+    final @Nullable PolicyBits policyBits() {
+        return policyBits;
+    }
+
     /// Gets the policies manager of this vertex or creates it if it does not exist.
     /// @return The policies manager of this vertex.
     protected VertexOperationsPolicies policiesManager() {
@@ -269,6 +286,59 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
         return !graph.ingressEdgesOf(self()).isEmpty();
     }
 
+    /// Gets the callbacks manager without creating it, unless a subclass provides its own.
+    private @Nullable VertexCallbackManager<Self> existingCallbacksManager() {
+        return CallbackDispatch.overrides(this, "callbacksManager") ? callbacksManager() : callbacksManager;
+    }
+
+    /// Checks if a callback method of this vertex has something to run: it is overridden, the callbacks it runs are
+    /// taken from an overridden method, or there are callbacks registered for it.
+    private boolean handles(String method, String callbacksMethod, VertexCallbackType type) {
+        if (CallbackDispatch.overrides(this, method) || CallbackDispatch.overrides(this, callbacksMethod))
+            return true;
+
+        var manager = existingCallbacksManager();
+        return manager != null && manager.hasCallbacksFor(type);
+    }
+
+    private boolean handles(String method, String callbacksMethod, GraphCallbackType type) {
+        if (CallbackDispatch.overrides(this, method) || CallbackDispatch.overrides(this, callbacksMethod))
+            return true;
+
+        var manager = existingCallbacksManager();
+        return manager != null && manager.hasCallbacksFor(type);
+    }
+
+    /// @return True if [#onConnectChild] has something to run
+    final boolean handlesConnectChild() {
+        return handles("onConnectChild", "enterChildCallbacks", VertexCallbackType.ON_CONNECT_CHILD);
+    }
+
+    /// @return True if [#onConnectParent] has something to run
+    final boolean handlesConnectParent() {
+        return handles("onConnectParent", "enterParentCallbacks", VertexCallbackType.ON_CONNECT_PARENT);
+    }
+
+    /// @return True if [#onDisconnectChild] has something to run
+    final boolean handlesDisconnectChild() {
+        return handles("onDisconnectChild", "leaveChildCallbacks", VertexCallbackType.ON_DISCONNECT_CHILD);
+    }
+
+    /// @return True if [#onDisconnectParent] has something to run
+    final boolean handlesDisconnectParent() {
+        return handles("onDisconnectParent", "leaveParentCallbacks", VertexCallbackType.ON_DISCONNECT_PARENT);
+    }
+
+    /// @return True if [#onEnterGraph] has something to run
+    final boolean handlesEnterGraph() {
+        return handles("onEnterGraph", "enterGraphCallbacks", GraphCallbackType.ON_ENTER_GRAPH);
+    }
+
+    /// @return True if [#onLeaveGraph] has something to run
+    final boolean handlesLeaveGraph() {
+        return handles("onLeaveGraph", "leaveGraphCallbacks", GraphCallbackType.ON_LEAVE_GRAPH);
+    }
+
     protected Set<BiConsumer<Self, Graph<?, ?>>> enterChildCallbacks() {
         return callbacksManager().getCallbacksFor(VertexCallbackType.ON_CONNECT_CHILD);
     }
@@ -302,6 +372,16 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
         callbacksManager().addCallback(callback, VertexCallbackType.ON_CONNECT_CHILD);
     }
 
+    /**
+     * Adds a callback to be called when a tail is added to this GameObject.
+     * @param callback The callback to add.
+     * @param delivery How the callback is delivered.
+     */
+    public final void addOnConnectChildCallback(BiConsumer<Self, Graph<?, ?>> callback, Delivery delivery) {
+        Objects.requireNonNull(callback);
+        callbacksManager().addCallback(callback, VertexCallbackType.ON_CONNECT_CHILD, delivery);
+    }
+
     /**
      * Adds a callback to be called when a head is added to this GameObject.
      * @param callback A Consumer that takes the head that this GameObject was added to as a parameter.
@@ -311,6 +391,16 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
         callbacksManager().addCallback(callback, VertexCallbackType.ON_CONNECT_PARENT);
     }
 
+    /**
+     * Adds a callback to be called when a head is added to this GameObject.
+     * @param callback The callback to add.
+     * @param delivery How the callback is delivered.
+     */
+    public final void addOnConnectParentCallback(BiConsumer<Self, Graph<?, ?>> callback, Delivery delivery) {
+        Objects.requireNonNull(callback);
+        callbacksManager().addCallback(callback, VertexCallbackType.ON_CONNECT_PARENT, delivery);
+    }
+
     /**
      * Adds a callback to be called when a tail is removed from this GameObject.
      * @param callback A Consumer that takes the tail that was removed as a parameter.
@@ -320,6 +410,16 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
         callbacksManager().addCallback(callback, VertexCallbackType.ON_DISCONNECT_CHILD);
     }
 
+    /**
+     * Adds a callback to be called when a tail is removed from this GameObject.
+     * @param callback The callback to add.
+     * @param delivery How the callback is delivered.
+     */
+    public final void addOnLeaveChildCallback(BiConsumer<Self, Graph<?, ?>> callback, Delivery delivery) {
+        Objects.requireNonNull(callback);
+        callbacksManager().addCallback(callback, VertexCallbackType.ON_DISCONNECT_CHILD, delivery);
+    }
+
     /**
      * Adds a callback to be called when a head is removed from this GameObject.
      * @param callback A Consumer that takes the head that this GameObject was removed from as a parameter.
@@ -329,16 +429,46 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
         callbacksManager().addCallback(callback, VertexCallbackType.ON_DISCONNECT_PARENT);
     }
 
+    /**
+     * Adds a callback to be called when a head is removed from this GameObject.
+     * @param callback The callback to add.
+     * @param delivery How the callback is delivered.
+     */
+    public final void addOnLeaveParentCallback(BiConsumer<Self, Graph<?, ?>> callback, Delivery delivery) {
+        Objects.requireNonNull(callback);
+        callbacksManager().addCallback(callback, VertexCallbackType.ON_DISCONNECT_PARENT, delivery);
+    }
+
     public final void addOnEnterGraphCallback(Consumer<Graph<?, ?>> callback) {
         Objects.requireNonNull(callback);
         callbacksManager().addCallback(callback, GraphCallbackType.ON_ENTER_GRAPH);
     }
 
+    /**
+     * Adds a callback to be called when this GameObject is added to a graph.
+     * @param callback The callback to add.
+     * @param delivery How the callback is delivered.
+     */
+    public final void addOnEnterGraphCallback(Consumer<Graph<?, ?>> callback, Delivery delivery) {
+        Objects.requireNonNull(callback);
+        callbacksManager().addCallback(callback, GraphCallbackType.ON_ENTER_GRAPH, delivery);
+    }
+
     public final void addOnExitGraphCallback(Consumer<Graph<?, ?>> callback) {
         Objects.requireNonNull(callback);
         callbacksManager().addCallback(callback, GraphCallbackType.ON_LEAVE_GRAPH);
     }
 
+    /**
+     * Adds a callback to be called when this GameObject is removed from a graph.
+     * @param callback The callback to add.
+     * @param delivery How the callback is delivered.
+     */
+    public final void addOnExitGraphCallback(Consumer<Graph<?, ?>> callback, Delivery delivery) {
+        Objects.requireNonNull(callback);
+        callbacksManager().addCallback(callback, GraphCallbackType.ON_LEAVE_GRAPH, delivery);
+    }
+
     /**
      * Determines if a child node can be connected to the current node in the specified graph.
      * This vertex and the child vertex should be present in the graph
@@ -658,29 +788,17 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
 
     /// Processes the post-connection callbacks for the child node.
     private void postConnectChildProcess(Self child, Graph<?, ApplicationEdge> graph) {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            scope.fork(() -> {
-                // Call Vertex::onConnectChild callback if the policy permits it
-                switch (policiesManager().stateOf(ON_CONNECT_CHILD_POLICY, child)) {
-                    case ACCEPT -> this.onConnectChild(child, graph);
-                    case REJECT, UNSET -> {}
-                }
-                return null;
-            });
-
-            scope.fork(() -> {
-                // Call Vertex::onConnectParent callback on the child if the policy permits it
-                switch (child.policiesManager().stateOf(ON_CONNECT_PARENT_POLICY, self())) {
-                    case ACCEPT -> child.onConnectParent(self(), graph);
-                    case REJECT, UNSET -> {}
-                }
-                return null;
-            });
+        var dispatch = new CallbackDispatch(graph.callbackInlineLimit());
 
-            scope.join();
-        } catch (InterruptedException ex) {
-            throw new RuntimeException(ex);
-        }
+        // Call Vertex::onConnectChild callback if the policy permits it
+        if (handlesConnectChild() && policiesManager().stateOf(ON_CONNECT_CHILD_POLICY, child) == ACCEPT)
+            dispatch.add(() -> this.onConnectChild(child, graph));
+
+        // Call Vertex::onConnectParent callback on the child if the policy permits it
+        if (child.handlesConnectParent() && child.policiesManager().stateOf(ON_CONNECT_PARENT_POLICY, self()) == ACCEPT)
+            dispatch.add(() -> child.onConnectParent(self(), graph));
+
+        dispatch.run();
     }
 
     /// Connects a parent to the current node if possible.
@@ -724,29 +842,17 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
     }
 
     private void postConnectParentProcess(Self parent, Graph<? super Self, ApplicationEdge> graph) {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            scope.fork(() -> {
-                // Call Vertex::onConnectChild callback on the parent if the policy permits it
-                switch (parent.policiesManager().stateOf(ON_CONNECT_CHILD_POLICY, self())) {
-                    case ACCEPT -> this.onConnectChild(self(), graph);
-                    case REJECT, UNSET -> {}
-                }
-                return null;
-            });
-
-            scope.fork(() -> {
-                // Call Vertex::onConnectParent callback if the policy permits it
-                switch (policiesManager().stateOf(ON_CONNECT_PARENT_POLICY, parent)) {
-                    case ACCEPT -> onConnectParent(parent, graph);
-                    case REJECT, UNSET -> {}
-                }
-                return null;
-            });
+        var dispatch = new CallbackDispatch(graph.callbackInlineLimit());
 
-            scope.join();
-        } catch (InterruptedException ex) {
-            throw new RuntimeException(ex);
-        }
+        // Call Vertex::onConnectChild callback on the parent if the policy permits it
+        if (parent.handlesConnectChild() && parent.policiesManager().stateOf(ON_CONNECT_CHILD_POLICY, self()) == ACCEPT)
+            dispatch.add(() -> parent.onConnectChild(self(), graph));
+
+        // Call Vertex::onConnectParent callback if the policy permits it
+        if (handlesConnectParent() && policiesManager().stateOf(ON_CONNECT_PARENT_POLICY, parent) == ACCEPT)
+            dispatch.add(() -> onConnectParent(parent, graph));
+
+        dispatch.run();
     }
 
     /// Adds a child to the current node if possible.
@@ -916,35 +1022,14 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
             };
 
             case Result.Success<ApplicationEdge, Graph.EdgeRemovalFailure>(var e) -> {
-                try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-                    scope.fork(() -> {
-                        switch (policiesManager().stateOf(ON_DISCONNECT_CHILD_POLICY, child)) {
-                            case ACCEPT -> this.onDisconnectChild(child, graph);
-                            case UNSET -> {
-                                if (acceptOnUnsetPolicy())
-                                    this.onDisconnectChild(child, graph);
-                            }
-                            case REJECT -> {}
-                        }
-                        return null;
-                    });
-
-                    scope.fork(() -> {
-                        switch (child.policiesManager().stateOf(ON_DISCONNECT_PARENT_POLICY, this)) {
-                            case ACCEPT -> child.onDisconnectParent(self(), graph);
-                            case UNSET -> {
-                                if (child.acceptOnUnsetPolicy())
-                                    child.onDisconnectParent(self(), graph);
-                            }
-                            case REJECT -> {}
-                        }
-                        return null;
-                    });
-                    scope.join();
+                var dispatch = new CallbackDispatch(graph.callbackInlineLimit());
+                if (handlesDisconnectChild() && shouldCallOnDisconnectChildFor(child))
+                    dispatch.add(() -> this.onDisconnectChild(child, graph));
 
-                } catch (InterruptedException ex) {
-                    throw new RuntimeException(ex);
-                }
+                if (child.handlesDisconnectParent() && child.shouldCallOnDisconnectParentFor(self()))
+                    dispatch.add(() -> child.onDisconnectParent(self(), graph));
+
+                dispatch.run();
 
                 yield success(e);
             }
@@ -971,35 +1056,14 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
             };
 
             case Result.Success<ApplicationEdge, Graph.EdgeRemovalFailure>(var e) -> {
-                try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-                    scope.fork(() -> {
-                        switch (parent.policiesManager().stateOf(ON_DISCONNECT_CHILD_POLICY, this)) {
-                            case ACCEPT -> parent.onDisconnectChild(self(), graph);
-                            case UNSET -> {
-                                if (parent.acceptOnUnsetPolicy())
-                                    parent.onDisconnectChild(self(), graph);
-                            }
-                            case REJECT -> {}
-                        }
-                        return null;
-                    });
-
-                    scope.fork(() -> {
-                        switch (policiesManager().stateOf(ON_DISCONNECT_PARENT_POLICY, parent)) {
-                            case ACCEPT -> onDisconnectParent(parent, graph);
-                            case UNSET -> {
-                                if (acceptOnUnsetPolicy())
-                                    onDisconnectParent(parent, graph);
-                            }
-                            case REJECT -> {}
-                        }
-                        return null;
-                    });
-                    scope.join();
+                var dispatch = new CallbackDispatch(graph.callbackInlineLimit());
+                if (parent.handlesDisconnectChild() && parent.shouldCallOnDisconnectChildFor(self()))
+                    dispatch.add(() -> parent.onDisconnectChild(self(), graph));
 
-                } catch (InterruptedException ex) {
-                    throw new RuntimeException(ex);
-                }
+                if (handlesDisconnectParent() && shouldCallOnDisconnectParentFor(parent))
+                    dispatch.add(() -> onDisconnectParent(parent, graph));
+
+                dispatch.run();
 
                 yield success(e);
             }
@@ -1206,48 +1270,36 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
     public final Result<Void, Set<ChildDisconnectionFailure>> disconnectChildren(Graph<Self, ApplicationEdge> graph, Predicate<Self> predicate) {
         Set<ChildDisconnectionFailure> failures = new HashSet<>();
         Set<Self> pending = new HashSet<>();
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (Self child : graph.childrenOf(self())) {
-                scope.fork(() -> {
-                    if (predicate.test(child))
-                        switch (shouldDisconnectChild(child, graph)) {
-                            case Result.Failure<Void, ShouldDisconnectChildFailure>(
-                                    ShouldDisconnectChildFailure f) -> {
-                                switch (f) {
-                                    case FailureResults.EdgeNotPresent _, FailureResults.VertexNotPresent _ -> {}
-                                    default -> failures.add(switch (f) {
-                                        case FailureResults.RejectedByGraphPolicy rejectedByGraphPolicy -> rejectedByGraphPolicy;
-                                        case FailureResults.RejectedByGraphValidation rejectedByGraphValidation -> rejectedByGraphValidation;
-                                        case FailureResults.RejectedByVertexPolicy rejectedByVertexPolicy -> rejectedByVertexPolicy;
-                                        case FailureResults.RejectedByVertexValidation rejectedByVertexValidation -> rejectedByVertexValidation;
-                                        case FailureResults.SelfReference selfReference -> selfReference;
-                                        default -> throw new IllegalStateException("Unexpected value: " + f);
-                                    });
-                                }
-                            }
-                            case Result.Success<Void, ShouldDisconnectChildFailure> _ -> pending.add(child);
+        for (Self child : graph.childrenOf(self())) {
+            if (predicate.test(child))
+                switch (shouldDisconnectChild(child, graph)) {
+                    case Result.Failure<Void, ShouldDisconnectChildFailure>(
+                            ShouldDisconnectChildFailure f) -> {
+                        switch (f) {
+                            case FailureResults.EdgeNotPresent _, FailureResults.VertexNotPresent _ -> {}
+                            default -> failures.add(switch (f) {
+                                case FailureResults.RejectedByGraphPolicy rejectedByGraphPolicy -> rejectedByGraphPolicy;
+                                case FailureResults.RejectedByGraphValidation rejectedByGraphValidation -> rejectedByGraphValidation;
+                                case FailureResults.RejectedByVertexPolicy rejectedByVertexPolicy -> rejectedByVertexPolicy;
+                                case FailureResults.RejectedByVertexValidation rejectedByVertexValidation -> rejectedByVertexValidation;
+                                case FailureResults.SelfReference selfReference -> selfReference;
+                                default -> throw new IllegalStateException("Unexpected value: " + f);
+                            });
                         }
-                    return null;
-                });
-            }
-            scope.join();
-
-            if (!failures.isEmpty())
-                return fail(failures);
+                    }
+                    case Result.Success<Void, ShouldDisconnectChildFailure> _ -> pending.add(child);
+                }
+        }
 
-            for (Self child : pending) {
-                scope.fork(() -> { // TODO: Check all edges removed?
-                    graph.removeEdge(self(), child);
-                    graph.processEdgeRemovalCallbacks(self(), child);
-                    return null;
-                });
-            }
-            scope.join();
+        if (!failures.isEmpty())
+            return fail(failures);
 
-            return success();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        for (Self child : pending) { // TODO: Check all edges removed?
+            graph.removeEdge(self(), child);
+            graph.processEdgeRemovalCallbacks(self(), child);
         }
+
+        return success();
     }
 
     public final Result<Void, Set<ParentDisconnectionFailure>> disconnectParents(Graph<Self, ApplicationEdge> graph) {
@@ -1259,48 +1311,36 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
     public final Result<Void, Set<ParentDisconnectionFailure>> disconnectParents(Graph<Self, ApplicationEdge> graph, Predicate<Self> predicate) {
         Set<ParentDisconnectionFailure> failures = new HashSet<>();
         Set<Self> pending = new HashSet<>();
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (Self parent : graph.parentsOf(self())) {
-                scope.fork(() -> {
-                    if (predicate.test(parent))
-                        switch (shouldDisconnectParent(parent, graph)) {
-                            case Result.Failure<Void, ShouldDisconnectParentFailure>(
-                                    ShouldDisconnectParentFailure f) -> {
-                                switch (f) {
-                                    case FailureResults.EdgeNotPresent _, FailureResults.VertexNotPresent _ -> {}
-                                    default -> failures.add(switch (f) {
-                                        case FailureResults.RejectedByGraphPolicy rejectedByGraphPolicy -> rejectedByGraphPolicy;
-                                        case FailureResults.RejectedByGraphValidation rejectedByGraphValidation -> rejectedByGraphValidation;
-                                        case FailureResults.RejectedByVertexPolicy rejectedByVertexPolicy -> rejectedByVertexPolicy;
-                                        case FailureResults.RejectedByVertexValidation rejectedByVertexValidation -> rejectedByVertexValidation;
-                                        case FailureResults.SelfReference selfReference -> selfReference;
-                                        default -> throw new IllegalStateException("Unexpected value: " + f);
-                                    });
-                                }
-                            }
-                            case Result.Success<Void, ShouldDisconnectParentFailure> _ -> pending.add(parent);
+        for (Self parent : graph.parentsOf(self())) {
+            if (predicate.test(parent))
+                switch (shouldDisconnectParent(parent, graph)) {
+                    case Result.Failure<Void, ShouldDisconnectParentFailure>(
+                            ShouldDisconnectParentFailure f) -> {
+                        switch (f) {
+                            case FailureResults.EdgeNotPresent _, FailureResults.VertexNotPresent _ -> {}
+                            default -> failures.add(switch (f) {
+                                case FailureResults.RejectedByGraphPolicy rejectedByGraphPolicy -> rejectedByGraphPolicy;
+                                case FailureResults.RejectedByGraphValidation rejectedByGraphValidation -> rejectedByGraphValidation;
+                                case FailureResults.RejectedByVertexPolicy rejectedByVertexPolicy -> rejectedByVertexPolicy;
+                                case FailureResults.RejectedByVertexValidation rejectedByVertexValidation -> rejectedByVertexValidation;
+                                case FailureResults.SelfReference selfReference -> selfReference;
+                                default -> throw new IllegalStateException("Unexpected value: " + f);
+                            });
                         }
-                    return null;
-                });
-            }
-            scope.join();
+                    }
+                    case Result.Success<Void, ShouldDisconnectParentFailure> _ -> pending.add(parent);
+                }
+        }
 
-            if (!failures.isEmpty())
-                return fail(failures);
+        if (!failures.isEmpty())
+            return fail(failures);
 
-            for (Self parent : pending) {
-                scope.fork(() -> { // TODO: Check all edges removed?
-                    graph.removeEdge(parent, self());
-                    graph.processEdgeRemovalCallbacks(parent, self());
-                    return null;
-                });
-            }
-            scope.join();
-
-            return success();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        for (Self parent : pending) { // TODO: Check all edges removed?
+            graph.removeEdge(parent, self());
+            graph.processEdgeRemovalCallbacks(parent, self());
         }
+
+        return success();
     }
 
     public final Result<Self, ParentRemovalFailure> removeParent(Self parent, Graph<Self, ApplicationEdge> graph) {
@@ -1382,88 +1422,60 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
         };
     }
 
-    protected void onConnectChild(Self child, Graph<?, ApplicationEdge> graph) throws RuntimeException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var callback : enterChildCallbacks())
-                scope.fork(() -> {
-                    callback.accept(child, graph);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+    /// Runs the callbacks of an operation over another vertex. They are taken from the callbacks method if a subclass
+    /// overrides it, or delivered straight from the subscriptions of the callbacks manager otherwise.
+    private void runCallbacks(VertexCallbackType type, String callbacksMethod,
+                              Supplier<Set<BiConsumer<Self, Graph<?, ?>>>> callbacks, Self other, Graph<?, ?> graph) {
+        var dispatch = new CallbackDispatch(graph.callbackInlineLimit());
+        if (CallbackDispatch.overrides(this, callbacksMethod)) {
+            for (var callback : callbacks.get())
+                dispatch.add(() -> callback.accept(other, graph));
+        } else {
+            var manager = existingCallbacksManager();
+            if (manager != null)
+                manager.dispatch(type, other, graph, dispatch::add);
         }
+        dispatch.run();
+    }
+
+    /// Runs the callbacks of an operation over a graph. They are taken from the callbacks method if a subclass
+    /// overrides it, or delivered straight from the subscriptions of the callbacks manager otherwise.
+    private void runCallbacks(GraphCallbackType type, String callbacksMethod,
+                              Supplier<Set<Consumer<Graph<?, ?>>>> callbacks, Graph<?, ?> graph) {
+        var dispatch = new CallbackDispatch(graph.callbackInlineLimit());
+        if (CallbackDispatch.overrides(this, callbacksMethod)) {
+            for (var callback : callbacks.get())
+                dispatch.add(() -> callback.accept(graph));
+        } else {
+            var manager = existingCallbacksManager();
+            if (manager != null)
+                manager.dispatch(type, graph, dispatch::add);
+        }
+        dispatch.run();
+    }
+
+    protected void onConnectChild(Self child, Graph<?, ApplicationEdge> graph) throws RuntimeException {
+        runCallbacks(VertexCallbackType.ON_CONNECT_CHILD, "enterChildCallbacks", this::enterChildCallbacks, child, graph);
     }
 
     protected void onConnectParent(Self parent, Graph<?, ApplicationEdge> graph) throws RuntimeException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var callback : enterParentCallbacks())
-                scope.fork(() -> {
-                    callback.accept(parent, graph);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        runCallbacks(VertexCallbackType.ON_CONNECT_PARENT, "enterParentCallbacks", this::enterParentCallbacks, parent, graph);
     }
 
     protected void onDisconnectChild(Self child, Graph<?, ? extends ApplicationEdge> graph) throws RuntimeException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var callback : leaveChildCallbacks())
-                scope.fork(() -> {
-                    callback.accept(child, graph);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        runCallbacks(VertexCallbackType.ON_DISCONNECT_CHILD, "leaveChildCallbacks", this::leaveChildCallbacks, child, graph);
     }
 
     protected void onDisconnectParent(Self parent, Graph<?, ? extends ApplicationEdge> graph) throws RuntimeException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var callback : leaveParentCallbacks())
-                scope.fork(() -> {
-                    callback.accept(parent, graph);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        runCallbacks(VertexCallbackType.ON_DISCONNECT_PARENT, "leaveParentCallbacks", this::leaveParentCallbacks, parent, graph);
     }
 
     protected <E extends ApplicationEdge> void onEnterGraph(Graph<?, E> graph) throws RuntimeException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var callback : enterGraphCallbacks())
-                scope.fork(() -> {
-                    callback.accept(graph);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        runCallbacks(GraphCallbackType.ON_ENTER_GRAPH, "enterGraphCallbacks", this::enterGraphCallbacks, graph);
     }
 
     protected <E extends ApplicationEdge> void onLeaveGraph(Graph<?, E> graph) throws RuntimeException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            for (var callback : leaveGraphCallbacks())
-                scope.fork(() -> {
-                    callback.accept(graph);
-                    return null;
-                });
-
-            scope.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        runCallbacks(GraphCallbackType.ON_LEAVE_GRAPH, "leaveGraphCallbacks", this::leaveGraphCallbacks, graph);
     }
 
     /**
@@ -1526,6 +1538,56 @@ public abstract non-sealed class Vertex<Self extends Vertex<Self>> implements Gr
         return graph.parentsOf((Self) this);
     }
 
+    /**
+     * Performs the given action for each child of the vertex on the given graph, without allocating.
+     * @param graph the graph that contains the vertex.
+     * @param action the action to perform for each child. It is not called if the vertex is not in the graph.
+     * @param <E> the type of the edges.
+     */
+    @SuppressWarnings("unchecked")
+    public final <E extends ApplicationEdge> void forEachChildIn(Graph<Self, E> graph, Consumer<? super Self> action) {
+        Objects.requireNonNull(graph);
+        Objects.requireNonNull(action);
+        graph.forEachChild((Self) this, action);
+    }
+
+    /**
+     * Performs the given action for each parent of the vertex on the given graph, without allocating.
+     * @param graph the graph that contains the vertex.
+     * @param action the action to perform for each parent. It is not called if the vertex is not in the graph.
+     * @param <E> the type of the edges.
+     */
+    @SuppressWarnings("unchecked")
+    public final <E extends ApplicationEdge> void forEachParentIn(Graph<Self, E> graph, Consumer<? super Self> action) {
+        Objects.requireNonNull(graph);
+        Objects.requireNonNull(action);
+        graph.forEachParent((Self) this, action);
+    }
+
+    /**
+     * Returns the number of children of the vertex on the given graph.
+     * @param graph the graph that contains the vertex.
+     * @return the number of children of the vertex, or 0 if it is not in the graph.
+     * @param <E> the type of the edges.
+     */
+    @SuppressWarnings("unchecked")
+    public final <E extends ApplicationEdge> int childCountIn(Graph<Self, E> graph) {
+        Objects.requireNonNull(graph);
+        return graph.childCount((Self) this);
+    }
+
+    /**
+     * Returns the number of parents of the vertex on the given graph.
+     * @param graph the graph that contains the vertex.
+     * @return the number of parents of the vertex, or 0 if it is not in the graph.
+     * @param <E> the type of the edges.
+     */
+    @SuppressWarnings("unchecked")
+    public final <E extends ApplicationEdge> int parentCountIn(Graph<Self, E> graph) {
+        Objects.requireNonNull(graph);
+        return graph.parentCount((Self) this);
+    }
+
     /**
      * Returns the neighbors of the vertex on the given graph.
      * The neighbors of a vertex are the vertices that are connected to it.
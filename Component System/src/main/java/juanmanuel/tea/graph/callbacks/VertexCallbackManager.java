@@ -5,7 +5,10 @@ import juanmanuel.tea.graph.Vertex;
 import juanmanuel.tea.graph.callbacks.vertex.GraphCallbackType;
 import juanmanuel.tea.graph.callbacks.vertex.VertexCallbackType;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -14,43 +17,192 @@ import java.util.function.Predicate;
 
 /**
  * Manages the callbacks for vertex operations.
+ * <p>
+ * The callbacks of each operation type are kept in an array that is replaced every time a callback is added or
+ * removed, so dispatching an operation is a single iteration over the array of its type. Each callback is delivered as
+ * chosen when it was added, see {@link Delivery}.
  * @param <V> The type of the vertex over which the callbacks are performed.
  */
 public class VertexCallbackManager<V extends Vertex<V>> {
-    private WeakHashMap<BiConsumer<V, Graph<?, ?>>, EnumSet<VertexCallbackType>> vertexCallbacks;
-    private WeakHashMap<Consumer<Graph<?, ?>>, EnumSet<GraphCallbackType>> graphCallbacks;
+    private static final Subscription<?>[] NO_SUBSCRIPTIONS = new Subscription<?>[0];
+
+    // The subscriptions of every operation type, indexed by the ordinal of the type
+    private volatile Subscription<?>[][] vertexSubscriptions = emptySubscriptions(VertexCallbackType.values().length);
+    private volatile Subscription<?>[][] graphSubscriptions = emptySubscriptions(GraphCallbackType.values().length);
 
     private Set<BiConsumer<?, ?>> storedBiConsumerCallbacks;
     private Set<Consumer<?>> storedConsumerCallbacks;
 
     /**
-     * Adds a callback of a given operation type over a vertex.
+     * How a callback is delivered when the operation it was added for happens.
+     */
+    public enum Delivery {
+        /**
+         * The callback runs before the operation returns, together with the rest of its synchronous callbacks.
+         */
+        SYNC,
+
+        /**
+         * The callback runs in a virtual thread, once for every burst of operations: the operations that happen
+         * before the callback starts running are collapsed, and it only receives the last one. The callback never runs
+         * concurrently with itself, so the operations are received in the order they happened.
+         */
+        COALESCED,
+
+        /**
+         * The callback runs in a virtual thread, once for every operation. The operation does not wait for it.
+         */
+        ASYNC
+    }
+
+    /**
+     * A callback added for an operation type, referenced weakly.
+     */
+    private static final class Subscription<C> extends WeakReference<C> {
+        private final Delivery delivery;
+        // The delivery of the last operation of the burst, for coalesced callbacks
+        private final AtomicReference<Runnable> pending = new AtomicReference<>();
+        // Whether a thread is delivering the pending operations, for coalesced callbacks
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscription(C callback, Delivery delivery) {
+            super(callback);
+            this.delivery = delivery;
+        }
+
+        private void deliver(Runnable task, Consumer<Runnable> sync) {
+            switch (delivery) {
+                case SYNC -> sync.accept(task);
+                case ASYNC -> Thread.startVirtualThread(() -> runQuietly(task));
+                case COALESCED -> {
+                    // Only the operation that finds no thread draining starts one, the rest replace the pending task
+                    pending.set(task);
+                    if (draining.compareAndSet(false, true))
+                        Thread.startVirtualThread(this::drain);
+                }
+            }
+        }
+
+        /**
+         * Runs the pending operation until there is none left, one at a time.
+         */
+        private void drain() {
+            do {
+                Runnable task;
+                while ((task = pending.getAndSet(null)) != null)
+                    runQuietly(task);
+
+                draining.set(false);
+                // An operation may have left its task after the last check while this thread was still draining
+            } while (pending.get() != null && draining.compareAndSet(false, true));
+        }
+
+        /**
+         * The operation has already been applied, so the failure of a callback has nowhere to be reported.
+         */
+        private static void runQuietly(Runnable task) {
+            try {
+                task.run();
+            } catch (RuntimeException _) {
+            }
+        }
+    }
+
+    private static Subscription<?>[][] emptySubscriptions(int types) {
+        var subscriptions = new Subscription<?>[types][];
+        Arrays.fill(subscriptions, NO_SUBSCRIPTIONS);
+        return subscriptions;
+    }
+
+    /**
+     * Replaces the subscription of the callback, dropping the ones whose callback was garbage collected.
+     * @param subscriptions The subscriptions of an operation type.
+     * @param callback The callback to replace.
+     * @param replacement The new subscription of the callback, or null to remove it.
+     * @return The new subscriptions of the operation type.
+     */
+    private static Subscription<?>[] replace(Subscription<?>[] subscriptions, Object callback, Subscription<?> replacement) {
+        var result = new ArrayList<Subscription<?>>(subscriptions.length + 1);
+        for (var subscription : subscriptions) {
+            var c = subscription.get();
+            if (c != null && c != callback)
+                result.add(subscription);
+        }
+
+        if (replacement != null)
+            result.add(replacement);
+
+        return result.isEmpty() ? NO_SUBSCRIPTIONS : result.toArray(Subscription<?>[]::new);
+    }
+
+    private static boolean contains(Subscription<?>[] subscriptions, Object callback) {
+        for (var subscription : subscriptions)
+            if (subscription.get() == callback)
+                return true;
+        return false;
+    }
+
+    private static boolean hasAlive(Subscription<?>[] subscriptions) {
+        for (var subscription : subscriptions)
+            if (subscription.get() != null)
+                return true;
+        return false;
+    }
+
+    /**
+     * Adds a callback of a given operation type over a vertex, delivered synchronously.
      * The callback is stored in a weak reference to allow it to be garbage collected if it is not referenced elsewhere.
      * @param callback The callback to add.
      * @param type The type of operation that triggers the callback.
      */
     public void addCallback(BiConsumer<V, Graph<?, ?>> callback, VertexCallbackType type) {
-        if (vertexCallbacks == null)
-            vertexCallbacks = new WeakHashMap<>();
+        addCallback(callback, type, Delivery.SYNC);
+    }
 
-        var set = vertexCallbacks.computeIfAbsent(callback, _ -> EnumSet.noneOf(VertexCallbackType.class));
-        set.add(type);
-        vertexCallbacks.put(callback, set);
+    /**
+     * Adds a callback of a given operation type over a vertex.
+     * The callback is stored in a weak reference to allow it to be garbage collected if it is not referenced elsewhere.
+     * Adding a callback again for the same type replaces its delivery.
+     * @param callback The callback to add.
+     * @param type The type of operation that triggers the callback.
+     * @param delivery How the callback is delivered.
+     */
+    public synchronized void addCallback(BiConsumer<V, Graph<?, ?>> callback, VertexCallbackType type, Delivery delivery) {
+        Objects.requireNonNull(callback);
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(delivery);
+
+        var subscriptions = vertexSubscriptions.clone();
+        subscriptions[type.ordinal()] = replace(subscriptions[type.ordinal()], callback, new Subscription<>(callback, delivery));
+        vertexSubscriptions = subscriptions;
     }
 
     /**
-     * Adds a callback of a given operation type over a graph.
+     * Adds a callback of a given operation type over a graph, delivered synchronously.
      * The callback is stored in a weak reference to allow it to be garbage collected if it is not referenced elsewhere.
      * @param callback The callback to add.
      * @param type The type of operation that triggers the callback.
      */
     public void addCallback(Consumer<Graph<?, ?>> callback, GraphCallbackType type) {
-        if (graphCallbacks == null)
-            graphCallbacks = new WeakHashMap<>();
+        addCallback(callback, type, Delivery.SYNC);
+    }
 
-        var set = graphCallbacks.computeIfAbsent(callback, _ -> EnumSet.noneOf(GraphCallbackType.class));
-        set.add(type);
-        graphCallbacks.put(callback, set);
+    /**
+     * Adds a callback of a given operation type over a graph.
+     * The callback is stored in a weak reference to allow it to be garbage collected if it is not referenced elsewhere.
+     * Adding a callback again for the same type replaces its delivery.
+     * @param callback The callback to add.
+     * @param type The type of operation that triggers the callback.
+     * @param delivery How the callback is delivered.
+     */
+    public synchronized void addCallback(Consumer<Graph<?, ?>> callback, GraphCallbackType type, Delivery delivery) {
+        Objects.requireNonNull(callback);
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(delivery);
+
+        var subscriptions = graphSubscriptions.clone();
+        subscriptions[type.ordinal()] = replace(subscriptions[type.ordinal()], callback, new Subscription<>(callback, delivery));
+        graphSubscriptions = subscriptions;
     }
 
     /**
@@ -84,50 +236,105 @@ public class VertexCallbackManager<V extends Vertex<V>> {
         }
     }
 
-    public void removeVertexCallback(BiConsumer<V, Graph<V, ?>> callback) {
-        vertexCallbacks.remove(callback);
+    public synchronized void removeVertexCallback(BiConsumer<V, Graph<V, ?>> callback) {
+        var subscriptions = vertexSubscriptions.clone();
+        for (int i = 0; i < subscriptions.length; i++)
+            subscriptions[i] = replace(subscriptions[i], callback, null);
+        vertexSubscriptions = subscriptions;
     }
 
-    public void removeGraphCallback(Consumer<Graph<V, ?>> callback) {
-        graphCallbacks.remove(callback);
+    public synchronized void removeGraphCallback(Consumer<Graph<V, ?>> callback) {
+        var subscriptions = graphSubscriptions.clone();
+        for (int i = 0; i < subscriptions.length; i++)
+            subscriptions[i] = replace(subscriptions[i], callback, null);
+        graphSubscriptions = subscriptions;
     }
 
-    public void removeVertexCallback(BiConsumer<V, Graph<V, ?>> callback, VertexCallbackType type) {
-        var set = vertexCallbacks.get(callback);
-        if (set != null) {
-            set.remove(type);
-            if (set.isEmpty()) {
-                vertexCallbacks.remove(callback);
-            }
+    public synchronized void removeVertexCallback(BiConsumer<V, Graph<V, ?>> callback, VertexCallbackType type) {
+        if (!contains(vertexSubscriptions[type.ordinal()], callback))
+            return;
+
+        var subscriptions = vertexSubscriptions.clone();
+        subscriptions[type.ordinal()] = replace(subscriptions[type.ordinal()], callback, null);
+        vertexSubscriptions = subscriptions;
+    }
+
+    public synchronized void removeGraphCallback(Consumer<Graph<V, ?>> callback, GraphCallbackType type) {
+        if (!contains(graphSubscriptions[type.ordinal()], callback))
+            return;
+
+        var subscriptions = graphSubscriptions.clone();
+        subscriptions[type.ordinal()] = replace(subscriptions[type.ordinal()], callback, null);
+        graphSubscriptions = subscriptions;
+    }
+
+    /**
+     * Checks if there is any callback of the given operation type, without collecting them.
+     * @param type The type of operation.
+     * @return True if there is at least one callback of the type.
+     */
+    public boolean hasCallbacksFor(VertexCallbackType type) {
+        return hasAlive(vertexSubscriptions[type.ordinal()]);
+    }
+
+    /**
+     * Checks if there is any callback of the given operation type, without collecting them.
+     * @param type The type of operation.
+     * @return True if there is at least one callback of the type.
+     */
+    public boolean hasCallbacksFor(GraphCallbackType type) {
+        return hasAlive(graphSubscriptions[type.ordinal()]);
+    }
+
+    /**
+     * Delivers the callbacks of an operation type over a vertex.
+     * @param type The type of operation.
+     * @param vertex The vertex passed to the callbacks.
+     * @param graph The graph passed to the callbacks.
+     * @param sync Receives the synchronous callbacks, which the caller must run before the operation returns.
+     */
+    @SuppressWarnings("unchecked")
+    public void dispatch(VertexCallbackType type, V vertex, Graph<?, ?> graph, Consumer<Runnable> sync) {
+        for (var subscription : vertexSubscriptions[type.ordinal()]) {
+            var callback = (BiConsumer<V, Graph<?, ?>>) subscription.get();
+            if (callback != null)
+                subscription.deliver(() -> callback.accept(vertex, graph), sync);
         }
     }
 
-    public void removeGraphCallback(Consumer<Graph<V, ?>> callback, GraphCallbackType type) {
-        var set = graphCallbacks.get(callback);
-        if (set != null) {
-            set.remove(type);
-            if (set.isEmpty()) {
-                graphCallbacks.remove(callback);
-            }
+    /**
+     * Delivers the callbacks of an operation type over a graph.
+     * @param type The type of operation.
+     * @param graph The graph passed to the callbacks.
+     * @param sync Receives the synchronous callbacks, which the caller must run before the operation returns.
+     */
+    @SuppressWarnings("unchecked")
+    public void dispatch(GraphCallbackType type, Graph<?, ?> graph, Consumer<Runnable> sync) {
+        for (var subscription : graphSubscriptions[type.ordinal()]) {
+            var callback = (Consumer<Graph<?, ?>>) subscription.get();
+            if (callback != null)
+                subscription.deliver(() -> callback.accept(graph), sync);
         }
     }
 
+    @SuppressWarnings("unchecked")
     public Set<BiConsumer<V, Graph<?, ?>>> getCallbacksFor(VertexCallbackType type) {
         Set<BiConsumer<V, Graph<?, ?>>> result = Collections.newSetFromMap(new WeakHashMap<>());
-        for (var entry : vertexCallbacks.entrySet()) {
-            if (entry.getValue().contains(type)) {
-                result.add(entry.getKey());
-            }
+        for (var subscription : vertexSubscriptions[type.ordinal()]) {
+            var callback = (BiConsumer<V, Graph<?, ?>>) subscription.get();
+            if (callback != null)
+                result.add(callback);
         }
         return result;
     }
 
+    @SuppressWarnings("unchecked")
     public Set<Consumer<Graph<?, ?>>> getCallbacksFor(GraphCallbackType type) {
         Set<Consumer<Graph<?, ?>>> result = Collections.newSetFromMap(new WeakHashMap<>());
-        for (var entry : graphCallbacks.entrySet()) {
-            if (entry.getValue().contains(type)) {
-                result.add(entry.getKey());
-            }
+        for (var subscription : graphSubscriptions[type.ordinal()]) {
+            var callback = (Consumer<Graph<?, ?>>) subscription.get();
+            if (callback != null)
+                result.add(callback);
         }
         return result;
     }
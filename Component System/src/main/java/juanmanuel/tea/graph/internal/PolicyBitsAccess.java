@@ -0,0 +1,55 @@
+package juanmanuel.tea.graph.internal;
+
+import juanmanuel.tea.graph.GraphElement;
+import juanmanuel.tea.graph.policy.PolicyBits;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * Gives the policies managers access to the {@link PolicyBits} carried by the graph elements, without making them part
+ * of the API of the elements. The graph package installs the carrier when its element classes are initialized.
+ * <p>
+ * This package is not exported by the module.
+ */
+@NullMarked
+public final class PolicyBitsAccess {
+    private static volatile @Nullable Carrier carrier;
+
+    /**
+     * Reads and attaches the bits of the graph elements.
+     */
+    public interface Carrier {
+        /**
+         * @param graphElement the graph element
+         * @return the bits of the element, or null if it does not carry them or has none yet
+         */
+        @Nullable PolicyBits bitsOf(GraphElement graphElement);
+
+        /**
+         * Returns the bits of the element, attaching new ones if it has none yet.
+         * @param graphElement the graph element
+         * @param factory creates the bits to attach
+         * @return the bits of the element, or null if it cannot carry them
+         */
+        @Nullable PolicyBits bitsOf(GraphElement graphElement, Supplier<PolicyBits> factory);
+    }
+
+    private PolicyBitsAccess() {}
+
+    /**
+     * Installs the carrier of the graph elements.
+     * @param installed the carrier
+     */
+    public static void install(Carrier installed) {
+        carrier = installed;
+    }
+
+    /**
+     * @return the installed carrier, or null if no graph element class has been initialized yet
+     */
+    public static @Nullable Carrier carrier() {
+        return carrier;
+    }
+}
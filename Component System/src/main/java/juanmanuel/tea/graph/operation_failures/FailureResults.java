@@ -17,6 +17,7 @@ public interface FailureResults {
      * @param rejector The vertex that has the policy that rejected the operation.
      */
     record RejectedByVertexPolicy(String message, Vertex<?> rejector) implements
+            Graph.BatchFailure,
             ShouldConnectChildFailure,
             ShouldConnectParentFailure,
             ShouldDisconnectChildFailure,
@@ -52,6 +53,7 @@ public interface FailureResults {
      * @param rejector The vertex that has the validation that rejected the operation.
      */
     record RejectedByVertexValidation(String message, Vertex<?> rejector) implements
+            Graph.BatchFailure,
             ShouldConnectChildFailure,
             ShouldConnectParentFailure,
             ShouldDisconnectChildFailure,
@@ -87,6 +89,7 @@ public interface FailureResults {
      * @param rejector The graph that has the policy that rejected the operation.
      */
     record RejectedByGraphPolicy(String message, Graph<?, ?> rejector) implements
+            Graph.BatchFailure,
             ShouldConnectChildFailure,
             ShouldConnectParentFailure,
             ShouldDisconnectChildFailure,
@@ -122,6 +125,7 @@ public interface FailureResults {
      * @param rejector The graph that has the validation that rejected the operation.
      */
     record RejectedByGraphValidation(String message, Graph<?, ?> rejector) implements
+            Graph.BatchFailure,
             ShouldConnectChildFailure,
             ShouldConnectParentFailure,
             ShouldDisconnectChildFailure,
@@ -156,6 +160,7 @@ public interface FailureResults {
      * @param message A message explaining the failure.
      */
     record VertexAlreadyPresent(String message) implements
+            Graph.BatchFailure,
             ShouldAddChildFailure,
             ShouldAddParentFailure,
             ChildAdditionFailure,
@@ -187,6 +192,7 @@ public interface FailureResults {
             StructuredComputation.SetAfterFailure {}
 
     record EdgeAlreadyExists(String message) implements
+            Graph.BatchFailure,
             ParentAdditionFailure,
             ChildAdditionFailure,
             ParentConnectionFailure,
@@ -201,6 +207,7 @@ public interface FailureResults {
     {}
 
     record EdgeNotPresent(String message) implements
+            Graph.BatchFailure,
             ShouldDisconnectChildFailure,
             ShouldDisconnectParentFailure,
             ShouldRemoveChildFailure,
@@ -218,6 +225,7 @@ public interface FailureResults {
 
 
     record VertexNotPresent(String message, Vertex<?> vertex) implements
+            Graph.BatchFailure,
             Graph.ShouldAddEdgeFailure,
             Graph.ShouldRemoveEdgeFailure,
             Graph.ShouldRemoveVertexFailure,
@@ -245,6 +253,7 @@ public interface FailureResults {
     {}
 
     record GraphCycleDetected(String message) implements
+            Graph.BatchFailure,
             Graph.ShouldAddEdgeFailure,
             Graph.EdgeAdditionFailure,
             ShouldConnectChildFailure,
@@ -6,11 +6,19 @@ import java.util.*;
 
 public final class GraphOperationsPolicies {
     private final PolicyCheckAlgorithm defaultPolicyCheckAlgorithm;
-    private Map<Policy.NullaryPolicy, PolicyState> nullaryPolicyStateMap;
+    private final long id = PolicyBits.newOwner();
+    private long nullaryStates;
+    // The unary policies with states stored in the policy bits of a graph element or in the element slot
+    private long objectRulePolicies;
+    // The states set for one element whose policy bits belong to another manager, keyed by the id of the bits
+    private long slotElement;
+    private long slotStates;
     private Map<Policy.UnaryPolicy<?>, WeakHashMap<GraphElement, PolicyState>> unaryObjectPolicyStateMap;
     private Map<Policy.UnaryPolicy<?>, HashMap<Class<? extends GraphElement>, PolicyState>> unaryTypePolicyStateMap;
-    private Map<Policy.BinaryPolicy<?, ?>, HashMap<Pair<GraphElement, GraphElement>, PolicyState>> binaryObjectPolicyStateMap; // TODO Use WeakReference
+    private volatile TypePolicyCache typePolicyCache; // Created by the first lookup of a type rule
+    private Map<Policy.BinaryPolicy<?, ?>, WeakPairMap<GraphElement, GraphElement, PolicyState>> binaryObjectPolicyStateMap;
     private Map<Policy.BinaryPolicy<?, ?>, HashMap<Pair<Class<? extends GraphElement>, Class<? extends GraphElement>>, PolicyState>> binaryTypePolicyStateMap;
+    private volatile int generation;
 
     public record Pair<F, S>(F first, S second) {}
 
@@ -29,10 +37,7 @@ public final class GraphOperationsPolicies {
      * @param <P> the type of the policy
      */
     public <P extends GraphPolicy & Policy.NullaryPolicy> PolicyState stateOf(P nullaryVertexPolicy) {
-        if (nullaryPolicyStateMap != null)
-            return nullaryPolicyStateMap.getOrDefault(nullaryVertexPolicy, PolicyState.UNSET);
-
-        return PolicyState.UNSET;
+        return PolicyBits.get(nullaryStates, PolicyBits.slotOf(nullaryVertexPolicy));
     }
 
     /**
@@ -51,67 +56,100 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(algorithm);
 
         return switch (algorithm) {
-            case OBJECT_OVER_TYPE -> unaryObjectPolicyStateMap == null
-                    ? PolicyState.UNSET
-                    : unaryObjectPolicyStateMap
-                        .getOrDefault(unaryPolicy, new WeakHashMap<>())
-                        .getOrDefault(graphElement, PolicyState.UNSET);
+            case OBJECT_OVER_TYPE -> objectStateOf(unaryPolicy, graphElement);
+            case TYPE_OVER_OBJECT -> exactTypeStateOf(unaryPolicy, graphElement.getClass());
+            case OBJECT_AND_TYPE -> objectStateOf(unaryPolicy, graphElement).and(typeStateOf(unaryPolicy, graphElement.getClass()));
+            case OBJECT_OR_TYPE -> objectStateOf(unaryPolicy, graphElement).or(typeStateOf(unaryPolicy, graphElement.getClass()));
+        };
+    }
 
-            case TYPE_OVER_OBJECT -> unaryTypePolicyStateMap == null
-                    ? PolicyState.UNSET
-                    : unaryTypePolicyStateMap
-                        .getOrDefault(unaryPolicy, new HashMap<>())
-                        .getOrDefault(graphElement.getClass(), PolicyState.UNSET);
-
-            case OBJECT_AND_TYPE -> {
-                PolicyState objectState = unaryObjectPolicyStateMap == null
-                        ? PolicyState.UNSET
-                        : unaryObjectPolicyStateMap
-                        .getOrDefault(unaryPolicy, new WeakHashMap<>())
-                        .getOrDefault(graphElement, PolicyState.UNSET);
-
-                PolicyState typeState = unaryTypePolicyStateMap == null
-                        ? PolicyState.UNSET
-                        : findMostSpecificTypePolicy(
-                                unaryTypePolicyStateMap.getOrDefault(unaryPolicy, new HashMap<>()),
-                                graphElement.getClass()
-                        );
-
-                yield objectState.and(typeState);
+    // Helper method to find the state set for the given graph element
+    private PolicyState objectStateOf(Policy.UnaryPolicy<?> unaryPolicy, GraphElement graphElement) {
+        var bits = PolicyBits.of(graphElement);
+        if (bits != null) {
+            if (bits.isOwnedBy(id))
+                return bits.get(unaryPolicy);
+            if (bits.id() == slotElement)
+                return PolicyBits.get(slotStates, PolicyBits.slotOf(unaryPolicy));
+        }
+
+        if (unaryObjectPolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var states = unaryObjectPolicyStateMap.get(unaryPolicy);
+        return states == null ? PolicyState.UNSET : states.getOrDefault(graphElement, PolicyState.UNSET);
+    }
+
+    // Helper method to find the state set for exactly the given type
+    private PolicyState exactTypeStateOf(Policy.UnaryPolicy<?> unaryPolicy, Class<?> graphElementType) {
+        if (unaryTypePolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var states = unaryTypePolicyStateMap.get(unaryPolicy);
+        return states == null ? PolicyState.UNSET : states.getOrDefault(graphElementType, PolicyState.UNSET);
+    }
+
+    // Helper method to find the state of the most specific type rule matching the given type, resolved once per type
+    private PolicyState typeStateOf(Policy.UnaryPolicy<?> unaryPolicy, Class<?> graphElementType) {
+        if (unaryTypePolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var cache = typePolicyCache;
+        if (cache == null)
+            typePolicyCache = cache = new TypePolicyCache(this::resolveTypeState);
+
+        return cache.stateOf(unaryPolicy, graphElementType);
+    }
+
+    // Helper method to record a rule for a graph element, in its policy bits unless another manager uses them, then in
+    // the element slot
+    private void putObjectState(Policy.UnaryPolicy<?> unaryPolicy, GraphElement graphElement, PolicyState state) {
+        var bits = state == PolicyState.UNSET ? PolicyBits.of(graphElement) : PolicyBits.attachedTo(graphElement);
+        if (bits != null) {
+            int slot = PolicyBits.slotOf(unaryPolicy);
+            if (bits.claim(id)) {
+                bits.set(unaryPolicy, state);
+                objectRulePolicies |= 1L << slot;
+                return;
             }
 
-            case OBJECT_OR_TYPE -> {
-                PolicyState objectState = unaryObjectPolicyStateMap == null
-                        ? PolicyState.UNSET
-                        : unaryObjectPolicyStateMap
-                            .getOrDefault(unaryPolicy, new WeakHashMap<>())
-                            .getOrDefault(graphElement, PolicyState.UNSET);
-
-                PolicyState typeState = unaryTypePolicyStateMap == null
-                        ? PolicyState.UNSET
-                        : findMostSpecificTypePolicy(
-                                unaryTypePolicyStateMap.getOrDefault(unaryPolicy, new HashMap<>()),
-                                graphElement.getClass()
-                        );
-
-                yield objectState.or(typeState);
-
-//                yield unaryObjectPolicyStateMap == null
-//                        ? PolicyState.UNSET.or(unaryTypePolicyStateMap == null
-//                        ? PolicyState.UNSET
-//                        : unaryTypePolicyStateMap
-//                        .getOrDefault(unaryPolicy, new HashMap<>())
-//                        .getOrDefault(graphElement.getClass(), PolicyState.UNSET))
-//                        : unaryObjectPolicyStateMap
-//                        .getOrDefault(unaryPolicy, new WeakHashMap<>())
-//                        .getOrDefault(graphElement, PolicyState.UNSET)
-//                        .or(unaryTypePolicyStateMap == null
-//                                ? PolicyState.UNSET
-//                                : unaryTypePolicyStateMap
-//                                .getOrDefault(unaryPolicy, new HashMap<>())
-//                                .getOrDefault(graphElement.getClass(), PolicyState.UNSET));
+            // Usually the graph of a vertex, whose bits hold the rules of the graph's own manager
+            if (slotElement == 0 || slotElement == bits.id()) {
+                slotElement = bits.id();
+                slotStates = PolicyBits.with(slotStates, slot, state);
+                objectRulePolicies |= 1L << slot;
+                return;
             }
-        };
+        }
+
+        if (unaryObjectPolicyStateMap == null) {
+            if (state == PolicyState.UNSET)
+                return;
+
+            unaryObjectPolicyStateMap = new HashMap<>();
+        }
+
+        unaryObjectPolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new WeakHashMap<>()).put(graphElement, state);
+    }
+
+    private PolicyState resolveTypeState(Policy.UnaryPolicy<?> unaryPolicy, Class<?> graphElementType) {
+        if (unaryTypePolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var states = unaryTypePolicyStateMap.get(unaryPolicy);
+        return states == null ? PolicyState.UNSET : findMostSpecificTypePolicy(states, graphElementType);
+    }
+
+    // Helper method to record a type rule, discarding the resolved type states if it changes
+    private void putTypeState(Policy.UnaryPolicy<?> unaryPolicy, Class<? extends GraphElement> graphElementType, PolicyState state) {
+        if (unaryTypePolicyStateMap == null)
+            unaryTypePolicyStateMap = new HashMap<>();
+
+        // Most managers are only written, so the cache is not created until a type rule is looked up
+        var previous = unaryTypePolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new HashMap<>()).put(graphElementType, state);
+        var cache = typePolicyCache;
+        if (previous != state && cache != null)
+            cache.invalidate();
     }
 
     // Helper method to find the most specific matching type policy
@@ -182,12 +220,7 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(unaryPolicy);
         Objects.requireNonNull(graphElementType);
 
-        if (unaryTypePolicyStateMap != null)
-            return unaryTypePolicyStateMap
-                    .getOrDefault(unaryPolicy, new HashMap<>())
-                    .getOrDefault(graphElementType, PolicyState.UNSET);
-
-        return PolicyState.UNSET;
+        return exactTypeStateOf(unaryPolicy, graphElementType);
     }
 
     /**
@@ -208,54 +241,46 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(secondElement);
 
         return switch (defaultPolicyCheckAlgorithm) {
-            case OBJECT_OVER_TYPE -> binaryObjectPolicyStateMap == null
-                    ? PolicyState.UNSET
-                    : binaryObjectPolicyStateMap
-                        .getOrDefault(binaryPolicy, new HashMap<>())
-                        .getOrDefault(new Pair<>(firstElement, secondElement), PolicyState.UNSET);
-
-            case TYPE_OVER_OBJECT -> binaryTypePolicyStateMap == null
-                    ? PolicyState.UNSET
-                    : binaryTypePolicyStateMap
-                        .getOrDefault(binaryPolicy, new HashMap<>())
-                        .entrySet().stream()
-                        .filter(entry -> entry.getKey().first().isAssignableFrom(firstElement.getClass())
-                                && entry.getKey().second().isAssignableFrom(secondElement.getClass()))
-                        .map(Map.Entry::getValue)
-                        .findAny().orElse(PolicyState.UNSET);
-
+            case OBJECT_OVER_TYPE -> objectStateOf(binaryPolicy, firstElement, secondElement);
+            case TYPE_OVER_OBJECT -> typeStateOf(binaryPolicy, firstElement.getClass(), secondElement.getClass());
             case OBJECT_AND_TYPE -> binaryObjectPolicyStateMap == null
                     ? PolicyState.UNSET
-                    : binaryObjectPolicyStateMap
-                        .getOrDefault(binaryPolicy, new HashMap<>())
-                        .getOrDefault(new Pair<>(firstElement, secondElement), PolicyState.UNSET)
-                        .and(binaryTypePolicyStateMap == null
-                                ? PolicyState.UNSET
-                                : binaryTypePolicyStateMap // FIXME: Type checks
-                                    .getOrDefault(binaryPolicy, new HashMap<>())
-                                    .entrySet().stream()
-                                    .filter(entry -> entry.getKey().first().isAssignableFrom(firstElement.getClass())
-                                            && entry.getKey().second().isAssignableFrom(secondElement.getClass()))
-                                    .map(Map.Entry::getValue)
-                                    .findAny().orElse(PolicyState.UNSET));
-
+                    : objectStateOf(binaryPolicy, firstElement, secondElement) // FIXME: Type checks
+                        .and(typeStateOf(binaryPolicy, firstElement.getClass(), secondElement.getClass()));
             case OBJECT_OR_TYPE -> binaryObjectPolicyStateMap == null
                     ? PolicyState.UNSET
-                    : binaryObjectPolicyStateMap
-                        .getOrDefault(binaryPolicy, new HashMap<>())
-                        .getOrDefault(new Pair<>(firstElement, secondElement), PolicyState.UNSET)
-                        .or(binaryTypePolicyStateMap == null
-                                ? PolicyState.UNSET
-                                : binaryTypePolicyStateMap
-                                    .getOrDefault(binaryPolicy, new HashMap<>())
-                                    .entrySet().stream()
-                                    .filter(entry -> entry.getKey().first().isAssignableFrom(firstElement.getClass())
-                                            && entry.getKey().second().isAssignableFrom(secondElement.getClass()))
-                                    .map(Map.Entry::getValue)
-                                    .findAny().orElse(PolicyState.UNSET));
+                    : objectStateOf(binaryPolicy, firstElement, secondElement)
+                        .or(typeStateOf(binaryPolicy, firstElement.getClass(), secondElement.getClass()));
         };
     }
 
+    // Helper method to find the state set for the given pair of graph elements
+    private PolicyState objectStateOf(Policy.BinaryPolicy<?, ?> binaryPolicy, GraphElement firstElement, GraphElement secondElement) {
+        if (binaryObjectPolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var states = binaryObjectPolicyStateMap.get(binaryPolicy);
+        return states == null
+                ? PolicyState.UNSET
+                : states.getOrDefault(firstElement, secondElement, PolicyState.UNSET);
+    }
+
+    // Helper method to find the state of any type rule matching the given pair of types
+    private PolicyState typeStateOf(Policy.BinaryPolicy<?, ?> binaryPolicy, Class<?> firstType, Class<?> secondType) {
+        if (binaryTypePolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var states = binaryTypePolicyStateMap.get(binaryPolicy);
+        if (states == null)
+            return PolicyState.UNSET;
+
+        for (var entry : states.entrySet())
+            if (entry.getKey().first().isAssignableFrom(firstType) && entry.getKey().second().isAssignableFrom(secondType))
+                return entry.getValue();
+
+        return PolicyState.UNSET;
+    }
+
     /**
      * Returns the state of the given policy for the given graph element type using the default algorithm.
      * @param binaryPolicy the policy to check
@@ -287,12 +312,41 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(binaryPolicy);
         Objects.requireNonNull(graphElementTypePair);
 
-        if (binaryTypePolicyStateMap != null)
-            return binaryTypePolicyStateMap
-                    .getOrDefault(binaryPolicy, new HashMap<>())
-                    .getOrDefault(graphElementTypePair, PolicyState.UNSET);
+        if (binaryTypePolicyStateMap == null)
+            return PolicyState.UNSET;
 
-        return PolicyState.UNSET;
+        var states = binaryTypePolicyStateMap.get(binaryPolicy);
+        return states == null ? PolicyState.UNSET : states.getOrDefault(graphElementTypePair, PolicyState.UNSET);
+    }
+
+    /**
+     * Returns a counter that changes every time a rule is set, so a state obtained for a generation can be reused while
+     * the generation does not change.
+     * @return the generation of the rules
+     */
+    public int generation() {
+        return generation;
+    }
+
+    /**
+     * Checks if the given policy has rules for specific graph elements. If it has not, the state of the policy only
+     * depends on the types of the elements.
+     * @param unaryPolicy the policy to check
+     * @return true if a rule was set for a graph element
+     */
+    public boolean hasObjectRules(Policy.UnaryPolicy<?> unaryPolicy) {
+        return (objectRulePolicies & 1L << PolicyBits.slotOf(unaryPolicy)) != 0
+                || (unaryObjectPolicyStateMap != null && unaryObjectPolicyStateMap.containsKey(unaryPolicy));
+    }
+
+    /**
+     * Checks if the given policy has rules for specific pairs of graph elements. If it has not, the state of the policy
+     * only depends on the types of the elements.
+     * @param binaryPolicy the policy to check
+     * @return true if a rule was set for a pair of graph elements
+     */
+    public boolean hasObjectRules(Policy.BinaryPolicy<?, ?> binaryPolicy) {
+        return binaryObjectPolicyStateMap != null && binaryObjectPolicyStateMap.containsKey(binaryPolicy);
     }
 
     /**
@@ -303,10 +357,8 @@ public final class GraphOperationsPolicies {
     public <P extends GraphPolicy & Policy.NullaryPolicy> void accept(P unaryPolicy) {
         Objects.requireNonNull(unaryPolicy);
 
-        if (nullaryPolicyStateMap == null)
-            nullaryPolicyStateMap = new HashMap<>();
-
-        nullaryPolicyStateMap.put(unaryPolicy, PolicyState.ACCEPT);
+        nullaryStates = PolicyBits.with(nullaryStates, PolicyBits.slotOf(unaryPolicy), PolicyState.ACCEPT);
+        generation++;
     }
 
     /**
@@ -317,10 +369,8 @@ public final class GraphOperationsPolicies {
     public <P extends GraphPolicy & Policy.NullaryPolicy> void reject(P unaryPolicy) {
         Objects.requireNonNull(unaryPolicy);
 
-        if (nullaryPolicyStateMap == null)
-            nullaryPolicyStateMap = new HashMap<>();
-
-        nullaryPolicyStateMap.put(unaryPolicy, PolicyState.REJECT);
+        nullaryStates = PolicyBits.with(nullaryStates, PolicyBits.slotOf(unaryPolicy), PolicyState.REJECT);
+        generation++;
     }
 
     /**
@@ -331,10 +381,8 @@ public final class GraphOperationsPolicies {
     public <P extends GraphPolicy & Policy.NullaryPolicy> void unset(P unaryPolicy) {
         Objects.requireNonNull(unaryPolicy);
 
-        if (nullaryPolicyStateMap == null)
-            nullaryPolicyStateMap = new HashMap<>();
-
-        nullaryPolicyStateMap.put(unaryPolicy, PolicyState.UNSET);
+        nullaryStates = PolicyBits.with(nullaryStates, PolicyBits.slotOf(unaryPolicy), PolicyState.UNSET);
+        generation++;
     }
 
     /**
@@ -348,10 +396,8 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(binaryPolicy);
         Objects.requireNonNull(graphElement);
 
-        if (unaryObjectPolicyStateMap == null)
-            unaryObjectPolicyStateMap = new HashMap<>();
-
-        unaryObjectPolicyStateMap.computeIfAbsent(binaryPolicy, _ -> new WeakHashMap<>()).put(graphElement, PolicyState.ACCEPT);
+        putObjectState(binaryPolicy, graphElement, PolicyState.ACCEPT);
+        generation++;
     }
 
     /**
@@ -365,10 +411,8 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(binaryPolicy);
         Objects.requireNonNull(graphElement);
 
-        if (unaryObjectPolicyStateMap == null)
-            unaryObjectPolicyStateMap = new HashMap<>();
-
-        unaryObjectPolicyStateMap.computeIfAbsent(binaryPolicy, _ -> new WeakHashMap<>()).put(graphElement, PolicyState.REJECT);
+        putObjectState(binaryPolicy, graphElement, PolicyState.REJECT);
+        generation++;
     }
 
     /**
@@ -382,10 +426,8 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(binaryPolicy);
         Objects.requireNonNull(graphElement);
 
-        if (unaryObjectPolicyStateMap == null)
-            unaryObjectPolicyStateMap = new HashMap<>();
-
-        unaryObjectPolicyStateMap.computeIfAbsent(binaryPolicy, _ -> new WeakHashMap<>()).put(graphElement, PolicyState.UNSET);
+        putObjectState(binaryPolicy, graphElement, PolicyState.UNSET);
+        generation++;
     }
 
     /**
@@ -399,10 +441,8 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(binaryPolicy);
         Objects.requireNonNull(graphElementType);
 
-        if (unaryTypePolicyStateMap == null)
-            unaryTypePolicyStateMap = new HashMap<>();
-
-        unaryTypePolicyStateMap.computeIfAbsent(binaryPolicy, _ -> new HashMap<>()).put(graphElementType, PolicyState.ACCEPT);
+        putTypeState(binaryPolicy, graphElementType, PolicyState.ACCEPT);
+        generation++;
     }
 
     /**
@@ -416,10 +456,8 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(binaryPolicy);
         Objects.requireNonNull(graphElementType);
 
-        if (unaryTypePolicyStateMap == null)
-            unaryTypePolicyStateMap = new HashMap<>();
-
-        unaryTypePolicyStateMap.computeIfAbsent(binaryPolicy, _ -> new HashMap<>()).put(graphElementType, PolicyState.REJECT);
+        putTypeState(binaryPolicy, graphElementType, PolicyState.REJECT);
+        generation++;
     }
 
     /**
@@ -433,10 +471,8 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(binaryPolicy);
         Objects.requireNonNull(graphElementType);
 
-        if (unaryTypePolicyStateMap == null)
-            unaryTypePolicyStateMap = new HashMap<>();
-
-        unaryTypePolicyStateMap.computeIfAbsent(binaryPolicy, _ -> new HashMap<>()).put(graphElementType, PolicyState.UNSET);
+        putTypeState(binaryPolicy, graphElementType, PolicyState.UNSET);
+        generation++;
     }
 
     /**
@@ -457,9 +493,9 @@ public final class GraphOperationsPolicies {
             binaryObjectPolicyStateMap = new HashMap<>();
 
         binaryObjectPolicyStateMap
-                .computeIfAbsent(ternaryPolicy, _ -> new HashMap<>())
-                .put(new Pair<>(firstElement, secondElement), PolicyState.ACCEPT);
-//                .put(new Pair<>(new WeakReference<>(firstElement), new WeakReference<>(secondElement)), PolicyState.ACCEPT);
+                .computeIfAbsent(ternaryPolicy, _ -> new WeakPairMap<>())
+                .put(firstElement, secondElement, PolicyState.ACCEPT);
+        generation++;
     }
 
     /**
@@ -480,9 +516,9 @@ public final class GraphOperationsPolicies {
             binaryObjectPolicyStateMap = new HashMap<>();
 
         binaryObjectPolicyStateMap
-                .computeIfAbsent(ternaryPolicy, _ -> new HashMap<>())
-                .put(new Pair<>(firstElement, secondElement), PolicyState.REJECT);
-//                .put(new Pair<>(new WeakReference<>(firstElement), new WeakReference<>(secondElement)), PolicyState.REJECT);
+                .computeIfAbsent(ternaryPolicy, _ -> new WeakPairMap<>())
+                .put(firstElement, secondElement, PolicyState.REJECT);
+        generation++;
     }
 
     /**
@@ -499,13 +535,11 @@ public final class GraphOperationsPolicies {
         Objects.requireNonNull(firstElement);
         Objects.requireNonNull(secondElement);
 
-        if (binaryObjectPolicyStateMap == null)
-            binaryObjectPolicyStateMap = new HashMap<>();
-
-        binaryObjectPolicyStateMap
-                .computeIfAbsent(ternaryPolicy, _ -> new HashMap<>())
-                .put(new Pair<>(firstElement, secondElement), PolicyState.UNSET);
-//                .put(new Pair<>(new WeakReference<>(firstElement), new WeakReference<>(secondElement)), PolicyState.UNSET);
+        // A pair without an entry is unset
+        var states = binaryObjectPolicyStateMap == null ? null : binaryObjectPolicyStateMap.get(ternaryPolicy);
+        if (states != null)
+            states.remove(firstElement, secondElement);
+        generation++;
     }
 
     /**
@@ -528,6 +562,7 @@ public final class GraphOperationsPolicies {
         binaryTypePolicyStateMap
                 .computeIfAbsent(ternaryPolicy, _ -> new HashMap<>())
                 .put(new Pair<>(firstElementType, secondElementType), PolicyState.ACCEPT);
+        generation++;
     }
 
 
@@ -0,0 +1,175 @@
+package juanmanuel.tea.graph.policy;
+
+import juanmanuel.tea.graph.GraphElement;
+import juanmanuel.tea.graph.internal.PolicyBitsAccess;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The states of the unary policies set for a graph element by a policies manager, packed in two bits per policy.
+ * <p>
+ * Vertices and graphs carry one of these once a manager sets a rule for them, so the rules a manager sets for a
+ * specific element are stored in the element instead of in a weak map of the manager. The bits can only hold the rules
+ * of one manager, the first one that sets a rule for the element, which is usually the graph the element belongs to.
+ * The ownership is taken atomically, so two managers never share the bits.
+ * <p>
+ * Every bits also have a unique id, which the other managers use to keep the rules they set for the element without
+ * referencing it, see {@link #id()}.
+ * <p>
+ * The states are encoded as 0 for {@link PolicyState#UNSET}, 1 for {@link PolicyState#ACCEPT} and 2 for
+ * {@link PolicyState#REJECT}, so an element without rules has no bits set.
+ */
+@NullMarked
+public final class PolicyBits {
+    private static final int QUERY_EDGE = 0;
+    private static final int MODIFICATION_EDGE = QUERY_EDGE + EdgePolicy.QueryEdgePolicy.values().length;
+    private static final int VERTEX_MODIFICATION_GRAPH = MODIFICATION_EDGE + EdgePolicy.ModificationEdgePolicy.values().length;
+    private static final int VERTEX_EFFECT_GRAPH = VERTEX_MODIFICATION_GRAPH + GraphPolicy.VertexModificationGraphPolicy.values().length;
+    private static final int EFFECT_VERTEX = VERTEX_EFFECT_GRAPH + GraphPolicy.VertexEffectGraphPolicy.values().length;
+    private static final int EDGE_MODIFICATION_VERTEX = EFFECT_VERTEX + VertexPolicy.EffectVertexPolicy.values().length;
+    private static final int GRAPH_MODIFICATION_VERTEX = EDGE_MODIFICATION_VERTEX + VertexPolicy.EdgeModificationVertexPolicy.values().length;
+
+    /**
+     * The number of unary policies. Must not exceed 32 for their states to fit in a long.
+     */
+    static final int SLOTS = GRAPH_MODIFICATION_VERTEX + VertexPolicy.GraphModificationVertexPolicy.values().length;
+
+    private static final PolicyState[] DECODED = {PolicyState.UNSET, PolicyState.ACCEPT, PolicyState.REJECT, PolicyState.UNSET};
+    private static final AtomicLong OWNERS = new AtomicLong();
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final AtomicLongFieldUpdater<PolicyBits> OWNER = AtomicLongFieldUpdater.newUpdater(PolicyBits.class, "owner");
+
+    private final long id = IDS.incrementAndGet();
+    // The id of the manager that set the states, or 0 if none did
+    private volatile long owner;
+    private volatile long states;
+
+    PolicyBits() {}
+
+    /**
+     * Returns the slot of the policy among every unary policy.
+     * @param policy the policy
+     * @return the slot of the policy
+     */
+    static int slotOf(Policy.UnaryPolicy<?> policy) {
+        return switch (policy) {
+            case EdgePolicy.QueryEdgePolicy p -> QUERY_EDGE + p.ordinal();
+            case EdgePolicy.ModificationEdgePolicy p -> MODIFICATION_EDGE + p.ordinal();
+            case GraphPolicy.VertexModificationGraphPolicy p -> VERTEX_MODIFICATION_GRAPH + p.ordinal();
+            case GraphPolicy.VertexEffectGraphPolicy p -> VERTEX_EFFECT_GRAPH + p.ordinal();
+            case VertexPolicy.EffectVertexPolicy p -> EFFECT_VERTEX + p.ordinal();
+            case VertexPolicy.EdgeModificationVertexPolicy p -> EDGE_MODIFICATION_VERTEX + p.ordinal();
+            case VertexPolicy.GraphModificationVertexPolicy p -> GRAPH_MODIFICATION_VERTEX + p.ordinal();
+        };
+    }
+
+    /**
+     * Returns the slot of the policy among the nullary policies of its manager.
+     * @param policy the policy
+     * @return the slot of the policy
+     */
+    static int slotOf(Policy.NullaryPolicy policy) {
+        return switch (policy) {
+            case GraphPolicy.QueryGraphPolicy p -> p.ordinal();
+            case VertexPolicy.QueryVertexPolicy p -> p.ordinal();
+        };
+    }
+
+    /**
+     * Returns the state stored in the slot of the packed states.
+     * @param states the packed states
+     * @param slot the slot of the policy
+     * @return the state of the policy
+     */
+    static PolicyState get(long states, int slot) {
+        return DECODED[(int) (states >>> (slot << 1)) & 3];
+    }
+
+    /**
+     * Returns the packed states with the state of the slot replaced.
+     * @param states the packed states
+     * @param slot the slot of the policy
+     * @param state the new state of the policy
+     * @return the updated packed states
+     */
+    static long with(long states, int slot, PolicyState state) {
+        long code = switch (state) {
+            case UNSET -> 0;
+            case ACCEPT -> 1;
+            case REJECT -> 2;
+        };
+        int shift = slot << 1;
+        return (states & ~(3L << shift)) | (code << shift);
+    }
+
+    /**
+     * Returns a new id for a policies manager.
+     * @return an id that is never 0
+     */
+    static long newOwner() {
+        return OWNERS.incrementAndGet();
+    }
+
+    /**
+     * Returns the bits carried by the graph element.
+     * @param graphElement the graph element
+     * @return the bits of the element, or null if it does not carry them or no manager set a rule for it yet
+     */
+    static @Nullable PolicyBits of(GraphElement graphElement) {
+        var carrier = PolicyBitsAccess.carrier();
+        return carrier == null ? null : carrier.bitsOf(graphElement);
+    }
+
+    /**
+     * Returns the bits carried by the graph element, attaching new ones if it has none yet.
+     * @param graphElement the graph element
+     * @return the bits of the element, or null if it cannot carry them
+     */
+    static @Nullable PolicyBits attachedTo(GraphElement graphElement) {
+        var carrier = PolicyBitsAccess.carrier();
+        return carrier == null ? null : carrier.bitsOf(graphElement, PolicyBits::new);
+    }
+
+    /**
+     * Checks if the states belong to the manager, claiming them if no manager did yet.
+     * @param owner the id of the manager
+     * @return true if the manager can store its states for the element in these bits
+     */
+    boolean claim(long owner) {
+        return this.owner == owner || OWNER.compareAndSet(this, 0, owner);
+    }
+
+    /**
+     * @param owner the id of the manager
+     * @return true if the states were set by the manager
+     */
+    boolean isOwnedBy(long owner) {
+        return this.owner == owner;
+    }
+
+    /**
+     * @return the id of the element that carries these bits, unique among every element and never 0
+     */
+    long id() {
+        return id;
+    }
+
+    /**
+     * @param policy the policy
+     * @return the state of the policy
+     */
+    PolicyState get(Policy.UnaryPolicy<?> policy) {
+        return get(states, slotOf(policy));
+    }
+
+    /**
+     * @param policy the policy
+     * @param state the new state of the policy
+     */
+    void set(Policy.UnaryPolicy<?> policy, PolicyState state) {
+        states = with(states, slotOf(policy), state);
+    }
+}
@@ -0,0 +1,76 @@
+package juanmanuel.tea.graph.policy;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the state of the unary policies resolved from the type rules of a policies manager.
+ * <p>
+ * Every class checked against the rules gets an array with a slot for each unary policy, filled the first time the
+ * policy is checked for that class. The last array used is kept apart, so checking several elements of the same class
+ * only loads the array and the slot.
+ * <p>
+ * The arrays are stamped with the generation of the rules they were resolved from. The manager must call
+ * {@link #invalidate()} after changing a type rule, which discards every array resolved before the change.
+ */
+@NullMarked
+final class TypePolicyCache {
+    /**
+     * Resolves the state of a policy for a class from the type rules.
+     */
+    @FunctionalInterface
+    interface Resolver {
+        PolicyState resolve(Policy.UnaryPolicy<?> policy, Class<?> type);
+    }
+
+    private record Resolved(Class<?> type, int generation, @Nullable PolicyState[] states) {}
+
+    private final Resolver resolver;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Map<Class<?>, Resolved> resolved = new ConcurrentHashMap<>();
+    private volatile @Nullable Resolved last;
+
+    TypePolicyCache(Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Returns the state of the policy for the class, resolving it if the rules changed since it was last resolved.
+     * @param policy the policy to check
+     * @param type the class to check
+     * @return the state of the policy
+     */
+    PolicyState stateOf(Policy.UnaryPolicy<?> policy, Class<?> type) {
+        // The generation is read before resolving, so a rule changed meanwhile makes the result stale
+        int current = generation.get();
+        var entry = last;
+        if (entry == null || entry.type != type || entry.generation != current) {
+            entry = resolved.get(type);
+            if (entry == null || entry.generation != current) {
+                entry = new Resolved(type, current, new PolicyState[PolicyBits.SLOTS]);
+                resolved.put(type, entry);
+            }
+            last = entry;
+        }
+
+        int slot = PolicyBits.slotOf(policy);
+        var state = entry.states[slot];
+        if (state == null) {
+            state = resolver.resolve(policy, type);
+            entry.states[slot] = state;
+        }
+
+        return state;
+    }
+
+    /**
+     * Discards the states resolved so far. Must be called after a type rule changes.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+    }
+}
@@ -9,9 +9,16 @@ import java.util.WeakHashMap;
 
 public final class VertexOperationsPolicies {
     private final PolicyCheckAlgorithm defaultPolicyCheckAlgorithm;
-    private Map<Policy.NullaryPolicy, PolicyState> nullaryPolicyStateMap;
+    private final long id = PolicyBits.newOwner();
+    private long nullaryStates;
+    // The unary policies with states stored in the policy bits of a graph element or in the element slot
+    private long objectRulePolicies;
+    // The states set for one element whose policy bits belong to another manager, keyed by the id of the bits
+    private long slotElement;
+    private long slotStates;
     private Map<Policy.UnaryPolicy<?>, WeakHashMap<GraphElement, PolicyState>> unaryObjectPolicyStateMap;
     private Map<Policy.UnaryPolicy<?>, HashMap<Class<? extends GraphElement>, PolicyState>> unaryTypePolicyStateMap;
+    private volatile TypePolicyCache typePolicyCache; // Created by the first lookup of a type rule
 
     public VertexOperationsPolicies(PolicyCheckAlgorithm defaultPolicyCheckAlgorithm) {
         this.defaultPolicyCheckAlgorithm = defaultPolicyCheckAlgorithm;
@@ -22,10 +29,7 @@ public final class VertexOperationsPolicies {
     }
 
     public <P extends VertexPolicy & Policy.NullaryPolicy> PolicyState stateOf(P nullaryVertexPolicy) {
-        if (nullaryPolicyStateMap != null)
-            return nullaryPolicyStateMap.getOrDefault(nullaryVertexPolicy, PolicyState.UNSET);
-
-        return PolicyState.UNSET;
+        return PolicyBits.get(nullaryStates, PolicyBits.slotOf(nullaryVertexPolicy));
     }
 
     public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> PolicyState stateOf(P unaryPolicy, G graphElement, PolicyCheckAlgorithm algorithm) {
@@ -34,44 +38,88 @@ public final class VertexOperationsPolicies {
         Objects.requireNonNull(algorithm);
 
         return switch (algorithm) {
-            case OBJECT_OVER_TYPE -> unaryObjectPolicyStateMap == null
+            case OBJECT_OVER_TYPE -> objectStateOf(unaryPolicy, graphElement);
+            case TYPE_OVER_OBJECT -> typeStateOf(unaryPolicy, graphElement.getClass());
+            case OBJECT_AND_TYPE -> unaryObjectPolicyStateMap == null && objectRulePolicies == 0
                     ? PolicyState.UNSET
-                    : unaryObjectPolicyStateMap
-                        .getOrDefault(unaryPolicy, new WeakHashMap<>())
-                        .getOrDefault(graphElement, PolicyState.UNSET);
+                    : objectStateOf(unaryPolicy, graphElement).and(typeStateOf(unaryPolicy, graphElement.getClass()));
+            case OBJECT_OR_TYPE -> objectStateOf(unaryPolicy, graphElement).or(typeStateOf(unaryPolicy, graphElement.getClass()));
+        };
+    }
 
-            case TYPE_OVER_OBJECT -> unaryTypePolicyStateMap == null
-                    ? PolicyState.UNSET
-                    : unaryTypePolicyStateMap
-                        .getOrDefault(unaryPolicy, new HashMap<>())
-                        .getOrDefault(graphElement.getClass(), PolicyState.UNSET);
+    private PolicyState objectStateOf(Policy.UnaryPolicy<?> unaryPolicy, GraphElement graphElement) {
+        var bits = PolicyBits.of(graphElement);
+        if (bits != null) {
+            if (bits.isOwnedBy(id))
+                return bits.get(unaryPolicy);
+            if (bits.id() == slotElement)
+                return PolicyBits.get(slotStates, PolicyBits.slotOf(unaryPolicy));
+        }
 
-            case OBJECT_AND_TYPE -> unaryObjectPolicyStateMap == null
-                    ? PolicyState.UNSET
-                    : unaryObjectPolicyStateMap
-                        .getOrDefault(unaryPolicy, new WeakHashMap<>())
-                        .getOrDefault(graphElement, PolicyState.UNSET)
-                        .and(unaryTypePolicyStateMap == null
-                                ? PolicyState.UNSET
-                                : unaryTypePolicyStateMap
-                                    .getOrDefault(unaryPolicy, new HashMap<>())
-                                    .getOrDefault(graphElement.getClass(), PolicyState.UNSET));
-
-            case OBJECT_OR_TYPE -> unaryObjectPolicyStateMap == null
-                    ? PolicyState.UNSET.or(unaryTypePolicyStateMap == null
-                        ? PolicyState.UNSET
-                        : unaryTypePolicyStateMap
-                            .getOrDefault(unaryPolicy, new HashMap<>())
-                            .getOrDefault(graphElement.getClass(), PolicyState.UNSET))
-                    : unaryObjectPolicyStateMap
-                        .getOrDefault(unaryPolicy, new WeakHashMap<>())
-                        .getOrDefault(graphElement, PolicyState.UNSET)
-                        .or(unaryTypePolicyStateMap == null
-                                ? PolicyState.UNSET
-                                : unaryTypePolicyStateMap
-                                    .getOrDefault(unaryPolicy, new HashMap<>())
-                                    .getOrDefault(graphElement.getClass(), PolicyState.UNSET));
-        };
+        if (unaryObjectPolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var states = unaryObjectPolicyStateMap.get(unaryPolicy);
+        return states == null ? PolicyState.UNSET : states.getOrDefault(graphElement, PolicyState.UNSET);
+    }
+
+    private PolicyState typeStateOf(Policy.UnaryPolicy<?> unaryPolicy, Class<?> graphElementType) {
+        if (unaryTypePolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var cache = typePolicyCache;
+        if (cache == null)
+            typePolicyCache = cache = new TypePolicyCache(this::resolveTypeState);
+
+        return cache.stateOf(unaryPolicy, graphElementType);
+    }
+
+    private void putObjectState(Policy.UnaryPolicy<?> unaryPolicy, GraphElement graphElement, PolicyState state) {
+        var bits = state == PolicyState.UNSET ? PolicyBits.of(graphElement) : PolicyBits.attachedTo(graphElement);
+        if (bits != null) {
+            int slot = PolicyBits.slotOf(unaryPolicy);
+            if (bits.claim(id)) {
+                bits.set(unaryPolicy, state);
+                objectRulePolicies |= 1L << slot;
+                return;
+            }
+
+            // Usually the graph of a vertex, whose bits hold the rules of the graph's own manager
+            if (slotElement == 0 || slotElement == bits.id()) {
+                slotElement = bits.id();
+                slotStates = PolicyBits.with(slotStates, slot, state);
+                objectRulePolicies |= 1L << slot;
+                return;
+            }
+        }
+
+        if (unaryObjectPolicyStateMap == null) {
+            if (state == PolicyState.UNSET)
+                return;
+
+            unaryObjectPolicyStateMap = new HashMap<>();
+        }
+
+        unaryObjectPolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new WeakHashMap<>()).put(graphElement, state);
+    }
+
+    private PolicyState resolveTypeState(Policy.UnaryPolicy<?> unaryPolicy, Class<?> graphElementType) {
+        if (unaryTypePolicyStateMap == null)
+            return PolicyState.UNSET;
+
+        var states = unaryTypePolicyStateMap.get(unaryPolicy);
+        return states == null ? PolicyState.UNSET : states.getOrDefault(graphElementType, PolicyState.UNSET);
+    }
+
+    private void putTypeState(Policy.UnaryPolicy<?> unaryPolicy, Class<? extends GraphElement> graphElementType, PolicyState state) {
+        if (unaryTypePolicyStateMap == null)
+            unaryTypePolicyStateMap = new HashMap<>();
+
+        // Most managers are only written, so the cache is not created until a type rule is looked up
+        var previous = unaryTypePolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new HashMap<>()).put(graphElementType, state);
+        var cache = typePolicyCache;
+        if (previous != state && cache != null)
+            cache.invalidate();
     }
 
     public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> PolicyState stateOf(P unaryPolicy, G graphElement) {
@@ -85,12 +133,7 @@ public final class VertexOperationsPolicies {
         Objects.requireNonNull(unaryPolicy);
         Objects.requireNonNull(graphElementType);
 
-        if (unaryTypePolicyStateMap != null)
-            return unaryTypePolicyStateMap
-                    .getOrDefault(unaryPolicy, new HashMap<>())
-                    .getOrDefault(graphElementType, PolicyState.UNSET);
-
-        return PolicyState.UNSET;
+        return typeStateOf(unaryPolicy, graphElementType);
     }
 
     public <P extends VertexPolicy & Policy.NullaryPolicy> boolean isAccepted(P nullaryPolicy) {
@@ -130,65 +173,41 @@ public final class VertexOperationsPolicies {
     }
 
     public <P extends VertexPolicy & Policy.NullaryPolicy> void accept(P nullaryPolicy) {
-        if (nullaryPolicyStateMap == null)
-            nullaryPolicyStateMap = new HashMap<>();
-
-        nullaryPolicyStateMap.put(nullaryPolicy, PolicyState.ACCEPT);
+        nullaryStates = PolicyBits.with(nullaryStates, PolicyBits.slotOf(nullaryPolicy), PolicyState.ACCEPT);
     }
 
     public <P extends VertexPolicy & Policy.NullaryPolicy> void reject(P nullaryPolicy) {
-        if (nullaryPolicyStateMap == null)
-            nullaryPolicyStateMap = new HashMap<>();
-
-        nullaryPolicyStateMap.put(nullaryPolicy, PolicyState.REJECT);
+        nullaryStates = PolicyBits.with(nullaryStates, PolicyBits.slotOf(nullaryPolicy), PolicyState.REJECT);
     }
 
     public <P extends VertexPolicy & Policy.NullaryPolicy> void unset(P nullaryPolicy) {
-        if (nullaryPolicyStateMap == null)
-            return;
-
-        nullaryPolicyStateMap.put(nullaryPolicy, PolicyState.UNSET);
+        nullaryStates = PolicyBits.with(nullaryStates, PolicyBits.slotOf(nullaryPolicy), PolicyState.UNSET);
     }
 
     public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> void accept(P unaryPolicy, G graphElement) {
-        if (unaryObjectPolicyStateMap == null)
-            unaryObjectPolicyStateMap = new HashMap<>();
-
-        unaryObjectPolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new WeakHashMap<>()).put(graphElement, PolicyState.ACCEPT);
+        putObjectState(unaryPolicy, graphElement, PolicyState.ACCEPT);
     }
 
     public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> void reject(P unaryPolicy, G graphElement) {
-        if (unaryObjectPolicyStateMap == null)
-            unaryObjectPolicyStateMap = new HashMap<>();
-
-        unaryObjectPolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new WeakHashMap<>()).put(graphElement, PolicyState.REJECT);
+        putObjectState(unaryPolicy, graphElement, PolicyState.REJECT);
     }
 
     public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> void unset(P unaryPolicy, G graphElement) {
-        if (unaryObjectPolicyStateMap == null)
-            return;
-
-        unaryObjectPolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new WeakHashMap<>()).put(graphElement, PolicyState.UNSET);
+        putObjectState(unaryPolicy, graphElement, PolicyState.UNSET);
     }
 
     public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> void accept(P unaryPolicy, Class<? extends G> graphElementType) {
-        if (unaryTypePolicyStateMap == null)
-            unaryTypePolicyStateMap = new HashMap<>();
-
-        unaryTypePolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new HashMap<>()).put(graphElementType, PolicyState.ACCEPT);
+        putTypeState(unaryPolicy, graphElementType, PolicyState.ACCEPT);
     }
 
     public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> void reject(P unaryPolicy, Class<? extends G> graphElementType) {
-        if (unaryTypePolicyStateMap == null)
-            unaryTypePolicyStateMap = new HashMap<>();
-
-        unaryTypePolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new HashMap<>()).put(graphElementType, PolicyState.REJECT);
+        putTypeState(unaryPolicy, graphElementType, PolicyState.REJECT);
     }
 
-    public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> void unset(P unaryPolicy, Class<G> graphElementType) {
+    public <P extends VertexPolicy & Policy.UnaryPolicy<G>, G extends GraphElement> void unset(P unaryPolicy, Class<? extends G> graphElementType) {
         if (unaryTypePolicyStateMap == null)
             return;
 
-        unaryTypePolicyStateMap.computeIfAbsent(unaryPolicy, _ -> new HashMap<>()).put(graphElementType, PolicyState.UNSET);
+        putTypeState(unaryPolicy, graphElementType, PolicyState.UNSET);
     }
 }
@@ -0,0 +1,161 @@
+package juanmanuel.tea.graph.policy;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A map keyed by pairs of objects that does not keep them alive.
+ * <p>
+ * An entry only lives while both objects of its pair are reachable from elsewhere: once the garbage collector clears
+ * either of them, the entry can no longer be found, and it is removed the next time the map is modified or its size is
+ * queried. The objects of a pair are compared by identity.
+ * <p>
+ * The values must not reference the objects of their pair, or the entry will never be removed. This map is not
+ * thread-safe.
+ * @param <K1> the type of the first object of the pairs
+ * @param <K2> the type of the second object of the pairs
+ * @param <V> the type of the values
+ */
+@NullMarked
+final class WeakPairMap<K1, K2, V> {
+    private final Map<Object, V> entries = new HashMap<>();
+    private final ReferenceQueue<Object> cleared = new ReferenceQueue<>();
+
+    /**
+     * A reference to an object of a pair, which knows the key it belongs to so it can be removed once cleared.
+     */
+    private static final class PairReference extends WeakReference<Object> {
+        private @Nullable Key key;
+
+        private PairReference(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+        }
+    }
+
+    /**
+     * The key of a stored entry. Equal to the keys and probes of the same pair while both objects are alive.
+     */
+    private static final class Key {
+        private final PairReference first;
+        private final PairReference second;
+        private final int hash;
+
+        private Key(PairReference first, PairReference second, int hash) {
+            this.first = first;
+            this.second = second;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+
+            var f = first.get();
+            var s = second.get();
+            if (f == null || s == null)
+                return false;
+
+            return switch (o) {
+                case Key other -> f == other.first.get() && s == other.second.get();
+                case Probe other -> f == other.first && s == other.second;
+                default -> false;
+            };
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Looks up an entry without creating references.
+     */
+    private record Probe(Object first, Object second) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && key.equals(this);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashOf(first, second);
+        }
+    }
+
+    private static int hashOf(Object first, Object second) {
+        return 31 * System.identityHashCode(first) + System.identityHashCode(second);
+    }
+
+    /**
+     * Returns the value of the pair.
+     * @param first the first object of the pair
+     * @param second the second object of the pair
+     * @param defaultValue the value returned if the pair has no entry
+     * @return the value of the pair, or the default value
+     */
+    V getOrDefault(K1 first, K2 second, V defaultValue) {
+        return entries.getOrDefault(new Probe(first, second), defaultValue);
+    }
+
+    /**
+     * Associates the value with the pair.
+     * @param first the first object of the pair
+     * @param second the second object of the pair
+     * @param value the value
+     * @return the previous value of the pair, or null if it had none
+     */
+    @Nullable V put(K1 first, K2 second, V value) {
+        expungeCleared();
+
+        var probe = new Probe(first, second);
+        if (entries.containsKey(probe))
+            return entries.put(probe, value);
+
+        var key = new Key(new PairReference(first, cleared), new PairReference(second, cleared), probe.hashCode());
+        key.first.key = key;
+        key.second.key = key;
+        entries.put(key, value);
+        return null;
+    }
+
+    /**
+     * Removes the entry of the pair.
+     * @param first the first object of the pair
+     * @param second the second object of the pair
+     * @return the value of the pair, or null if it had none
+     */
+    @Nullable V remove(K1 first, K2 second) {
+        expungeCleared();
+        return entries.remove(new Probe(first, second));
+    }
+
+    /**
+     * @return the number of entries whose pair is still alive, or was until recently
+     */
+    int size() {
+        expungeCleared();
+        return entries.size();
+    }
+
+    /**
+     * Removes the entries of the pairs with an object cleared by the garbage collector.
+     */
+    private void expungeCleared() {
+        for (var reference = cleared.poll(); reference != null; reference = cleared.poll()) {
+            // The other reference of the pair may have been cleared too and the entry already removed
+            var key = ((PairReference) reference).key;
+            if (key != null) {
+                entries.remove(key);
+                key.first.key = null;
+                key.second.key = null;
+            }
+        }
+    }
+}
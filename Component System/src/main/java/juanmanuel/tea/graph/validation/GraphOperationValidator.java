@@ -2,6 +2,7 @@ package juanmanuel.tea.graph.validation;
 
 import juanmanuel.tea.graph.Vertex;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
@@ -11,6 +12,13 @@ public final class GraphOperationValidator<V extends Vertex<V>> implements Opera
             = new EnumMap<>(VertexValidation.class);
     private final EnumMap<EdgeValidation, Set<BiPredicate<V, V>>> graphValidations
             = new EnumMap<>(EdgeValidation.class);
+    private volatile int generation;
+
+    // The validations of every operation, indexed by the ordinal of the operation, replaced when they change
+    @SuppressWarnings("unchecked")
+    private volatile WeakReference<Predicate<V>>[][] vertexSnapshots = new WeakReference[VertexValidation.values().length][0];
+    @SuppressWarnings("unchecked")
+    private volatile WeakReference<BiPredicate<V, V>>[][] edgeSnapshots = new WeakReference[EdgeValidation.values().length][0];
 
     public enum VertexValidation {
         ADD_VERTEX_VALIDATION,
@@ -33,6 +41,7 @@ public final class GraphOperationValidator<V extends Vertex<V>> implements Opera
 
         var set = vertexValidations.computeIfAbsent(validation, _ -> Collections.newSetFromMap(new WeakHashMap<>()));
         set.add(predicate);
+        refresh(validation);
     }
 
     /**
@@ -46,6 +55,7 @@ public final class GraphOperationValidator<V extends Vertex<V>> implements Opera
 
         var set = graphValidations.computeIfAbsent(validation, _ -> Collections.newSetFromMap(new WeakHashMap<>()));
         set.add(predicate);
+        refresh(validation);
     }
 
     /**
@@ -58,8 +68,9 @@ public final class GraphOperationValidator<V extends Vertex<V>> implements Opera
         Objects.requireNonNull(validation, "validation cannot be null");
 
         var set = vertexValidations.get(validation);
-        if (set == null) return false;
-        return set.remove(key);
+        if (set == null || !set.remove(key)) return false;
+        refresh(validation);
+        return true;
     }
 
     /**
@@ -72,8 +83,57 @@ public final class GraphOperationValidator<V extends Vertex<V>> implements Opera
         Objects.requireNonNull(validation, "validation cannot be null");
 
         var map = graphValidations.get(validation);
-        if (map == null) return false;
-        return map.remove(key);
+        if (map == null || !map.remove(key)) return false;
+        refresh(validation);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void refresh(VertexValidation validation) {
+        var snapshots = vertexSnapshots.clone();
+        snapshots[validation.ordinal()] = getValidationsForOperation(validation).stream()
+                .map(WeakReference::new)
+                .toArray(WeakReference[]::new);
+        vertexSnapshots = snapshots;
+        generation++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void refresh(EdgeValidation validation) {
+        var snapshots = edgeSnapshots.clone();
+        snapshots[validation.ordinal()] = getValidationsForOperation(validation).stream()
+                .map(WeakReference::new)
+                .toArray(WeakReference[]::new);
+        edgeSnapshots = snapshots;
+        generation++;
+    }
+
+    /**
+     * Gets a counter that changes every time a validation is added or removed.
+     * @return the generation of the validations.
+     */
+    public int generation() {
+        return generation;
+    }
+
+    /**
+     * Checks if an operation has validations.
+     * @param validation The operation to check.
+     * @return true if the operation has at least one validation, false if it is always valid.
+     */
+    public boolean hasValidationsForOperation(VertexValidation validation) {
+        var set = vertexValidations.get(validation);
+        return set != null && !set.isEmpty();
+    }
+
+    /**
+     * Checks if an operation has validations.
+     * @param validation The operation to check.
+     * @return true if the operation has at least one validation, false if it is always valid.
+     */
+    public boolean hasValidationsForOperation(EdgeValidation validation) {
+        var set = graphValidations.get(validation);
+        return set != null && !set.isEmpty();
     }
 
     /**
@@ -83,7 +143,13 @@ public final class GraphOperationValidator<V extends Vertex<V>> implements Opera
      * @return true if the operation is valid, false otherwise.
      */
     public boolean validateOperation(VertexValidation validation, V vertex) {
-        return getValidationsForOperation(validation).stream().allMatch(p -> p.test(vertex));
+        for (var reference : vertexSnapshots[validation.ordinal()]) {
+            var predicate = reference.get();
+            if (predicate != null && !predicate.test(vertex))
+                return false;
+        }
+
+        return true;
     }
 
     /**
@@ -94,7 +160,13 @@ public final class GraphOperationValidator<V extends Vertex<V>> implements Opera
      * @return true if the operation is valid, false otherwise.
      */
     public boolean validateOperation(EdgeValidation validation, V source, V target) {
-        return getValidationsForOperation(validation).parallelStream().allMatch(p -> p.test(source, target));
+        for (var reference : edgeSnapshots[validation.ordinal()]) {
+            var predicate = reference.get();
+            if (predicate != null && !predicate.test(source, target))
+                return false;
+        }
+
+        return true;
     }
 
     /**
@@ -4,6 +4,7 @@ import juanmanuel.tea.graph.Graph;
 import juanmanuel.tea.graph.Vertex;
 import juanmanuel.tea.utils.Result;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -18,13 +19,27 @@ import java.util.function.Predicate;
  * - Disconnect parent
  * The validations are stored in a weak set to allow the predicates to be garbage collected if they are not referenced elsewhere.
  * If the user wants a validation to be permanently stored, they must keep a reference to the predicate elsewhere.
+ * <p>
+ * The validations of each operation are also kept in an array of weak references, replaced every time a validation is
+ * added or removed, which is what the operations are validated against. Validating an operation that every
+ * {@link Validation} accepts allocates nothing.
  * @param <V> The type of the vertex over which the validations are performed.
  */
 public final class VertexOperationValidator<V extends Vertex<V>> implements OperationValidator {
+    private static final WeakReference<?>[] NO_VALIDATIONS = new WeakReference<?>[0];
+
     private final EnumMap<VerticesOperationValidation, Set<Function<V, Result<Void, String>>>> vertexValidations
             = new EnumMap<>(VerticesOperationValidation.class);
     private final EnumMap<GraphsOperationValidation, Set<Function<Graph<? super V, ?>, Result<Void, String>>>> graphValidations
             = new EnumMap<>(GraphsOperationValidation.class);
+    private final EnumMap<VerticesOperationValidation, Set<Validation<? super V>>> vertexFastValidations
+            = new EnumMap<>(VerticesOperationValidation.class);
+    private final EnumMap<GraphsOperationValidation, Set<Validation<? super Graph<? super V, ?>>>> graphFastValidations
+            = new EnumMap<>(GraphsOperationValidation.class);
+
+    // The validations of every operation, indexed by the ordinal of the operation
+    private volatile WeakReference<?>[][] vertexSnapshots = emptySnapshots(VerticesOperationValidation.values().length);
+    private volatile WeakReference<?>[][] graphSnapshots = emptySnapshots(GraphsOperationValidation.values().length);
 
 
     /**
@@ -68,6 +83,85 @@ public final class VertexOperationValidator<V extends Vertex<V>> implements Oper
         REMOVE_FROM_GRAPH_VALIDATION
     }
 
+    /**
+     * A validation that does not allocate when the operation is valid, as the failure message is only built when it is
+     * not.
+     * @param <T> The type of the object the operation is validated on.
+     */
+    public interface Validation<T> {
+        /**
+         * @param t The object the operation is validated on.
+         * @return true if the operation is valid.
+         */
+        boolean isValid(T t);
+
+        /**
+         * Only called when the operation is not valid.
+         * @param t The object the operation is validated on.
+         * @return The reason the operation is not valid.
+         */
+        String failureMessage(T t);
+
+        /**
+         * Creates a validation from a predicate and the function that describes its failures.
+         * @param predicate The predicate that must be satisfied for the validation to pass.
+         * @param failureMessage The function that builds the failure message.
+         * @return The validation.
+         * @param <T> The type of the object the operation is validated on.
+         */
+        static <T> Validation<T> of(Predicate<? super T> predicate, Function<? super T, String> failureMessage) {
+            Objects.requireNonNull(predicate, "predicate cannot be null");
+            Objects.requireNonNull(failureMessage, "failureMessage cannot be null");
+
+            return new Validation<>() {
+                @Override
+                public boolean isValid(T t) {
+                    return predicate.test(t);
+                }
+
+                @Override
+                public String failureMessage(T t) {
+                    return failureMessage.apply(t);
+                }
+            };
+        }
+    }
+
+    private static WeakReference<?>[][] emptySnapshots(int operations) {
+        var snapshots = new WeakReference<?>[operations][];
+        Arrays.fill(snapshots, NO_VALIDATIONS);
+        return snapshots;
+    }
+
+    /**
+     * Creates the references to the validations of an operation that are still alive.
+     */
+    private static WeakReference<?>[] snapshotOf(Set<?> functions, Set<?> validations) {
+        var snapshot = new ArrayList<WeakReference<?>>(functions.size() + validations.size());
+        for (var function : functions)
+            snapshot.add(new WeakReference<>(function));
+        for (var validation : validations)
+            snapshot.add(new WeakReference<>(validation));
+
+        return snapshot.isEmpty() ? NO_VALIDATIONS : snapshot.toArray(WeakReference<?>[]::new);
+    }
+
+    private void refresh(VerticesOperationValidation validation) {
+        var snapshots = vertexSnapshots.clone();
+        snapshots[validation.ordinal()] = snapshotOf(
+                vertexValidations.getOrDefault(validation, Set.of()),
+                vertexFastValidations.getOrDefault(validation, Set.of()));
+        vertexSnapshots = snapshots;
+    }
+
+    private void refresh(GraphsOperationValidation validation) {
+        var snapshots = graphSnapshots.clone();
+        snapshots[validation.ordinal()] = snapshotOf(
+                graphValidations.getOrDefault(validation, Set.of()),
+                graphFastValidations.getOrDefault(validation, Set.of()));
+        graphSnapshots = snapshots;
+    }
+
     /**
      * Adds a validation for a vertex operation.
      * @param validation The operation to validate.
@@ -79,6 +173,21 @@ public final class VertexOperationValidator<V extends Vertex<V>> implements Oper
 
         var set = vertexValidations.computeIfAbsent(validation, _ -> Collections.newSetFromMap(new WeakHashMap<>()));
         set.add(predicate);
+        refresh(validation);
+    }
+
+    /**
+     * Adds a validation for a vertex operation.
+     * @param operation The operation to validate.
+     * @param validation The validation that must pass for the operation to be valid.
+     */
+    public void addOperationValidation(VerticesOperationValidation operation, Validation<? super V> validation) {
+        Objects.requireNonNull(operation, "operation cannot be null");
+        Objects.requireNonNull(validation, "validation cannot be null");
+
+        var set = vertexFastValidations.computeIfAbsent(operation, _ -> Collections.newSetFromMap(new WeakHashMap<>()));
+        set.add(validation);
+        refresh(operation);
     }
 
     /**
@@ -92,6 +201,21 @@ public final class VertexOperationValidator<V extends Vertex<V>> implements Oper
 
         var set = graphValidations.computeIfAbsent(validation, _ -> Collections.newSetFromMap(new WeakHashMap<>()));
         set.add(predicate);
+        refresh(validation);
+    }
+
+    /**
+     * Adds a validation for a graph operation.
+     * @param operation The operation to validate.
+     * @param validation The validation that must pass for the operation to be valid.
+     */
+    public void addOperationValidation(GraphsOperationValidation operation, Validation<? super Graph<? super V, ?>> validation) {
+        Objects.requireNonNull(operation, "operation cannot be null");
+        Objects.requireNonNull(validation, "validation cannot be null");
+
+        var set = graphFastValidations.computeIfAbsent(operation, _ -> Collections.newSetFromMap(new WeakHashMap<>()));
+        set.add(validation);
+        refresh(operation);
     }
 
     /**
@@ -104,8 +228,24 @@ public final class VertexOperationValidator<V extends Vertex<V>> implements Oper
         Objects.requireNonNull(validation, "validation cannot be null");
 
         var set = vertexValidations.get(validation);
-        if (set == null) return false;
-        return set.remove(predicate); // FIXME
+        if (set == null || !set.remove(predicate)) return false; // FIXME
+        refresh(validation);
+        return true;
+    }
+
+    /**
+     * Removes a validation for an operation.
+     * @param operation The operation to remove the validation from.
+     * @param validation The validation to remove.
+     * @return true if the validation was removed, false otherwise.
+     */
+    public boolean removeOperationValidation(VerticesOperationValidation operation, Validation<? super V> validation) {
+        Objects.requireNonNull(operation, "operation cannot be null");
+
+        var set = vertexFastValidations.get(operation);
+        if (set == null || !set.remove(validation)) return false;
+        refresh(operation);
+        return true;
     }
 
     /**
@@ -118,8 +258,24 @@ public final class VertexOperationValidator<V extends Vertex<V>> implements Oper
         Objects.requireNonNull(validation, "validation cannot be null");
 
         var set = graphValidations.get(validation);
-        if (set == null) return false;
-        return set.remove(predicate); // FIXME
+        if (set == null || !set.remove(predicate)) return false; // FIXME
+        refresh(validation);
+        return true;
+    }
+
+    /**
+     * Removes a validation for an operation.
+     * @param operation The operation to remove the validation from.
+     * @param validation The validation to remove.
+     * @return true if the validation was removed, false otherwise.
+     */
+    public boolean removeOperationValidation(GraphsOperationValidation operation, Validation<? super Graph<? super V, ?>> validation) {
+        Objects.requireNonNull(operation, "operation cannot be null");
+
+        var set = graphFastValidations.get(operation);
+        if (set == null || !set.remove(validation)) return false;
+        refresh(operation);
+        return true;
     }
 
     /**
@@ -130,23 +286,7 @@ public final class VertexOperationValidator<V extends Vertex<V>> implements Oper
      * operation is valid.
      */
     public Result<Void, Set<String>> validateOperation(VerticesOperationValidation validation, V vertex) {
-        var set = vertexValidations.get(validation);
-        if (set == null)
-            return Result.success();
-
-        var failures = new HashSet<String>();
-        for (var predicate : set) {
-            var result = predicate.apply(vertex);
-            switch (result) {
-                case Result.Success<Void, ?> _ -> {
-                }
-                case Result.Failure<?, String>(var f) -> failures.add(f);
-            }
-        }
-
-        if (failures.isEmpty())
-            return Result.success();
-        return Result.fail(failures);
+        return validate(vertexSnapshots[validation.ordinal()], vertex);
     }
 
     /**
@@ -157,21 +297,33 @@ public final class VertexOperationValidator<V extends Vertex<V>> implements Oper
      * operation is valid.
      */
     public Result<Void, Set<String>> validateOperation(GraphsOperationValidation validation, Graph<? super V, ?> graph) {
-        var set = graphValidations.get(validation);
-        if (set == null)
-            return Result.success();
+        return validate(graphSnapshots[validation.ordinal()], graph);
+    }
 
-        var failures = new HashSet<String>();
-        for (var predicate : set) {
-            var result = predicate.apply(graph);
-            switch (result) {
-                case Result.Success<Void, ?> _ -> {
-                }
-                case Result.Failure<?, String>(var f) -> failures.add(f);
+    @SuppressWarnings("unchecked")
+    private static <T> Result<Void, Set<String>> validate(WeakReference<?>[] snapshot, T t) {
+        Set<String> failures = null;
+        for (var reference : snapshot) {
+            String failure = switch (reference.get()) {
+                case null -> null;
+                case Validation<?> validation -> ((Validation<T>) validation).isValid(t)
+                        ? null
+                        : ((Validation<T>) validation).failureMessage(t);
+                case Function<?, ?> function -> switch (((Function<T, Result<Void, String>>) function).apply(t)) {
+                    case Result.Success<Void, String> _ -> null;
+                    case Result.Failure<Void, String>(var f) -> f;
+                };
+                default -> throw new IllegalStateException("Unexpected validation: " + reference.get());
+            };
+
+            if (failure != null) {
+                if (failures == null)
+                    failures = new HashSet<>();
+                failures.add(failure);
             }
         }
 
-        if (failures.isEmpty())
+        if (failures == null)
             return Result.success();
         return Result.fail(failures);
     }
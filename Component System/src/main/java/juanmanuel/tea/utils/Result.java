@@ -40,6 +40,9 @@ public sealed interface Result<S, F> {
     }
 
     record Success<S, F>(S value) implements Result<S, F> {
+        // Successes without a value are all equal and immutable, so a single one is shared
+        private static final Success<?, ?> EMPTY = new Success<>();
+
         public Success() {
             this(null);
         }
@@ -64,8 +67,9 @@ public sealed interface Result<S, F> {
         return new Success<>(value);
     }
 
+    @SuppressWarnings("unchecked")
     static <T, U> Result<T, U> success() {
-        return new Success<>();
+        return (Result<T, U>) Success.EMPTY;
     }
 
     static <T, F> Result<T, F> fail(F cause) {
@@ -0,0 +1,104 @@
+package juanmanuel.tea.components;
+
+import juanmanuel.tea.graph.Graph;
+import juanmanuel.tea.graph.operation_failures.FailureResults;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandBufferTest {
+
+    @Test
+    void applyKeepsValidChanges() {
+        var updater = new CountingUpdater();
+        var graph = updater.graph();
+        var a = updater.add("A");
+        var b = updater.add("B");
+        var c = updater.add("C");
+        var removed = updater.add("Removed");
+        graph.addEdge(b, c);
+
+        var buffer = updater.commandBuffer();
+        var added = buffer.computationOf(new CountingUpdated("Added", updater.log));
+        buffer.add(added);
+        buffer.remove(removed);
+        buffer.connect(a, b);
+        // Closes the cycle A -> B -> A, rejected
+        buffer.connect(b, a);
+        // Reparents C from B to the added computation
+        buffer.setParent(c, added);
+
+        var failures = buffer.apply();
+
+        assertEquals(1, failures.size());
+        assertInstanceOf(FailureResults.GraphCycleDetected.class, failures.getFirst());
+        assertTrue(buffer.isEmpty());
+        assertTrue(graph.containsVertex(added));
+        assertFalse(graph.containsVertex(removed));
+        assertTrue(graph.containsEdge(a, b));
+        assertFalse(graph.containsEdge(b, a));
+        assertEquals(Set.of(added), graph.parentsOf(c));
+    }
+
+    @Test
+    void rejectedChangesAreReportedBeforeTheFrame() {
+        var updater = new CountingUpdater();
+        var a = updater.add("A");
+        var b = updater.add("B");
+        updater.graph().addEdge(a, b);
+
+        updater.commandBuffer().connect(b, a);
+        var added = updater.commandBuffer().computationOf(new CountingUpdated("Added", updater.log));
+        updater.commandBuffer().connect(b, added);
+
+        var frame = updater.runFrame();
+        frame.completion().join();
+
+        assertEquals(1, updater.rejected.size());
+        assertTrue(updater.graph().containsEdge(b, added));
+        assertEquals(3, frame.plan().size());
+        assertEquals(1, added.updated().updates());
+    }
+
+    @Test
+    void changesCanBeRecordedWhileApplying() throws InterruptedException {
+        var updater = new CountingUpdater();
+        var graph = updater.graph();
+        var a = updater.add("A");
+        var b = updater.add("B");
+        var buffer = updater.commandBuffer();
+        var late = buffer.computationOf(new CountingUpdated("Late", updater.log));
+
+        // Records a change from another thread while the batch of the buffer is being committed
+        var recorded = new AtomicBoolean();
+        var known = new AtomicReference<CountingComputation>();
+        graph.addEdgeCallback(Graph.EdgeCallbackType.ON_ADD_EDGE, (_, _) -> {
+            if (recorded.get())
+                return;
+
+            var recorder = Thread.ofPlatform().start(() -> {
+                buffer.connect(b, late);
+                known.set(buffer.computationOf(late.updated()));
+            });
+            try {
+                recorded.set(recorder.join(Duration.ofSeconds(10)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        buffer.connect(a, b);
+        assertTrue(buffer.apply().isEmpty());
+        assertTrue(recorded.get(), "Recording blocked while the buffer was applied");
+        assertSame(late, known.get());
+        assertFalse(buffer.isEmpty());
+
+        assertTrue(buffer.apply().isEmpty());
+        assertTrue(graph.containsEdge(b, late));
+    }
+}
@@ -0,0 +1,20 @@
+package juanmanuel.tea.components;
+
+import java.util.function.Supplier;
+
+public class CountingComputation extends StructuredComputation<CountingUpdater, CountingUpdated, CountingComputation> {
+    public CountingComputation(CountingUpdated updated) {
+        super(CountingUpdater.class, updated);
+        acceptOnUnsetPolicy(true);
+    }
+
+    @Override
+    protected Supplier<CountingComputation> computationSupplier(CountingUpdated updated) {
+        return () -> new CountingComputation(updated);
+    }
+
+    @Override
+    public String toString() {
+        return "CountingComputation[" + updated() + "]";
+    }
+}
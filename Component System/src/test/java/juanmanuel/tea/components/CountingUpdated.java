@@ -0,0 +1,31 @@
+package juanmanuel.tea.components;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CountingUpdated implements Updated {
+    private final String name;
+    private final List<String> log;
+    private final AtomicInteger updates = new AtomicInteger();
+
+    public CountingUpdated(String name, List<String> log) {
+        this.name = name;
+        this.log = log;
+    }
+
+    public void update() {
+        updates.incrementAndGet();
+        synchronized (log) {
+            log.add(name);
+        }
+    }
+
+    public int updates() {
+        return updates.get();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
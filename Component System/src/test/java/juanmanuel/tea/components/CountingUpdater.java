@@ -0,0 +1,87 @@
+package juanmanuel.tea.components;
+
+import juanmanuel.tea.graph.ApplicationEdge;
+import juanmanuel.tea.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CountingUpdater implements Updater<CountingUpdater, CountingUpdated, CountingComputation> {
+    private final Graph<CountingComputation, ApplicationEdge> graph = new Graph<>(ApplicationEdge.class);
+    private final ComputationIndex<CountingUpdated, CountingComputation> computationIndex = new ComputationIndex<>(graph);
+    private final CommandBuffer<CountingUpdater, CountingUpdated, CountingComputation> commandBuffer = new CommandBuffer<>(this);
+    private final FrameExecutor frameExecutor;
+    final List<String> log = new ArrayList<>();
+    final List<Graph.BatchFailure> rejected = new ArrayList<>();
+
+    public CountingUpdater(FrameExecutor frameExecutor) {
+        this.frameExecutor = frameExecutor;
+        graph.acceptUnsetPolicy(true);
+    }
+
+    public CountingUpdater() {
+        this(FrameExecutor.shared());
+    }
+
+    public CountingComputation add(String name) {
+        var computation = new CountingComputation(new CountingUpdated(name, log));
+        graph.addVertex(computation);
+        return computation;
+    }
+
+    @Override
+    public void update(CountingUpdated updated) {
+        updated.update();
+    }
+
+    @Override
+    public CountingComputation computationOf(CountingUpdated updated) {
+        return createComputation(updated);
+    }
+
+    @Override
+    public CountingComputation createComputation(CountingUpdated updated) {
+        return new CountingComputation(updated);
+    }
+
+    @Override
+    public void onDeferredChangesFailed(List<Graph.BatchFailure> rejected, RuntimeException error) {
+        this.rejected.addAll(rejected);
+        Updater.super.onDeferredChangesFailed(rejected, error);
+    }
+
+    @Override
+    public FrameExecutor frameExecutor() {
+        return frameExecutor;
+    }
+
+    @Override
+    public Graph<CountingComputation, ApplicationEdge> graph() {
+        return graph;
+    }
+
+    @Override
+    public ComputationIndex<CountingUpdated, CountingComputation> computationIndex() {
+        return computationIndex;
+    }
+
+    @Override
+    public CommandBuffer<CountingUpdater, CountingUpdated, CountingComputation> commandBuffer() {
+        return commandBuffer;
+    }
+
+    @Override
+    public Class<CountingUpdater> updaterClass() {
+        return CountingUpdater.class;
+    }
+
+    @Override
+    public Class<CountingUpdated> updatedClass() {
+        return CountingUpdated.class;
+    }
+
+    @Override
+    public Class<CountingComputation> computationClass() {
+        return CountingComputation.class;
+    }
+}
@@ -0,0 +1,73 @@
+package juanmanuel.tea.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameTest {
+
+    @Test
+    void completesWhenEveryComputationFinishes() {
+        var updater = new CountingUpdater();
+        var a = updater.add("A");
+        var b = updater.add("B");
+        var c = updater.add("C");
+        updater.graph().addEdge(a, b);
+        updater.graph().addEdge(a, c);
+
+        var frame = updater.runFrame();
+        frame.completion().orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertTrue(frame.isDone());
+        assertEquals(1, b.updated().updates());
+        assertEquals(1, c.updated().updates());
+    }
+
+    @Test
+    void rejectedTasksFailTheFrame() throws InterruptedException {
+        FrameExecutor rejecting = _ -> {
+            throw new RejectedExecutionException("closed");
+        };
+        var updater = new CountingUpdater(rejecting);
+        var a = updater.add("A");
+        var b = updater.add("B");
+        updater.graph().addEdge(a, b);
+        updater.add("Alone");
+
+        var frame = updater.runFrame();
+        var thrown = assertThrows(CompletionException.class,
+                () -> frame.completion().orTimeout(10, TimeUnit.SECONDS).join());
+        assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+
+        // Waiting does not hang either
+        frame.await();
+        assertEquals(0, a.updated().updates());
+    }
+
+    @Test
+    void rejectedChildrenFailTheFrame() {
+        var accepted = new AtomicInteger();
+        FrameExecutor rejectingChildren = task -> {
+            if (accepted.getAndIncrement() > 0)
+                throw new RejectedExecutionException("closed");
+            task.run();
+        };
+        var updater = new CountingUpdater(rejectingChildren);
+        var a = updater.add("A");
+        var b = updater.add("B");
+        var c = updater.add("C");
+        updater.graph().addEdge(a, b);
+        updater.graph().addEdge(a, c);
+
+        var frame = updater.runFrame();
+        var thrown = assertThrows(CompletionException.class,
+                () -> frame.completion().orTimeout(10, TimeUnit.SECONDS).join());
+        assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+        assertEquals(1, a.updated().updates());
+    }
+}
@@ -0,0 +1,98 @@
+package juanmanuel.tea.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityFrameExecutorTest {
+
+    /// Keeps the only worker busy until the returned latch is released.
+    private static CountDownLatch block(PriorityFrameExecutor executor) throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, Long.MAX_VALUE);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    void higherPrioritiesStartFirst() throws InterruptedException {
+        try (var executor = new PriorityFrameExecutor(1)) {
+            var release = block(executor);
+
+            var started = new ArrayList<String>();
+            var done = new CountDownLatch(5);
+            for (var task : List.of("1", "5a", "3", "5b", "0")) {
+                long priority = Long.parseLong(task.substring(0, 1));
+                executor.execute(() -> {
+                    synchronized (started) {
+                        started.add(task);
+                    }
+                    done.countDown();
+                }, priority);
+            }
+
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(List.of("5a", "5b", "3", "1", "0"), started);
+        }
+    }
+
+    @Test
+    void longestChainStartsFirst() throws InterruptedException {
+        try (var executor = new PriorityFrameExecutor(1)) {
+            var updater = new CountingUpdater(executor);
+            updater.add("Alone");
+            var a = updater.add("A");
+            var b = updater.add("B");
+            var c = updater.add("C");
+            var d = updater.add("D");
+            updater.graph().addEdge(a, b);
+            updater.graph().addEdge(a, c);
+            updater.graph().addEdge(c, d);
+
+            var release = block(executor);
+            var frame = updater.runFrame();
+            release.countDown();
+            frame.completion().orTimeout(10, TimeUnit.SECONDS).join();
+
+            assertEquals("A", updater.log.getFirst());
+        }
+    }
+
+    @Test
+    void closeRejectsNewTasks() throws InterruptedException {
+        var executor = new PriorityFrameExecutor(1);
+        var release = block(executor);
+
+        var ran = new CountDownLatch(1);
+        executor.execute(ran::countDown);
+        executor.close();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+
+        // The running task is not interrupted and the queued one still runs
+        release.countDown();
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+
+        var updater = new CountingUpdater(executor);
+        updater.add("A");
+        var frame = updater.runFrame();
+        var thrown = assertThrows(CompletionException.class,
+                () -> frame.completion().orTimeout(10, TimeUnit.SECONDS).join());
+        assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+    }
+}
@@ -0,0 +1,151 @@
+package juanmanuel.tea.components;
+
+import juanmanuel.tea.graph.ExecutionPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardPlanTest {
+
+    static final class ShardedCountingUpdater extends CountingUpdater
+            implements ShardedUpdater<CountingUpdater, CountingUpdated, CountingComputation> {
+        private final ShardScheduler<CountingComputation> shardScheduler;
+
+        ShardedCountingUpdater(ShardScheduler<CountingComputation> shardScheduler) {
+            this.shardScheduler = shardScheduler;
+        }
+
+        @Override
+        public ShardScheduler<CountingComputation> shardScheduler() {
+            return shardScheduler;
+        }
+    }
+
+    /// A -> B -> C, A -> D, E -> F and G alone
+    private static List<CountingComputation> build(CountingUpdater updater) {
+        var computations = new ArrayList<CountingComputation>();
+        for (var name : List.of("A", "B", "C", "D", "E", "F", "G"))
+            computations.add(updater.add(name));
+
+        var graph = updater.graph();
+        graph.addEdge(computations.get(0), computations.get(1));
+        graph.addEdge(computations.get(1), computations.get(2));
+        graph.addEdge(computations.get(0), computations.get(3));
+        graph.addEdge(computations.get(4), computations.get(5));
+        return computations;
+    }
+
+    /// @return The names of the computations of every task, sorted, grouped by phase
+    private static List<List<String>> tasks(ShardPlan<CountingComputation> shards) {
+        var plan = shards.executionPlan();
+        var phases = new ArrayList<List<String>>();
+        for (int phase = 0; phase < shards.phases(); phase++) {
+            var tasks = new ArrayList<String>();
+            for (int task = shards.phaseStart(phase); task < shards.phaseEnd(phase); task++) {
+                var names = new ArrayList<String>();
+                for (int i = 0; i < shards.taskSize(task); i++)
+                    names.add(plan.vertex(shards.taskComputation(task, i)).updated().toString());
+                names.sort(null);
+                tasks.add(String.join("", names));
+            }
+            tasks.sort(null);
+            phases.add(tasks);
+        }
+        return phases;
+    }
+
+    /// Checks that every task is a single shard and phase in topological order, and that every edge is honoured.
+    private static void assertConsistent(ShardPlan<CountingComputation> shards) {
+        var plan = shards.executionPlan();
+        for (int phase = 0; phase < shards.phases(); phase++)
+            for (int task = shards.phaseStart(phase); task < shards.phaseEnd(phase); task++)
+                for (int i = 0; i < shards.taskSize(task); i++) {
+                    int id = shards.taskComputation(task, i);
+                    assertEquals(shards.taskShard(task), shards.shardOf(id));
+                    assertEquals(phase, shards.phaseOf(id));
+                    if (i > 0)
+                        assertTrue(shards.taskComputation(task, i - 1) < id);
+                }
+
+        for (int id = 0; id < plan.size(); id++)
+            for (int i = 0; i < plan.successorCount(id); i++) {
+                int child = plan.successor(id, i);
+                if (shards.shardOf(id) == shards.shardOf(child))
+                    assertTrue(shards.phaseOf(id) <= shards.phaseOf(child));
+                else
+                    assertTrue(shards.phaseOf(id) < shards.phaseOf(child));
+            }
+    }
+
+    @Test
+    void componentsAreASinglePhase() {
+        var updater = new CountingUpdater();
+        build(updater);
+
+        ExecutionPlan<CountingComputation> plan = updater.graph().executionPlan();
+        var shards = ShardPlan.components(plan);
+
+        assertEquals(3, shards.shards());
+        assertEquals(1, shards.phases());
+        assertEquals(List.of(List.of("ABCD", "EF", "G")), tasks(shards));
+        assertConsistent(shards);
+    }
+
+    @Test
+    void crossShardEdgesStartNewPhases() {
+        var updater = new CountingUpdater();
+        build(updater);
+
+        var keys = Map.of("A", "x", "B", "x", "C", "y", "D", "y", "E", "z", "F", "z", "G", "z");
+        var shards = ShardPlan.byKey(updater.graph().executionPlan(), c -> keys.get(c.updated().toString()));
+
+        assertEquals(3, shards.shards());
+        assertEquals(2, shards.phases());
+        assertEquals(List.of(List.of("AB", "EFG"), List.of("CD")), tasks(shards));
+        assertConsistent(shards);
+    }
+
+    @Test
+    void emptyPlanHasNoPhases() {
+        var shards = ShardPlan.components(new CountingUpdater().graph().executionPlan());
+        assertEquals(0, shards.shards());
+        assertEquals(0, shards.phases());
+    }
+
+    @Test
+    void scheduledPhasesRunInOrder() {
+        var keys = Map.of("A", "x", "B", "x", "C", "y", "D", "y", "E", "z", "F", "z", "G", "z");
+        try (var scheduler = new ShardScheduler<CountingComputation>(2, c -> keys.get(c.updated().toString()))) {
+            var updater = new ShardedCountingUpdater(scheduler);
+            var computations = build(updater);
+
+            updater.runFrame().completion().orTimeout(10, TimeUnit.SECONDS).join();
+
+            for (var computation : computations)
+                assertEquals(1, computation.updated().updates());
+            var log = updater.log;
+            assertTrue(log.indexOf("A") < log.indexOf("D"));
+            assertTrue(log.indexOf("B") < log.indexOf("C"));
+        }
+    }
+
+    @Test
+    void closedSchedulerFailsTheFrame() {
+        var scheduler = new ShardScheduler<CountingComputation>(2);
+        var updater = new ShardedCountingUpdater(scheduler);
+        build(updater);
+        scheduler.close();
+
+        var frame = updater.runFrame();
+        var thrown = assertThrows(CompletionException.class,
+                () -> frame.completion().orTimeout(10, TimeUnit.SECONDS).join());
+        assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+    }
+}
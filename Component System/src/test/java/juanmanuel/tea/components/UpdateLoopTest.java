@@ -0,0 +1,138 @@
+package juanmanuel.tea.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpdateLoopTest {
+    private static final long TIMESTEP = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void closeStopsTheLoop() throws InterruptedException {
+        var updater = new CountingUpdater();
+        var a = updater.add("A");
+
+        var loop = new UpdateLoop(updater, TIMESTEP, 4).start();
+        assertTrue(loop.isRunning());
+        awaitUntil(() -> a.updated().updates() > 0);
+
+        loop.close();
+        assertFalse(loop.isRunning());
+        long updates = a.updated().updates();
+        assertEquals(loop.frames(), updates);
+
+        Thread.sleep(10);
+        assertEquals(updates, a.updated().updates());
+    }
+
+    @Test
+    void stopDoesNotWait() throws InterruptedException {
+        var updater = new CountingUpdater();
+        updater.add("A");
+
+        var loop = new UpdateLoop(updater, TIMESTEP, 4).start();
+        awaitUntil(() -> loop.frames() > 0);
+        loop.stop();
+        assertFalse(loop.isRunning());
+
+        loop.awaitTermination();
+        assertThrows(IllegalStateException.class, loop::start);
+    }
+
+    @Test
+    void interpolationNeverOverlapsUpdates() throws InterruptedException {
+        var updating = new AtomicInteger();
+        var interpolations = new AtomicInteger();
+        var overlaps = new AtomicInteger();
+        var updater = new CountingUpdater() {
+            @Override
+            public void update(CountingUpdated updated) {
+                updating.incrementAndGet();
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(500));
+                super.update(updated);
+                updating.decrementAndGet();
+            }
+
+            @Override
+            public void interpolateUpdated(double alpha) {
+                if (updating.get() > 0)
+                    overlaps.incrementAndGet();
+                interpolations.incrementAndGet();
+                super.interpolateUpdated(alpha);
+            }
+        };
+        var a = updater.add("A");
+        var b = updater.add("B");
+        updater.graph().addEdge(a, b);
+        updater.add("C");
+
+        for (var policy : LateFramePolicy.values()) {
+            int before = interpolations.get();
+            try (var loop = new UpdateLoop(updater, TimeUnit.MILLISECONDS.toNanos(2), 4, policy).start()) {
+                awaitUntil(() -> loop.frames() > 20 && interpolations.get() > before + 20);
+            }
+            assertEquals(0, overlaps.get(), "Interpolated while updating with " + policy);
+        }
+    }
+
+    @Test
+    void failedFramesAreReported() throws InterruptedException {
+        var updater = new CountingUpdater() {
+            @Override
+            public void update(CountingUpdated updated) {
+                super.update(updated);
+                if (updated.toString().equals("Failing"))
+                    throw new IllegalStateException("Failing update");
+            }
+        };
+        var fine = updater.add("Fine");
+        updater.add("Failing");
+
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        try (var loop = new UpdateLoop(updater, TIMESTEP, 4).onFailure(failures::add).start()) {
+            awaitUntil(() -> loop.failedFrames() > 1);
+
+            // The loop goes on after a failed frame
+            assertTrue(loop.isRunning());
+            assertTrue(fine.updated().updates() > 1);
+        }
+
+        assertFalse(failures.isEmpty());
+        assertInstanceOf(IllegalStateException.class, failures.getFirst());
+    }
+
+    @Test
+    void updaterFailuresStopTheLoop() throws InterruptedException {
+        var updater = new CountingUpdater() {
+            @Override
+            public void interpolateUpdated(double alpha) {
+                throw new IllegalStateException("Failing interpolation");
+            }
+        };
+        updater.add("A");
+
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        var loop = new UpdateLoop(updater, TIMESTEP, 4).onFailure(failures::add).start();
+        loop.awaitTermination();
+
+        assertFalse(loop.isRunning());
+        assertEquals(1, failures.size());
+        assertInstanceOf(IllegalStateException.class, failures.getFirst());
+    }
+}
@@ -1,10 +1,17 @@
 package juanmanuel.tea.graph;
 
+import juanmanuel.tea.graph.policy.PolicyState;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiPredicate;
 
+import static juanmanuel.tea.graph.policy.GraphPolicy.EdgeModificationGraphPolicy.CREATE_EDGE_POLICY;
+import static juanmanuel.tea.graph.policy.GraphPolicy.VertexModificationGraphPolicy.ADD_VERTEX_POLICY;
+import static juanmanuel.tea.graph.validation.GraphOperationValidator.EdgeValidation.CREATE_EDGE_VALIDATION;
 import static org.junit.jupiter.api.Assertions.*;
 
 class GraphTest {
@@ -369,4 +376,573 @@ class GraphTest {
         }
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void executionPlan() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex root = new DummyVertex("Root", true);
+        DummyVertex left = new DummyVertex("Left", true);
+        DummyVertex right = new DummyVertex("Right", true);
+        DummyVertex sink = new DummyVertex("Sink", true);
+
+        graph.addVertex(root);
+        graph.addVertex(left);
+        graph.addVertex(right);
+        graph.addVertex(sink);
+        graph.addEdge(root, left);
+        graph.addEdge(root, right);
+        graph.addEdge(left, sink);
+        graph.addEdge(right, sink);
+
+        var plan = graph.executionPlan();
+        assertSame(plan, graph.executionPlan());
+        assertEquals(graph.version(), plan.version());
+        assertEquals(4, plan.size());
+        assertEquals(3, plan.levels());
+        assertEquals(1, plan.rootCount());
+        assertSame(root, plan.vertex(0));
+        assertEquals(2, plan.successorCount(plan.idOf(root)));
+        assertEquals(2, plan.predecessorCount(plan.idOf(sink)));
+        assertEquals(3, plan.levelStart(2));
+        assertSame(sink, plan.vertex(plan.levelStart(2)));
+
+        for (int id = 0; id < plan.size(); id++)
+            for (int i = 0; i < plan.successorCount(id); i++)
+                assertTrue(id < plan.successor(id, i));
+
+        graph.removeEdge(right, sink);
+        var updated = graph.executionPlan();
+        assertNotSame(plan, updated);
+        assertEquals(1, updated.predecessorCount(updated.idOf(sink)));
+        assertEquals(-1, updated.idOf(new DummyVertex("Other", true)));
+    }
+
+    @Test
+    void vertexCallbacks() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex vertex = new DummyVertex("Vertex", true);
+        Set<DummyVertex> added = new HashSet<>();
+        Set<DummyVertex> removed = new HashSet<>();
+
+        graph.addVertexCallback(Graph.VertexCallbackType.ON_ADD_VERTEX, added::add);
+        graph.addVertexCallback(Graph.VertexCallbackType.ON_REMOVE_VERTEX, removed::add);
+
+        graph.addVertex(vertex);
+        assertEquals(Set.of(vertex), added);
+        assertTrue(removed.isEmpty());
+
+        graph.removeVertex(vertex);
+        assertEquals(Set.of(vertex), removed);
+    }
+
+    @Test
+    void batch() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+        Set<DummyVertex> added = new HashSet<>();
+        List<DummyVertex> edgeSources = new java.util.ArrayList<>();
+
+        graph.addVertexCallback(Graph.VertexCallbackType.ON_ADD_VERTEX, added::add);
+        graph.addEdgeCallback(Graph.EdgeCallbackType.ON_ADD_EDGE, (source, _) -> edgeSources.add(source));
+
+        long version = graph.version();
+        var result = graph.batch()
+                .addVertex(a)
+                .addVertex(b)
+                .addVertex(c)
+                .addEdge(a, b)
+                .addEdge(b, c)
+                .commit();
+
+        assertTrue(result.isSuccessful());
+        assertEquals(Set.of(a, b, c), added);
+        assertEquals(List.of(a, b), edgeSources);
+        assertTrue(graph.containsEdge(a, b));
+        assertTrue(graph.containsEdge(b, c));
+        assertEquals(version + 1, graph.version());
+
+        // The cycle is only closed by the last edge, nothing is applied
+        DummyVertex d = new DummyVertex("D", true);
+        var cycle = graph.batch()
+                .addVertex(d)
+                .addEdge(c, d)
+                .addEdge(d, a)
+                .commit();
+
+        assertTrue(cycle.isFailure());
+        assertFalse(graph.containsVertex(d));
+        assertEquals(version + 1, graph.version());
+
+        // Removing an edge in the same batch allows the reverse one
+        var reverse = graph.batch()
+                .removeEdge(b, c)
+                .addEdge(c, b)
+                .commit();
+
+        assertTrue(reverse.isSuccessful());
+        assertFalse(graph.containsEdge(b, c));
+        assertTrue(graph.containsEdge(c, b));
+
+        // An empty batch leaves the version and the execution plan as they were
+        var plan = graph.executionPlan();
+        long current = graph.version();
+        var empty = graph.batch();
+        assertTrue(empty.commit().isSuccessful());
+        assertTrue(empty.isCommitted());
+        assertEquals(current, graph.version());
+        assertSame(plan, graph.executionPlan());
+        assertEquals(List.of(a, b, c), edgeSources);
+    }
+
+    @Test
+    void batchRollbackRestoresRemovedEdges() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+        DummyVertex d = new DummyVertex("D", true);
+        List.of(a, b, c, d).forEach(graph::addVertex);
+        graph.addEdge(a, b);
+        graph.addEdge(c, d);
+
+        // B -> A reorders B before A, then D -> C is rejected and A -> B is restored
+        var result = graph.batch()
+                .removeEdge(a, b)
+                .addEdge(b, a)
+                .addEdge(d, c)
+                .commit();
+
+        assertTrue(result.isFailure());
+        assertTrue(graph.containsEdge(a, b));
+        assertFalse(graph.containsEdge(b, a));
+        assertTrue(graph.topologicalOrder().isBefore(a, b));
+        assertTrue(graph.isReachable(a, b));
+
+        // The cycle checks still see the restored edge
+        assertFalse(graph.batch().addEdge(b, a).commit().isSuccessful());
+    }
+
+    @Test
+    void topologicalOrder() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+        DummyVertex d = new DummyVertex("D", true);
+
+        graph.addVertex(a);
+        graph.addVertex(b);
+        graph.addVertex(c);
+        graph.addVertex(d);
+        assertEquals(List.of(a, b, c, d), graph.topologicalOrder().toList());
+
+        // Against the current order, the affected region is reordered
+        assertTrue(graph.addEdge(c, b).isSuccessful());
+        assertTrue(graph.addEdge(d, a).isSuccessful());
+        assertTrue(graph.addEdge(b, a).isSuccessful());
+
+        var order = graph.topologicalOrder();
+        assertTrue(order.isBefore(c, b));
+        assertTrue(order.isBefore(d, a));
+        assertTrue(order.isBefore(b, a));
+        for (DummyVertex v : order)
+            for (DummyVertex child : graph.childrenOf(v))
+                assertTrue(order.isBefore(v, child));
+
+        // c -> b -> a, so a -> c closes a cycle
+        var cycle = graph.addEdge(a, c);
+        assertTrue(cycle.isFailure());
+        assertFalse(graph.containsEdge(a, c));
+
+        graph.removeVertex(b);
+        assertEquals(3, order.size());
+        assertFalse(order.contains(b));
+        assertEquals(-1, order.positionOf(b));
+    }
+
+    @Test
+    void adjacency() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+
+        graph.addVertex(a);
+        graph.addVertex(b);
+        graph.addEdge(a, b);
+
+        var adjacency = graph.adjacency();
+        int idA = adjacency.idOf(a);
+        int idB = adjacency.idOf(b);
+        assertEquals(1, adjacency.outDegree(idA));
+        assertEquals(idB, adjacency.child(idA, 0));
+        assertEquals(idA, adjacency.parent(idB, 0));
+        assertTrue(adjacency.hasEdge(idA, idB));
+        assertEquals(1, graph.inDegreeOf(b));
+        assertEquals(Set.of(b), graph.childrenOf(a));
+        assertEquals(Set.of(a), graph.parentsOf(b));
+
+        // The id of a removed vertex is given to the next one
+        graph.removeVertex(b);
+        assertEquals(-1, adjacency.idOf(b));
+        assertEquals(0, adjacency.outDegree(idA));
+
+        graph.addVertex(c);
+        assertEquals(idB, adjacency.idOf(c));
+        assertEquals(2, adjacency.idBound());
+    }
+
+    @Test
+    void forEachChildAndParent() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex parent = new DummyVertex("Parent", true);
+        DummyVertex child1 = new DummyVertex("Child1", true);
+        DummyVertex child2 = new DummyVertex("Child2", true);
+
+        graph.addVertex(parent);
+        graph.addVertex(child1);
+        graph.addVertex(child2);
+        graph.addEdge(parent, child1);
+        graph.addEdge(parent, child2);
+
+        Set<DummyVertex> children = new HashSet<>();
+        graph.forEachChild(parent, children::add);
+        assertEquals(Set.of(child1, child2), children);
+
+        Set<DummyVertex> parents = new HashSet<>();
+        child1.forEachParentIn(graph, parents::add);
+        assertEquals(Set.of(parent), parents);
+
+        Set<DummyVertex> indexed = new HashSet<>();
+        for (int i = 0; i < graph.childCount(parent); i++)
+            indexed.add(graph.childAt(parent, i));
+        assertEquals(children, indexed);
+        assertEquals(parent, graph.parentAt(child2, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> graph.childAt(child1, 0));
+
+        graph.forEachChild(new DummyVertex("Absent", true), _ -> fail());
+    }
+
+    @Test
+    void reachability() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+
+        graph.addVertex(a);
+        graph.addVertex(b);
+        graph.addVertex(c);
+        graph.addEdge(a, b);
+
+        assertTrue(graph.isReachable(a, b));
+        assertFalse(graph.isReachable(a, c));
+        assertFalse(graph.isReachable(b, a));
+
+        // The descendants of a are kept and extended
+        graph.addEdge(b, c);
+        assertTrue(graph.isReachable(a, c));
+
+        graph.removeEdge(b, c);
+        assertFalse(graph.isReachable(a, c));
+        assertTrue(graph.isReachable(a, b));
+
+        graph.removeVertex(b);
+        assertFalse(graph.isReachable(a, b));
+    }
+
+    @Test
+    void sourcesOfAll() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex root1 = new DummyVertex("Root1", true);
+        DummyVertex root2 = new DummyVertex("Root2", true);
+        DummyVertex middle = new DummyVertex("Middle", true);
+        DummyVertex sink = new DummyVertex("Sink", true);
+
+        graph.addVertex(root1);
+        graph.addVertex(root2);
+        graph.addVertex(middle);
+        graph.addVertex(sink);
+        graph.addEdge(root1, middle);
+        graph.addEdge(root2, middle);
+        graph.addEdge(middle, sink);
+
+        var sources = graph.sourcesOfAll();
+        assertEquals(4, sources.size());
+        assertEquals(Set.of(root1), sources.get(root1));
+        assertEquals(Set.of(root1, root2), sources.get(middle));
+        assertEquals(Set.of(root1, root2), sources.get(sink));
+        assertEquals(sources.get(sink), graph.sourcesOf(sink));
+        assertEquals(Set.of(sink), graph.sinksOf(root2));
+
+        // Cached results are dropped when the graph changes
+        graph.removeEdge(root2, middle);
+        assertEquals(Set.of(root1), graph.sourcesOf(sink));
+    }
+
+    @Test
+    void fullSiblingGroups() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex parent1 = new DummyVertex("Parent1", true);
+        DummyVertex parent2 = new DummyVertex("Parent2", true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+
+        for (var v : List.of(parent1, parent2, a, b, c))
+            graph.addVertex(v);
+        for (var child : List.of(a, b, c))
+            graph.addEdge(parent1, child);
+        graph.addEdge(parent2, a);
+        graph.addEdge(parent2, b);
+
+        assertEquals(Set.of(b), graph.fullSiblingsOf(a));
+        assertEquals(Set.of(), graph.fullSiblingsOf(c));
+        assertEquals(Set.of(c), graph.halfSiblingsOf(a));
+        assertTrue(graph.siblingIndex().areFullSiblings(a, b));
+        assertEquals(2, graph.siblingIndex().groups().size());
+
+        graph.addEdge(parent2, c);
+        assertEquals(Set.of(a, b, c), graph.siblingIndex().groupOf(c));
+
+        graph.removeVertex(parent2);
+        assertEquals(Set.of(a, b, c), graph.siblingIndex().groupOf(a));
+        assertEquals(Set.of(), graph.fullSiblingsOf(parent1));
+    }
+
+    @Test
+    void connectedComponents() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+        DummyVertex d = new DummyVertex("D", true);
+        DummyVertex e = new DummyVertex("E", true);
+
+        for (var v : List.of(a, b, c, d, e))
+            graph.addVertex(v);
+        var components = graph.componentIndex();
+        assertEquals(5, components.componentCount());
+
+        graph.addEdge(a, b);
+        graph.addEdge(b, c);
+        graph.addEdge(d, c);
+        assertEquals(2, components.componentCount());
+        assertTrue(components.connected(a, d));
+        assertEquals(Set.of(a, b, c, d), components.componentOf(c));
+
+        var plan = graph.executionPlan();
+        assertEquals(2, plan.components());
+        assertFalse(plan.isChain(plan.componentOf(plan.idOf(a))));
+        assertTrue(plan.isChain(plan.componentOf(plan.idOf(e))));
+
+        // Removing an edge splits the component
+        graph.removeEdge(d, c);
+        assertFalse(components.connected(a, d));
+        assertEquals(3, components.componentCount());
+        assertTrue(graph.executionPlan().isChain(graph.executionPlan().componentOf(graph.executionPlan().idOf(a))));
+
+        // Removing the middle vertex splits the chain, and its id can be reused
+        graph.removeVertex(b);
+        DummyVertex f = new DummyVertex("F", true);
+        graph.addVertex(f);
+        graph.addEdge(f, e);
+        assertEquals(Set.of(a), components.componentOf(a));
+        assertEquals(Set.of(e, f), components.componentOf(f));
+        assertEquals(4, components.componentCount());
+        assertEquals(components.componentCount(), components.components().size());
+
+        // A rolled back batch leaves the components as they were
+        var cycle = graph.batch()
+                .addEdge(a, c)
+                .addEdge(c, e)
+                .addEdge(e, a)
+                .commit();
+        assertTrue(cycle.isFailure());
+        assertFalse(components.connected(a, c));
+        assertEquals(4, components.componentCount());
+    }
+
+    @Test
+    void criticalPaths() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+        DummyVertex d = new DummyVertex("D", true);
+        var weights = Map.of(a, 1L, b, 2L, c, 3L, d, 10L);
+
+        for (var v : List.of(a, b, c, d))
+            graph.addVertex(v);
+        graph.addEdge(a, b);
+        graph.addEdge(b, c);
+        graph.addEdge(a, d);
+
+        var plan = graph.executionPlan();
+        long[] paths = plan.criticalPaths(weights::get);
+        assertEquals(3, paths[plan.idOf(c)]);
+        assertEquals(5, paths[plan.idOf(b)]);
+        assertEquals(10, paths[plan.idOf(d)]);
+        assertEquals(11, paths[plan.idOf(a)]);
+
+        // Cached paths are reused for twice as many requests after every refresh, up to the interval
+        var cost = new java.util.HashMap<>(weights);
+        long[] cached = plan.criticalPaths(cost::get, 4);
+        assertEquals(11, cached[plan.idOf(a)]);
+        cost.put(d, 20L);
+        assertSame(cached, plan.criticalPaths(cost::get, 4));
+
+        long[] refreshed = plan.criticalPaths(cost::get, 4);
+        assertNotSame(cached, refreshed);
+        assertEquals(21, refreshed[plan.idOf(a)]);
+        int reused = 0;
+        while (plan.criticalPaths(cost::get, 4) == refreshed)
+            reused++;
+        assertEquals(2, reused);
+        assertThrows(IllegalArgumentException.class, () -> plan.criticalPaths(cost::get, 0));
+    }
+
+    @Test
+    void queuedMutations() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        graph.addVertex(a);
+
+        graph.enqueue(batch -> batch.addVertex(b).addEdge(a, b));
+        graph.enqueue(batch -> batch.addEdge(b, a));
+        assertTrue(graph.hasQueuedMutations());
+        assertFalse(graph.containsVertex(b));
+
+        // The second modification closes a cycle and is rejected on its own
+        var failures = graph.applyQueuedMutations();
+        assertFalse(graph.hasQueuedMutations());
+        assertEquals(1, failures.size());
+        assertTrue(graph.containsEdge(a, b));
+        assertFalse(graph.containsEdge(b, a));
+    }
+
+    @Test
+    void concurrentReads() throws InterruptedException {
+        DummyGraph graph = new DummyGraph(true);
+        graph.concurrencyMode(Graph.ConcurrencyMode.CONCURRENT);
+        DummyVertex root = new DummyVertex("Root", true);
+        graph.addVertex(root);
+
+        var failure = new java.util.concurrent.atomic.AtomicReference<Throwable>();
+        var reader = Thread.ofPlatform().start(() -> {
+            try {
+                for (int i = 0; i < 10_000; i++) {
+                    int count = graph.childCount(root);
+                    int[] visited = {0};
+                    graph.forEachChild(root, _ -> visited[0]++);
+                    assertTrue(visited[0] >= count);
+                    graph.childrenOf(root);
+
+                    // The sets of the underlying graph are copies that can be iterated while it changes
+                    int edges = 0;
+                    for (var _ : graph.edgesOf(root))
+                        edges++;
+                    int vertices = 0;
+                    for (var _ : graph.vertexSet())
+                        vertices++;
+                    assertTrue(vertices > edges);
+                    assertTrue(graph.degreeOf(root) <= graph.descendantsOf(root).size());
+                    assertTrue(graph.roots().contains(root));
+                    graph.sinks();
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+
+        for (int i = 0; i < 200; i++) {
+            DummyVertex child = new DummyVertex("Child " + i, true);
+            graph.addVertex(child);
+            graph.addEdge(root, child);
+        }
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(200, graph.childCount(root));
+        assertEquals(graph.childrenOf(root), graph.siblingIndex().groupOf(graph.childAt(root, 0)));
+    }
+
+    @Test
+    void callbackDispatch() {
+        DummyGraph graph = new DummyGraph(true);
+        List<Thread> threads = new java.util.concurrent.CopyOnWriteArrayList<>();
+        graph.addVertexCallback(Graph.VertexCallbackType.ON_ADD_VERTEX, _ -> threads.add(Thread.currentThread()));
+
+        // A single callback runs in the calling thread
+        graph.addVertex(new DummyVertex("A", true));
+        assertEquals(List.of(Thread.currentThread()), threads);
+
+        // With no inline limit every callback is forked
+        graph.callbackInlineLimit(0);
+        graph.addVertex(new DummyVertex("B", true));
+        assertEquals(2, threads.size());
+        assertNotSame(Thread.currentThread(), threads.get(1));
+
+        assertThrows(IllegalArgumentException.class, () -> graph.callbackInlineLimit(-1));
+    }
+
+    @Test
+    void checkPlans() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+        graph.addVertex(a);
+        assertTrue(graph.shouldAddVertex(b).isSuccessful());
+
+        // A type rule applies to every vertex of the class, including the ones already checked
+        graph.policiesManager().reject(ADD_VERTEX_POLICY, DummyVertex.class);
+        assertTrue(graph.shouldAddVertex(b).isFailure());
+        assertTrue(graph.shouldAddVertex(c).isFailure());
+
+        // A rule for a vertex only applies to that vertex
+        graph.policiesManager().accept(ADD_VERTEX_POLICY, b);
+        assertTrue(graph.shouldAddVertex(b).isSuccessful());
+        assertTrue(graph.shouldAddVertex(c).isFailure());
+
+        graph.policiesManager().accept(ADD_VERTEX_POLICY, DummyVertex.class);
+        graph.addVertex(b);
+        graph.addVertex(c);
+        assertTrue(graph.shouldAddEdge(a, b).isSuccessful());
+
+        BiPredicate<DummyVertex, DummyVertex> notToC = (_, target) -> target != c;
+        graph.validationsManager().addValidationForOperation(CREATE_EDGE_VALIDATION, notToC);
+        assertTrue(graph.shouldAddEdge(a, b).isSuccessful());
+        assertTrue(graph.shouldAddEdge(a, c).isFailure());
+
+        graph.validationsManager().removeValidationForOperation(CREATE_EDGE_VALIDATION, notToC);
+        assertTrue(graph.shouldAddEdge(a, c).isSuccessful());
+    }
+
+    @Test
+    void edgePolicies() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex a = new DummyVertex("A", true);
+        DummyVertex b = new DummyVertex("B", true);
+        DummyVertex c = new DummyVertex("C", true);
+        graph.addVertex(a);
+        graph.addVertex(b);
+        graph.addVertex(c);
+
+        graph.policiesManager().reject(CREATE_EDGE_POLICY, a, b);
+        assertEquals(PolicyState.REJECT, graph.policiesManager().stateOf(CREATE_EDGE_POLICY, a, b));
+        assertEquals(PolicyState.UNSET, graph.policiesManager().stateOf(CREATE_EDGE_POLICY, b, a));
+        assertTrue(graph.shouldAddEdge(a, b).isFailure());
+        assertTrue(graph.shouldAddEdge(a, c).isSuccessful());
+
+        graph.policiesManager().accept(CREATE_EDGE_POLICY, a, b);
+        assertEquals(PolicyState.ACCEPT, graph.policiesManager().stateOf(CREATE_EDGE_POLICY, a, b));
+
+        graph.policiesManager().unset(CREATE_EDGE_POLICY, a, b);
+        assertEquals(PolicyState.UNSET, graph.policiesManager().stateOf(CREATE_EDGE_POLICY, a, b));
+        assertTrue(graph.shouldAddEdge(a, b).isSuccessful());
+    }
+}
@@ -1,13 +1,28 @@
 package juanmanuel.tea.graph;
 
+import juanmanuel.tea.graph.callbacks.VertexCallbackManager;
+import juanmanuel.tea.graph.callbacks.vertex.VertexCallbackType;
+import juanmanuel.tea.graph.validation.VertexOperationValidator;
 import juanmanuel.tea.utils.Result;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
 
 import static juanmanuel.tea.graph.policy.VertexPolicy.EdgeModificationVertexPolicy.CONNECT_CHILD_POLICY;
+import static juanmanuel.tea.graph.policy.VertexPolicy.EffectVertexPolicy.ON_CONNECT_CHILD_POLICY;
+import static juanmanuel.tea.graph.policy.VertexPolicy.EffectVertexPolicy.ON_CONNECT_PARENT_POLICY;
+import static juanmanuel.tea.graph.policy.VertexPolicy.GraphModificationVertexPolicy.ADD_TO_GRAPH_POLICY;
 import static juanmanuel.tea.graph.validation.VertexOperationValidator.VerticesOperationValidation.CONNECT_CHILD_VALIDATION;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,6 +73,102 @@ class VertexTest {
         assertFalse(vertex.policiesManager().isRejected(CONNECT_CHILD_POLICY, other));
     }
 
+    @Test
+    void typePolicies() {
+        DummyVertex vertex = new DummyVertex(true);
+        DummyVertex other = new DummyVertex(true);
+
+        assertTrue(vertex.policiesManager().isUnset(CONNECT_CHILD_POLICY, other));
+
+        vertex.policiesManager().accept(CONNECT_CHILD_POLICY, DummyVertex.class);
+
+        assertTrue(vertex.policiesManager().isAccepted(CONNECT_CHILD_POLICY, other));
+
+        // Changing the rule discards the state resolved for the type
+        vertex.policiesManager().reject(CONNECT_CHILD_POLICY, DummyVertex.class);
+
+        assertTrue(vertex.policiesManager().isRejected(CONNECT_CHILD_POLICY, other));
+        assertTrue(vertex.policiesManager().isRejected(CONNECT_CHILD_POLICY, new DummyVertex()));
+
+        // The object rule takes precedence over the type rule
+        vertex.policiesManager().accept(CONNECT_CHILD_POLICY, other);
+
+        assertTrue(vertex.policiesManager().isAccepted(CONNECT_CHILD_POLICY, other));
+
+        vertex.policiesManager().unset(CONNECT_CHILD_POLICY, DummyVertex.class);
+
+        assertTrue(vertex.policiesManager().isUnset(CONNECT_CHILD_POLICY, new DummyVertex()));
+    }
+
+    @Test
+    void objectPoliciesOfSeveralManagers() {
+        DummyVertex first = new DummyVertex(true);
+        DummyVertex second = new DummyVertex(true);
+        DummyVertex other = new DummyVertex(true);
+
+        // The rules of the first manager are kept in the vertex, the ones of the second in its element slot
+        first.policiesManager().accept(CONNECT_CHILD_POLICY, other);
+        second.policiesManager().reject(CONNECT_CHILD_POLICY, other);
+
+        assertTrue(first.policiesManager().isAccepted(CONNECT_CHILD_POLICY, other));
+        assertTrue(second.policiesManager().isRejected(CONNECT_CHILD_POLICY, other));
+        assertTrue(first.policiesManager().isUnset(CONNECT_CHILD_POLICY, second));
+        assertTrue(second.policiesManager().isUnset(CONNECT_CHILD_POLICY, first));
+
+        first.policiesManager().unset(CONNECT_CHILD_POLICY, other);
+        second.policiesManager().unset(CONNECT_CHILD_POLICY, other);
+
+        assertTrue(first.policiesManager().isUnset(CONNECT_CHILD_POLICY, other));
+        assertTrue(second.policiesManager().isUnset(CONNECT_CHILD_POLICY, other));
+    }
+
+    @Test
+    void graphPoliciesOfManyVertices() throws InterruptedException {
+        DummyGraph graph = new DummyGraph(true);
+        DummyGraph otherGraph = new DummyGraph(true);
+        DummyVertex[] vertices = new DummyVertex[64];
+        for (int i = 0; i < vertices.length; i++)
+            vertices[i] = new DummyVertex(true);
+
+        // Every manager claims the bits of the graph at the same time, only one of them can own them
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < vertices.length; i++) {
+            var vertex = vertices[i];
+            boolean accepted = i % 2 == 0;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException _) {
+                    return;
+                }
+                if (accepted)
+                    vertex.policiesManager().accept(ADD_TO_GRAPH_POLICY, graph);
+                else
+                    vertex.policiesManager().reject(ADD_TO_GRAPH_POLICY, graph);
+            }));
+        }
+        start.countDown();
+        for (var thread : threads)
+            thread.join();
+
+        for (int i = 0; i < vertices.length; i++) {
+            var manager = vertices[i].policiesManager();
+            assertEquals(i % 2 == 0, manager.isAccepted(ADD_TO_GRAPH_POLICY, graph));
+            assertEquals(i % 2 != 0, manager.isRejected(ADD_TO_GRAPH_POLICY, graph));
+            assertTrue(manager.isUnset(ADD_TO_GRAPH_POLICY, otherGraph));
+        }
+
+        // A manager keeps the rules for a second element whose bits it does not own in its weak map
+        var manager = vertices[1].policiesManager();
+        manager.accept(ADD_TO_GRAPH_POLICY, otherGraph);
+        assertTrue(manager.isAccepted(ADD_TO_GRAPH_POLICY, otherGraph));
+        assertTrue(manager.isRejected(ADD_TO_GRAPH_POLICY, graph));
+        manager.unset(ADD_TO_GRAPH_POLICY, graph);
+        assertTrue(manager.isUnset(ADD_TO_GRAPH_POLICY, graph));
+        assertTrue(manager.isAccepted(ADD_TO_GRAPH_POLICY, otherGraph));
+    }
+
     @Test
     void validations() {
         DummyVertex vertex = new DummyVertex(true);
@@ -70,6 +181,135 @@ class VertexTest {
         assertInstanceOf(Result.Failure.class, vertex.validationsManager().validateOperation(CONNECT_CHILD_VALIDATION, other));
     }
 
+    @Test
+    void fastValidations() {
+        DummyVertex vertex = new DummyVertex(true);
+        DummyVertex accepted = new DummyVertex(true);
+        DummyVertex rejected = new DummyVertex(true);
+
+        var validation = VertexOperationValidator.Validation.<DummyVertex>of(o -> o == accepted, _ -> "Not accepted");
+        vertex.validationsManager().addOperationValidation(CONNECT_CHILD_VALIDATION, validation);
+
+        assertSame(Result.success(), vertex.validationsManager().validateOperation(CONNECT_CHILD_VALIDATION, accepted));
+        assertEquals(Result.fail(Set.of("Not accepted")), vertex.validationsManager().validateOperation(CONNECT_CHILD_VALIDATION, rejected));
+
+        assertTrue(vertex.validationsManager().removeOperationValidation(CONNECT_CHILD_VALIDATION, validation));
+        assertInstanceOf(Result.Success.class, vertex.validationsManager().validateOperation(CONNECT_CHILD_VALIDATION, rejected));
+    }
+
+    @Test
+    void callbackDeliveries() throws InterruptedException {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex vertex = new DummyVertex("Vertex", true);
+        List<DummyVertex> children = List.of(
+                new DummyVertex("A", true),
+                new DummyVertex("B", true),
+                new DummyVertex("C", true)
+        );
+        graph.addVertex(vertex);
+        children.forEach(graph::addVertex);
+
+        List<DummyVertex> sync = new ArrayList<>();
+        Set<DummyVertex> async = ConcurrentHashMap.newKeySet();
+        CountDownLatch asyncDelivered = new CountDownLatch(children.size());
+        CountDownLatch lastCoalesced = new CountDownLatch(1);
+
+        BiConsumer<DummyVertex, Graph<?, ?>> syncCallback = (child, _) -> sync.add(child);
+        BiConsumer<DummyVertex, Graph<?, ?>> asyncCallback = (child, _) -> {
+            async.add(child);
+            asyncDelivered.countDown();
+        };
+        BiConsumer<DummyVertex, Graph<?, ?>> coalescedCallback = (child, _) -> {
+            if (child == children.getLast())
+                lastCoalesced.countDown();
+        };
+        vertex.addOnConnectChildCallback(syncCallback);
+        vertex.addOnConnectChildCallback(asyncCallback, VertexCallbackManager.Delivery.ASYNC);
+        vertex.addOnConnectChildCallback(coalescedCallback, VertexCallbackManager.Delivery.COALESCED);
+
+        vertex.policiesManager().accept(ON_CONNECT_CHILD_POLICY, DummyVertex.class);
+        children.forEach(child -> vertex.connectChild(child, graph));
+
+        assertEquals(children, sync);
+        assertTrue(asyncDelivered.await(10, TimeUnit.SECONDS));
+        assertEquals(Set.copyOf(children), async);
+        // Earlier connections may be collapsed, but the last one is always delivered
+        assertTrue(lastCoalesced.await(10, TimeUnit.SECONDS));
+
+        assertEquals(Set.of(syncCallback, asyncCallback, coalescedCallback),
+                vertex.callbacksManager().getCallbacksFor(VertexCallbackType.ON_CONNECT_CHILD));
+        assertTrue(vertex.callbacksManager().getCallbacksFor(VertexCallbackType.ON_DISCONNECT_CHILD).isEmpty());
+    }
+
+    @Test
+    void batchEdgesRunVertexCallbacks() {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex parent = new DummyVertex("Parent", true);
+        DummyVertex child = new DummyVertex("Child", true);
+        graph.addVertex(parent);
+        graph.addVertex(child);
+
+        List<String> events = new ArrayList<>();
+        BiConsumer<DummyVertex, Graph<?, ?>> connectChild = (v, _) -> events.add("connect child " + v);
+        BiConsumer<DummyVertex, Graph<?, ?>> connectParent = (v, _) -> events.add("connect parent " + v);
+        BiConsumer<DummyVertex, Graph<?, ?>> leaveChild = (v, _) -> events.add("leave child " + v);
+        BiConsumer<DummyVertex, Graph<?, ?>> leaveParent = (v, _) -> events.add("leave parent " + v);
+        parent.addOnConnectChildCallback(connectChild);
+        child.addOnConnectParentCallback(connectParent);
+        parent.addOnLeaveChildCallback(leaveChild);
+        child.addOnLeaveParentCallback(leaveParent);
+        parent.policiesManager().accept(ON_CONNECT_CHILD_POLICY, DummyVertex.class);
+        child.policiesManager().accept(ON_CONNECT_PARENT_POLICY, DummyVertex.class);
+
+        // The same callbacks as the immediate operations
+        parent.connectChild(child, graph);
+        parent.disconnectChild(child, graph);
+        var immediate = List.copyOf(events);
+        assertEquals(4, immediate.size());
+
+        events.clear();
+        assertTrue(graph.batch().addEdge(parent, child).commit().isSuccessful());
+        assertTrue(graph.batch().removeEdge(parent, child).commit().isSuccessful());
+        assertEquals(immediate, events);
+    }
+
+    @Test
+    void coalescedCallbacksRunOneAtATime() throws InterruptedException {
+        DummyGraph graph = new DummyGraph(true);
+        DummyVertex vertex = new DummyVertex("Vertex", true);
+        List<DummyVertex> children = new ArrayList<>();
+        for (int i = 0; i < 32; i++)
+            children.add(new DummyVertex("Child " + i, true));
+        graph.addVertex(vertex);
+        children.forEach(graph::addVertex);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Integer> delivered = new CopyOnWriteArrayList<>();
+        CountDownLatch lastCoalesced = new CountDownLatch(1);
+        BiConsumer<DummyVertex, Graph<?, ?>> coalescedCallback = (child, _) -> {
+            if (running.incrementAndGet() > 1)
+                overlaps.incrementAndGet();
+            delivered.add(children.indexOf(child));
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            running.decrementAndGet();
+            if (child == children.getLast())
+                lastCoalesced.countDown();
+        };
+        vertex.addOnConnectChildCallback(coalescedCallback, VertexCallbackManager.Delivery.COALESCED);
+        vertex.policiesManager().accept(ON_CONNECT_CHILD_POLICY, DummyVertex.class);
+
+        for (var child : children) {
+            vertex.connectChild(child, graph);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(300));
+        }
+
+        assertTrue(lastCoalesced.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 1; i < delivered.size(); i++)
+            assertTrue(delivered.get(i - 1) < delivered.get(i), "Delivered out of order: " + delivered);
+    }
+
     @Test
     void addChildWithParentRejectPolicy() {
         DummyGraph graph = new DummyGraph(true);
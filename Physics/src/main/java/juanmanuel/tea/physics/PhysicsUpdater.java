@@ -1,6 +1,9 @@
 package juanmanuel.tea.physics;
 
+import juanmanuel.tea.components.CommandBuffer;
+import juanmanuel.tea.components.ComputationIndex;
 import juanmanuel.tea.components.StructuredComputation;
+import juanmanuel.tea.components.UpdateLoop;
 import juanmanuel.tea.components.UpdatedUpdater;
 import juanmanuel.tea.components.Updater;
 import juanmanuel.tea.graph.ApplicationEdge;
@@ -11,13 +14,10 @@ import juanmanuel.tea.graph.policy.VertexOperationsPolicies;
 import juanmanuel.tea.graph.policy.VertexPolicy;
 import juanmanuel.tea.graph.validation.VertexOperationValidator;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.StructuredTaskScope;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static juanmanuel.tea.graph.policy.GraphPolicy.EdgeModificationGraphPolicy.CREATE_EDGE_POLICY;
@@ -29,7 +29,9 @@ public class PhysicsUpdater
     private final String name;
     private final Semaphore concurrentComputeSemaphore = new Semaphore(1);
     private final Graph<PhysicsUpdater.StructuredPhysicComputation, ApplicationEdge> computationGraph;
-    private boolean running = false;
+    private final ComputationIndex<PhysicsUpdated, StructuredPhysicComputation> computationIndex;
+    private final CommandBuffer<PhysicsUpdater, PhysicsUpdated, StructuredPhysicComputation> commandBuffer;
+    private @Nullable UpdateLoop loop;
 
     public PhysicsUpdater() {
         this("");
@@ -44,6 +46,8 @@ public class PhysicsUpdater
                 StructuredPhysicComputation.class,
                 StructuredPhysicComputation.class
         );
+        computationIndex = new ComputationIndex<>(computationGraph);
+        commandBuffer = new CommandBuffer<>(this);
     }
 
 
@@ -86,10 +90,8 @@ public class PhysicsUpdater
 
     @Override
     public PhysicsUpdater.StructuredPhysicComputation computationOf(PhysicsUpdated updated) {
-        return graph().vertexSet().stream()
-                .filter(computation -> computation.updated().equals(updated))
-                .findAny()
-                .orElseGet(() -> createComputation(updated));
+        var computation = computationIndex.get(updated);
+        return computation != null ? computation : createComputation(updated);
     }
 
     @Override
@@ -97,35 +99,26 @@ public class PhysicsUpdater
         return computationGraph;
     }
 
+    @Override
+    public ComputationIndex<PhysicsUpdated, StructuredPhysicComputation> computationIndex() {
+        return computationIndex;
+    }
+
+    @Override
+    public CommandBuffer<PhysicsUpdater, PhysicsUpdated, StructuredPhysicComputation> commandBuffer() {
+        return commandBuffer;
+    }
+
     /**
-     * Starts the cycle of computation.
+     * Starts the cycle of computation. If it is already running, the running loop is returned.
+     * @return The running loop, used to stop it
      */
     @Override
-    public void start() {
-        if (running)
-            return;
-
-        running = true;
-//        AtomicLong start = new AtomicLong(System.nanoTime());
-        try (ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1)) {
-            executor.scheduleAtFixedRate(() -> {
-                try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-                    for (PhysicsUpdater.StructuredPhysicComputation source : graph().roots()) {
-                        scope.fork(() -> {
-                            compute(source);
-                            return null;
-                        });
-                    }
-                    scope.join();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-            }, 0, 1000 / 60, TimeUnit.MILLISECONDS);
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS); // TODO: Implement a way to stop the computation
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        running = false;
+    public synchronized UpdateLoop start(long timestep, int maxSubsteps) {
+        if (loop == null || !loop.isRunning())
+            loop = Updater.super.start(timestep, maxSubsteps);
+
+        return loop;
     }
 
     /**
@@ -134,8 +127,7 @@ public class PhysicsUpdater
      * @return True if this updater would update the object on one of its cycles
      */
     public boolean updates(PhysicsUpdated updated) {
-        return graph().vertexSet().stream()
-                .anyMatch(computation -> computation.updated().equals(updated));
+        return computationIndex.contains(updated);
     }
 
     @Override
@@ -150,11 +142,6 @@ public class PhysicsUpdater
             //PhysicsUpdater.this.computationGraph.addVertex(this);
         }
 
-        @Override
-        protected Map<StructuredComputation<PhysicsUpdater, PhysicsUpdated, StructuredPhysicComputation>, Boolean> previousComputations() {
-            return super.previousComputations();
-        }
-
         @Override
         protected void onStartCompute(PhysicsUpdater updater) throws InterruptedException {
             super.onStartCompute(updater);
@@ -0,0 +1,48 @@
+package juanmanuel.tea.physics;
+
+import juanmanuel.tea.components.ShardScheduler;
+import juanmanuel.tea.components.ShardedUpdater;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.function.Function;
+
+/// A [PhysicsUpdater] that updates the independent islands of the world on separate cores.
+///
+/// Every island is a shard of the computation graph, updated in its own lane of the [ShardScheduler]. By default the
+/// islands are the weakly connected components of the graph, but they can also be declared with a shard key.
+@NullMarked
+public class ShardedPhysicsUpdater extends PhysicsUpdater
+        implements ShardedUpdater<PhysicsUpdater, PhysicsUpdated, PhysicsUpdater.StructuredPhysicComputation>, AutoCloseable {
+    private final ShardScheduler<StructuredPhysicComputation> shardScheduler;
+
+    /// Creates an updater with one lane per available processor, whose islands are the weakly connected components of
+    /// the graph.
+    /// @param name The name of the updater
+    public ShardedPhysicsUpdater(String name) {
+        this(name, new ShardScheduler<>(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /// Creates an updater whose islands are declared by the updated objects. Objects with equal keys share an island.
+    /// @param name The name of the updater
+    /// @param lanes The number of lanes
+    /// @param islandKey The key of the island of an updated object
+    public ShardedPhysicsUpdater(String name, int lanes, Function<? super PhysicsUpdated, ?> islandKey) {
+        this(name, new ShardScheduler<>(lanes, computation -> islandKey.apply(computation.updated())));
+    }
+
+    private ShardedPhysicsUpdater(String name, ShardScheduler<StructuredPhysicComputation> shardScheduler) {
+        super(name);
+        this.shardScheduler = shardScheduler;
+    }
+
+    @Override
+    public ShardScheduler<StructuredPhysicComputation> shardScheduler() {
+        return shardScheduler;
+    }
+
+    /// Stops the lanes of the updater.
+    @Override
+    public void close() {
+        shardScheduler.close();
+    }
+}